@@ -14,5 +14,10 @@ public enum ConfigType {
     /**
      * Last.fm API secret.
      */
-    LAST_FM_API_SECRET ,
+    LAST_FM_API_SECRET,
+
+    /**
+     * Lucene directory storage type (RAM or FILE).
+     */
+    LUCENE_DIRECTORY_STORAGE,
 }
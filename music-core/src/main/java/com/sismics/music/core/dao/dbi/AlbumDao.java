@@ -8,8 +8,10 @@ import com.sismics.music.core.model.dbi.Album;
 import com.sismics.music.core.util.dbi.ColumnIndexMapper;
 import com.sismics.music.core.util.dbi.QueryParam;
 import com.sismics.music.core.util.dbi.QueryUtil;
+import com.sismics.util.UuidUtil;
 import com.sismics.util.context.ThreadLocalContext;
 import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.PreparedBatch;
 import org.skife.jdbi.v2.Query;
 import org.skife.jdbi.v2.util.IntegerMapper;
 
@@ -28,7 +30,7 @@ public class AlbumDao {
      * @return Album ID
      */
     public String create(Album album) {
-        album.setId(UUID.randomUUID().toString());
+        album.setId(UuidUtil.newId());
         final Date now = new Date();
         album.setCreateDate(now);
         album.setUpdateDate(now);
@@ -49,6 +51,36 @@ public class AlbumDao {
         return album.getId();
     }
     
+    /**
+     * Creates new albums in a single batch.
+     *
+     * @param albumList Albums to create
+     */
+    public void createAll(List<Album> albumList) {
+        if (albumList.isEmpty()) {
+            return;
+        }
+        Handle handle = ThreadLocalContext.get().getHandle();
+        PreparedBatch batch = handle.prepareBatch("insert into " +
+                " T_ALBUM(ALB_ID_C, ALB_IDDIRECTORY_C, ALB_IDARTIST_C, ALB_NAME_C, ALB_ALBUMART_C, ALB_CREATEDATE_D, ALB_UPDATEDATE_D)" +
+                " values(:id, :directoryId, :artistId, :name, :albumArt, :createDate, :updateDate)");
+        final Date now = new Date();
+        for (Album album : albumList) {
+            album.setId(UuidUtil.newId());
+            album.setCreateDate(now);
+            album.setUpdateDate(now);
+            batch.add()
+                    .bind("id", album.getId())
+                    .bind("directoryId", album.getDirectoryId())
+                    .bind("artistId", album.getArtistId())
+                    .bind("name", album.getName())
+                    .bind("albumArt", album.getAlbumArt())
+                    .bind("updateDate", album.getUpdateDate())
+                    .bind("createDate", album.getCreateDate());
+        }
+        batch.execute();
+    }
+
     /**
      * Updates an album.
      * 
@@ -58,11 +90,11 @@ public class AlbumDao {
     public Album update(Album album) {
         final Handle handle = ThreadLocalContext.get().getHandle();
         handle.createStatement("update T_ALBUM a set " +
-                " a.ALB_IDDIRECTORY_C = :directoryId," +
-                " a.ALB_IDARTIST_C = :artistId, " +
-                " a.ALB_NAME_C = :name, " +
-                " a.ALB_ALBUMART_C = :albumArt, " +
-                " a.ALB_UPDATEDATE_D = :updateDate " +
+                " ALB_IDDIRECTORY_C = :directoryId," +
+                " ALB_IDARTIST_C = :artistId, " +
+                " ALB_NAME_C = :name, " +
+                " ALB_ALBUMART_C = :albumArt, " +
+                " ALB_UPDATEDATE_D = :updateDate " +
                 " where a.ALB_ID_C = :id and a.ALB_DELETEDATE_D is null")
                 .bind("id", album.getId())
                 .bind("name", album.getName())
@@ -75,6 +107,25 @@ public class AlbumDao {
         return album;
     }
 
+    /**
+     * Updates the album art of an album.
+     *
+     * @param id Album ID
+     * @param albumArt Album art ID
+     * @return Number of updated albums
+     */
+    public int updateAlbumArt(String id, String albumArt) {
+        final Handle handle = ThreadLocalContext.get().getHandle();
+        return handle.createStatement("update T_ALBUM a set " +
+                " ALB_ALBUMART_C = :albumArt, " +
+                " ALB_UPDATEDATE_D = :updateDate " +
+                " where a.ALB_ID_C = :id and a.ALB_DELETEDATE_D is null")
+                .bind("id", id)
+                .bind("albumArt", albumArt)
+                .bind("updateDate", new Date())
+                .execute();
+    }
+
     /**
      * Gets an active album by its name.
      * 
@@ -85,13 +136,49 @@ public class AlbumDao {
         final Handle handle = ThreadLocalContext.get().getHandle();
         return handle.createQuery("select " + new AlbumMapper().getJoinedColumns("a") +
                 "  from T_ALBUM a" +
-                "  where lower(a.ALB_IDARTIST_C) = lower(:artistId) and lower(a.ALB_NAME_C) = lower(:name) and a.ALB_DELETEDATE_D is null")
+                "  where a.ALB_IDARTIST_C = :artistId and a.ALB_NAME_C = :name and a.ALB_DELETEDATE_D is null")
                 .bind("artistId", artistId)
                 .bind("name", name)
                 .mapTo(Album.class)
                 .first();
     }
     
+    /**
+     * Gets an active album of a directory by its artist and name.
+     *
+     * @param directoryId Directory ID
+     * @param artistId Artist ID
+     * @param name Album name
+     * @return Album
+     */
+    public Album getActiveByDirectoryAndArtistIdAndName(String directoryId, String artistId, String name) {
+        final Handle handle = ThreadLocalContext.get().getHandle();
+        return handle.createQuery("select " + new AlbumMapper().getJoinedColumns("a") +
+                "  from T_ALBUM a" +
+                "  where a.ALB_IDDIRECTORY_C = :directoryId and a.ALB_IDARTIST_C = :artistId and a.ALB_NAME_C = :name and a.ALB_DELETEDATE_D is null")
+                .bind("directoryId", directoryId)
+                .bind("artistId", artistId)
+                .bind("name", name)
+                .mapTo(Album.class)
+                .first();
+    }
+
+    /**
+     * Gets the active albums of a directory.
+     *
+     * @param directoryId Directory ID
+     * @return List of albums
+     */
+    public List<Album> getActiveByDirectoryId(String directoryId) {
+        final Handle handle = ThreadLocalContext.get().getHandle();
+        return handle.createQuery("select " + new AlbumMapper().getJoinedColumns("a") +
+                "  from T_ALBUM a" +
+                "  where a.ALB_IDDIRECTORY_C = :directoryId and a.ALB_DELETEDATE_D is null")
+                .bind("directoryId", directoryId)
+                .mapTo(Album.class)
+                .list();
+    }
+
     /**
      * Gets active albums by artist ID.
      * 
@@ -102,7 +189,8 @@ public class AlbumDao {
         final Handle handle = ThreadLocalContext.get().getHandle();
         return handle.createQuery("select a.ALB_ID_C, a.ALB_IDDIRECTORY_C, a.ALB_IDARTIST_C, a.ALB_NAME_C, a.ALB_ALBUMART_C, a.ALB_UPDATEDATE_D, a.ALB_CREATEDATE_D, a.ALB_DELETEDATE_D" +
                 "  from T_ALBUM a" +
-                "  where a.ALB_IDARTIST_C = :artistId and a.ALB_DELETEDATE_D is null")
+                "  where a.ALB_IDARTIST_C = :artistId and a.ALB_DELETEDATE_D is null" +
+                "  order by a.ALB_NAME_C, a.ALB_ID_C")
                 .bind("artistId", artistId)
                 .mapTo(Album.class)
                 .list();
@@ -115,6 +203,9 @@ public class AlbumDao {
      * @return Album
      */
     public Album getActiveById(String id) {
+        if (!UuidUtil.isUuid(id)) {
+            return null;
+        }
         final Handle handle = ThreadLocalContext.get().getHandle();
         return handle.createQuery("select " + new AlbumMapper().getJoinedColumns("a") +
                 "  from T_ALBUM a" +
@@ -132,10 +223,13 @@ public class AlbumDao {
      */
     public Integer getFavoriteCountByAlbum(String id) {
         final Handle handle = ThreadLocalContext.get().getHandle();
-        return handle.createQuery("select count(t.TRK_ID_C)" +
-                "  from T_TRACK t" +
-                "  where t.TRK_IDALBUM_C = :id and t.TRK_FAVORITE_B = :favorite and a.TRK_DELETEDATE_D is null")
+        return handle.createQuery("select count(ut.UST_ID_C)" +
+                "  from T_USER_TRACK ut" +
+                "  join T_TRACK t on(t.TRK_ID_C = ut.UST_IDTRACK_C)" +
+                "  where t.TRK_IDALBUM_C = :id and ut.UST_LIKE_B = :like" +
+                "  and t.TRK_DELETEDATE_D is null and ut.UST_DELETEDATE_D is null")
                 .bind("id", id)
+                .bind("like", true)
                 .map(IntegerMapper.FIRST)
                 .first();
     }
@@ -169,21 +263,41 @@ public class AlbumDao {
         // Adds search criteria
         List<String> criteriaList = new ArrayList<String>();
         if (criteria.getId() != null) {
-            criteriaList.add("a.ALB_ID_C = :id");
-            parameterMap.put("id", criteria.getId());
+            if (UuidUtil.isUuid(criteria.getId())) {
+                criteriaList.add("a.ALB_ID_C = :id");
+                parameterMap.put("id", criteria.getId());
+            } else {
+                criteriaList.add("1 = 0");
+            }
+        }
+        if (criteria.getIdList() != null) {
+            List<String> idParamList = new ArrayList<String>();
+            for (int i = 0; i < criteria.getIdList().size(); i++) {
+                idParamList.add(":id" + i);
+                parameterMap.put("id" + i, criteria.getIdList().get(i));
+            }
+            criteriaList.add(idParamList.isEmpty() ? "1 = 0" : "a.ALB_ID_C in (" + Joiner.on(", ").join(idParamList) + ")");
         }
         if (criteria.getDirectoryId() != null) {
             criteriaList.add("a.ALB_IDDIRECTORY_C = :directoryId");
             parameterMap.put("directoryId", criteria.getDirectoryId());
         }
         if (criteria.getArtistId() != null) {
-            criteriaList.add("ar.ART_ID_C = :artistId");
-            parameterMap.put("artistId", criteria.getArtistId());
+            if (UuidUtil.isUuid(criteria.getArtistId())) {
+                criteriaList.add("ar.ART_ID_C = :artistId");
+                parameterMap.put("artistId", criteria.getArtistId());
+            } else {
+                criteriaList.add("1 = 0");
+            }
         }
         if (criteria.getNameLike() != null) {
             criteriaList.add("lower(a.ALB_NAME_C) like lower(:nameLike)");
             parameterMap.put("nameLike", "%" + criteria.getNameLike() + "%");
         }
+        if (criteria.getUpdateDateMin() != null) {
+            criteriaList.add("a.ALB_UPDATEDATE_D >= :updateDateMin");
+            parameterMap.put("updateDateMin", criteria.getUpdateDateMin());
+        }
         criteriaList.add("ar.ART_DELETEDATE_D is null");
         criteriaList.add("a.ALB_DELETEDATE_D is null");
 
@@ -229,10 +343,26 @@ public class AlbumDao {
     public void delete(String id) {
         final Handle handle = ThreadLocalContext.get().getHandle();
         handle.createStatement("update T_ALBUM a" +
-                "  set a.ALB_DELETEDATE_D = :deleteDate" +
+                "  set ALB_DELETEDATE_D = :deleteDate" +
                 "  where a.ALB_ID_C = :id and a.ALB_DELETEDATE_D is null")
                 .bind("id", id)
                 .bind("deleteDate", new Date())
                 .execute();
     }
+
+    /**
+     * Delete any album of a directory that don't have any track.
+     *
+     * @param directoryId Directory ID
+     */
+    public void deleteEmptyAlbum(String directoryId) {
+        final Handle handle = ThreadLocalContext.get().getHandle();
+        handle.createStatement("update T_ALBUM a set ALB_DELETEDATE_D = :deleteDate" +
+                "  where a.ALB_DELETEDATE_D is null and a.ALB_IDDIRECTORY_C = :directoryId and not exists (" +
+                "  select t.TRK_ID_C from T_TRACK t " +
+                "    where t.TRK_IDALBUM_C = a.ALB_ID_C and t.TRK_DELETEDATE_D is null)")
+                .bind("directoryId", directoryId)
+                .bind("deleteDate", new Date())
+                .execute();
+    }
 }
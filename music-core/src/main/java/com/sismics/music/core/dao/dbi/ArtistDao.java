@@ -5,9 +5,9 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
 
 import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.PreparedBatch;
 import org.skife.jdbi.v2.Query;
 
 import com.google.common.base.Joiner;
@@ -18,6 +18,7 @@ import com.sismics.music.core.model.dbi.Artist;
 import com.sismics.music.core.util.dbi.ColumnIndexMapper;
 import com.sismics.music.core.util.dbi.QueryParam;
 import com.sismics.music.core.util.dbi.QueryUtil;
+import com.sismics.util.UuidUtil;
 import com.sismics.util.context.ThreadLocalContext;
 
 /**
@@ -33,7 +34,7 @@ public class ArtistDao {
      * @return Artist ID
      */
     public String create(Artist artist) {
-        artist.setId(UUID.randomUUID().toString());
+        artist.setId(UuidUtil.newId());
         artist.setCreateDate(new Date());
 
         final Handle handle = ThreadLocalContext.get().getHandle();
@@ -48,6 +49,31 @@ public class ArtistDao {
         return artist.getId();
     }
     
+    /**
+     * Creates new artists in a single batch.
+     *
+     * @param artistList Artists to create
+     */
+    public void createAll(List<Artist> artistList) {
+        if (artistList.isEmpty()) {
+            return;
+        }
+        final Handle handle = ThreadLocalContext.get().getHandle();
+        PreparedBatch batch = handle.prepareBatch("insert into " +
+                "  T_ARTIST (ART_ID_C, ART_NAME_C, ART_CREATEDATE_D)" +
+                "  values(:id, :name, :createDate)");
+        Date now = new Date();
+        for (Artist artist : artistList) {
+            artist.setId(UuidUtil.newId());
+            artist.setCreateDate(now);
+            batch.add()
+                    .bind("id", artist.getId())
+                    .bind("name", artist.getName())
+                    .bind("createDate", artist.getCreateDate());
+        }
+        batch.execute();
+    }
+
     /**
      * Updates a artist.
      * 
@@ -71,12 +97,26 @@ public class ArtistDao {
         final Handle handle = ThreadLocalContext.get().getHandle();
         return handle.createQuery("select " + new ArtistMapper().getJoinedColumns("a") +
                 "  from T_ARTIST a" +
-                "  where lower(a.ART_NAME_C) = lower(:name) and a.ART_DELETEDATE_D is null")
+                "  where a.ART_NAME_C = :name and a.ART_DELETEDATE_D is null")
                 .bind("name", name)
                 .mapTo(Artist.class)
                 .first();
     }
     
+    /**
+     * Gets all active artists.
+     *
+     * @return List of artists
+     */
+    public List<Artist> getAllActive() {
+        final Handle handle = ThreadLocalContext.get().getHandle();
+        return handle.createQuery("select " + new ArtistMapper().getJoinedColumns("a") +
+                "  from T_ARTIST a" +
+                "  where a.ART_DELETEDATE_D is null")
+                .mapTo(Artist.class)
+                .list();
+    }
+
     /**
      * Gets an active artist by its artistname.
      *
@@ -84,6 +124,9 @@ public class ArtistDao {
      * @return Artist
      */
     public Artist getActiveById(String id) {
+        if (!UuidUtil.isUuid(id)) {
+            return null;
+        }
         final Handle handle = ThreadLocalContext.get().getHandle();
         return handle.createQuery("select " + new ArtistMapper().getJoinedColumns("a") +
                 "  from T_ARTIST a" +
@@ -101,7 +144,7 @@ public class ArtistDao {
     public void delete(String id) {
         final Handle handle = ThreadLocalContext.get().getHandle();
         handle.createStatement("update T_ARTIST a" +
-                "  set a.ART_DELETEDATE_D = :deleteDate" +
+                "  set ART_DELETEDATE_D = :deleteDate" +
                 "  where a.ART_ID_C = :id and a.ART_DELETEDATE_D is null")
                 .bind("id", id)
                 .bind("deleteDate", new Date())
@@ -113,7 +156,7 @@ public class ArtistDao {
      */
     public void deleteEmptyArtist() {
         final Handle handle = ThreadLocalContext.get().getHandle();
-        handle.createStatement("update T_ARTIST a set a.ART_DELETEDATE_D = :deleteDate where a.ART_ID_C NOT IN (" +
+        handle.createStatement("update T_ARTIST a set ART_DELETEDATE_D = :deleteDate where a.ART_ID_C NOT IN (" +
                 "  select al.ALB_IDARTIST_C from T_ALBUM al " +
                 "    where al.ALB_DELETEDATE_D is null " +
                 "    group by al.ALB_IDARTIST_C" +
@@ -156,10 +199,22 @@ public class ArtistDao {
             criteriaList.add("a.ART_ID_C = :id");
             parameterMap.put("id", criteria.getId());
         }
+        if (criteria.getIdList() != null) {
+            List<String> idParamList = new ArrayList<String>();
+            for (int i = 0; i < criteria.getIdList().size(); i++) {
+                idParamList.add(":id" + i);
+                parameterMap.put("id" + i, criteria.getIdList().get(i));
+            }
+            criteriaList.add(idParamList.isEmpty() ? "1 = 0" : "a.ART_ID_C in (" + Joiner.on(", ").join(idParamList) + ")");
+        }
         if (criteria.getNameLike() != null) {
             criteriaList.add("lower(a.ART_NAME_C) like lower(:nameLike)");
             parameterMap.put("nameLike", "%" + criteria.getNameLike() + "%");
         }
+        if (criteria.getCreateDateMin() != null) {
+            criteriaList.add("a.ART_CREATEDATE_D >= :createDateMin");
+            parameterMap.put("createDateMin", criteria.getCreateDateMin());
+        }
         criteriaList.add("a.ART_DELETEDATE_D is null");
 
         if (!criteriaList.isEmpty()) {
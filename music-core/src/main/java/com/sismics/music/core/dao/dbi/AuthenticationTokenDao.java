@@ -4,8 +4,11 @@ import com.sismics.music.core.model.dbi.AuthenticationToken;
 import com.sismics.util.context.ThreadLocalContext;
 import org.joda.time.DateTime;
 import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.PreparedBatch;
 
+import java.util.Collection;
 import java.util.Date;
+import java.util.Map;
 import java.util.UUID;
 
 /**
@@ -73,6 +76,26 @@ public class AuthenticationTokenDao {
         }
     }
 
+    /**
+     * Deletes authentication tokens in a single batch.
+     *
+     * @param idList Authentication token IDs
+     */
+    public void deleteAll(Collection<String> idList) {
+        if (idList.isEmpty()) {
+            return;
+        }
+        final Handle handle = ThreadLocalContext.get().getHandle();
+        PreparedBatch batch = handle.prepareBatch("delete from " +
+                "  T_AUTHENTICATION_TOKEN" +
+                "  where AUT_ID_C = :id");
+        for (String id : idList) {
+            batch.add()
+                    .bind("id", id);
+        }
+        batch.execute();
+    }
+
     /**
      * Deletes old short lived tokens.
      *
@@ -90,17 +113,23 @@ public class AuthenticationTokenDao {
     }
 
     /**
-     * Deletes old short lived tokens.
+     * Updates the last connection date of tokens in a single batch.
      *
-     * @param id Token id
+     * @param lastConnectionDateMap Last connection dates, by token ID
      */
-    public void updateLastConnectionDate(String id) {
+    public void updateLastConnectionDate(Map<String, Date> lastConnectionDateMap) {
+        if (lastConnectionDateMap.isEmpty()) {
+            return;
+        }
         final Handle handle = ThreadLocalContext.get().getHandle();
-        handle.createStatement("update T_AUTHENTICATION_TOKEN ato " +
-                "  set ato.AUT_LASTCONNECTIONDATE_D = :currentDate" +
-                "  where ato.AUT_ID_C = :id ")
-                .bind("currentDate", new Date())
-                .bind("id", id)
-                .execute();
+        PreparedBatch batch = handle.prepareBatch("update T_AUTHENTICATION_TOKEN ato " +
+                "  set AUT_LASTCONNECTIONDATE_D = :lastConnectionDate" +
+                "  where ato.AUT_ID_C = :id ");
+        for (Map.Entry<String, Date> entry : lastConnectionDateMap.entrySet()) {
+            batch.add()
+                    .bind("lastConnectionDate", entry.getValue())
+                    .bind("id", entry.getKey());
+        }
+        batch.execute();
     }
 }
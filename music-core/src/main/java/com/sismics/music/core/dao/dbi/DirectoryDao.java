@@ -100,7 +100,7 @@ public class DirectoryDao {
     public void delete(String id) {
         final Handle handle = ThreadLocalContext.get().getHandle();
         handle.createStatement("update T_DIRECTORY d" +
-                "  set d.DIR_DELETEDATE_D = :deleteDate" +
+                "  set DIR_DELETEDATE_D = :deleteDate" +
                 "  where d.DIR_ID_C = :id and d.DIR_DELETEDATE_D is null")
                 .bind("id", id)
                 .bind("deleteDate", new Date())
@@ -137,7 +137,7 @@ public class DirectoryDao {
         return handle.createQuery("select d.DIR_ID_C, d.DIR_NAME_C, d.DIR_LOCATION_C, d.DIR_DISABLEDATE_D, d.DIR_CREATEDATE_D, d.DIR_DELETEDATE_D " +
                 "  from T_DIRECTORY d" +
                 "  where d.DIR_DELETEDATE_D is null" +
-                "  order by d.DIR_NAME_C is null")
+                "  order by d.DIR_NAME_C")
                 .mapTo(Directory.class)
                 .list();
     }
@@ -1,13 +1,12 @@
 package com.sismics.music.core.dao.dbi;
 
 import com.sismics.music.core.model.dbi.PlaylistTrack;
+import com.sismics.util.UuidUtil;
 import com.sismics.util.context.ThreadLocalContext;
 import com.sismics.util.dbi.ObjectMapper;
 import org.skife.jdbi.v2.Handle;
 import org.skife.jdbi.v2.util.StringMapper;
 
-import java.util.UUID;
-
 /**
  * Playlist track DAO.
  * 
@@ -22,7 +21,7 @@ public class PlaylistTrackDao {
      */
     public String create(PlaylistTrack playlistTrack) {
         // Create the playlist UUID
-        playlistTrack.setId(UUID.randomUUID().toString());
+        playlistTrack.setId(UuidUtil.newId());
 
         final Handle handle = ThreadLocalContext.get().getHandle();
         handle.createStatement("insert into " +
@@ -74,7 +73,7 @@ public class PlaylistTrackDao {
     public void insertPlaylistTrack(String playlistId, String trackId, Integer order) {
         // Reorder currrent tracks
         final Handle handle = ThreadLocalContext.get().getHandle();
-        handle.createStatement("update T_PLAYLIST_TRACK pt set pt.PLT_ORDER_N = pt.PLT_ORDER_N + 1 where pt.PLT_IDPLAYLIST_C = :playlistId and pt.PLT_ORDER_N >= :order")
+        handle.createStatement("update T_PLAYLIST_TRACK pt set PLT_ORDER_N = pt.PLT_ORDER_N + 1 where pt.PLT_IDPLAYLIST_C = :playlistId and pt.PLT_ORDER_N >= :order")
                 .bind("playlistId", playlistId)
                 .bind("order", order)
                 .execute();
@@ -113,7 +112,7 @@ public class PlaylistTrackDao {
                 .execute();
 
         // Reorder currrent tracks
-        handle.createStatement("update T_PLAYLIST_TRACK pt set pt.PLT_ORDER_N = pt.PLT_ORDER_N - 1 where pt.PLT_IDPLAYLIST_C = :playlistId and pt.PLT_ORDER_N > :order")
+        handle.createStatement("update T_PLAYLIST_TRACK pt set PLT_ORDER_N = pt.PLT_ORDER_N - 1 where pt.PLT_IDPLAYLIST_C = :playlistId and pt.PLT_ORDER_N > :order")
                 .bind("playlistId", playlistId)
                 .bind("order", order)
                 .execute();
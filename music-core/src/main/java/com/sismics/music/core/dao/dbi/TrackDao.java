@@ -1,15 +1,19 @@
 package com.sismics.music.core.dao.dbi;
 
 import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
 import com.sismics.music.core.dao.dbi.criteria.TrackCriteria;
 import com.sismics.music.core.dao.dbi.dto.TrackDto;
 import com.sismics.music.core.dao.dbi.mapper.TrackMapper;
 import com.sismics.music.core.model.dbi.Track;
 import com.sismics.music.core.util.dbi.*;
+import com.sismics.util.UuidUtil;
 import com.sismics.util.context.ThreadLocalContext;
 import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.PreparedBatch;
 import org.skife.jdbi.v2.Query;
 
+import java.io.File;
 import java.util.*;
 
 /**
@@ -25,13 +29,13 @@ public class TrackDao {
      * @return Track ID
      */
     public String create(Track track) {
-        track.setId(UUID.randomUUID().toString());
+        track.setId(UuidUtil.newId());
         track.setCreateDate(new Date());
 
         final Handle handle = ThreadLocalContext.get().getHandle();
         handle.createStatement("insert into " +
-                "  T_TRACK(TRK_ID_C, TRK_IDALBUM_C, TRK_IDARTIST_C, TRK_FILENAME_C, TRK_TITLE_C, TRK_YEAR_N, TRK_GENRE_C, TRK_LENGTH_N, TRK_BITRATE_N, TRK_VBR_B, TRK_FORMAT_C, TRK_CREATEDATE_D)" +
-                "  values(:id, :albumId, :artistId, :fileName, :title, :year, :genre, :length, :bitrate, :vbr, :format, :createDate)")
+                "  T_TRACK(TRK_ID_C, TRK_IDALBUM_C, TRK_IDARTIST_C, TRK_FILENAME_C, TRK_TITLE_C, TRK_YEAR_N, TRK_GENRE_C, TRK_LENGTH_N, TRK_BITRATE_N, TRK_VBR_B, TRK_FORMAT_C, TRK_FILEMODIFIEDDATE_D, TRK_FILESIZE_N, TRK_CREATEDATE_D, TRK_UPDATEDATE_D)" +
+                "  values(:id, :albumId, :artistId, :fileName, :title, :year, :genre, :length, :bitrate, :vbr, :format, :fileModifiedDate, :fileSize, :createDate, :createDate)")
                 .bind("id", track.getId())
                 .bind("albumId", track.getAlbumId())
                 .bind("artistId", track.getArtistId())
@@ -43,6 +47,8 @@ public class TrackDao {
                 .bind("bitrate", track.getBitrate())
                 .bind("vbr", track.isVbr())
                 .bind("format", track.getFormat())
+                .bind("fileModifiedDate", track.getFileModifiedDate())
+                .bind("fileSize", track.getFileSize())
                 .bind("createDate", track.getCreateDate())
                 .execute();
 
@@ -58,17 +64,20 @@ public class TrackDao {
     public Track update(Track track) {
         final Handle handle = ThreadLocalContext.get().getHandle();
         handle.createStatement("update T_TRACK t set " +
-                " t.TRK_IDALBUM_C = :albumId, " +
-                " t.TRK_IDARTIST_C = :artistId, " +
-                " t.TRK_FILENAME_C = :fileName, " +
-                " t.TRK_TITLE_C = :title, " +
-                " t.TRK_YEAR_N = :year, " +
-                " t.TRK_GENRE_C = :genre, " +
-                " t.TRK_LENGTH_N = :length, " +
-                " t.TRK_BITRATE_N = :bitrate, " +
-                " t.TRK_VBR_B = :vbr, " +
-                " t.TRK_FORMAT_C = :format, " +
-                " t.TRK_CREATEDATE_D = :createDate " +
+                " TRK_IDALBUM_C = :albumId, " +
+                " TRK_IDARTIST_C = :artistId, " +
+                " TRK_FILENAME_C = :fileName, " +
+                " TRK_TITLE_C = :title, " +
+                " TRK_YEAR_N = :year, " +
+                " TRK_GENRE_C = :genre, " +
+                " TRK_LENGTH_N = :length, " +
+                " TRK_BITRATE_N = :bitrate, " +
+                " TRK_VBR_B = :vbr, " +
+                " TRK_FORMAT_C = :format, " +
+                " TRK_FILEMODIFIEDDATE_D = :fileModifiedDate, " +
+                " TRK_FILESIZE_N = :fileSize, " +
+                " TRK_CREATEDATE_D = :createDate, " +
+                " TRK_UPDATEDATE_D = :updateDate " +
                 " where t.TRK_ID_C = :id and t.TRK_DELETEDATE_D is null")
                 .bind("id", track.getId())
                 .bind("albumId", track.getAlbumId())
@@ -81,12 +90,161 @@ public class TrackDao {
                 .bind("bitrate", track.getBitrate())
                 .bind("vbr", track.isVbr())
                 .bind("format", track.getFormat())
+                .bind("fileModifiedDate", track.getFileModifiedDate())
+                .bind("fileSize", track.getFileSize())
                 .bind("createDate", track.getCreateDate())
+                .bind("updateDate", new Date())
                 .execute();
 
         return track;
     }
 
+    /**
+     * Creates new tracks in a single batch.
+     *
+     * @param trackList Tracks to create
+     * @param scanGeneration Scan generation
+     */
+    public void createAll(List<Track> trackList, int scanGeneration) {
+        if (trackList.isEmpty()) {
+            return;
+        }
+        final Handle handle = ThreadLocalContext.get().getHandle();
+        PreparedBatch batch = handle.prepareBatch("insert into " +
+                "  T_TRACK(TRK_ID_C, TRK_IDALBUM_C, TRK_IDARTIST_C, TRK_FILENAME_C, TRK_TITLE_C, TRK_YEAR_N, TRK_GENRE_C, TRK_LENGTH_N, TRK_BITRATE_N, TRK_VBR_B, TRK_FORMAT_C, TRK_FILEMODIFIEDDATE_D, TRK_FILESIZE_N, TRK_SCANGENERATION_N, TRK_CREATEDATE_D, TRK_UPDATEDATE_D)" +
+                "  values(:id, :albumId, :artistId, :fileName, :title, :year, :genre, :length, :bitrate, :vbr, :format, :fileModifiedDate, :fileSize, :scanGeneration, :createDate, :createDate)");
+        Date now = new Date();
+        for (Track track : trackList) {
+            track.setId(UuidUtil.newId());
+            track.setCreateDate(now);
+            batch.add()
+                    .bind("id", track.getId())
+                    .bind("albumId", track.getAlbumId())
+                    .bind("artistId", track.getArtistId())
+                    .bind("fileName", track.getFileName())
+                    .bind("title", track.getTitle())
+                    .bind("year", track.getYear())
+                    .bind("genre", track.getGenre())
+                    .bind("length", track.getLength())
+                    .bind("bitrate", track.getBitrate())
+                    .bind("vbr", track.isVbr())
+                    .bind("format", track.getFormat())
+                    .bind("fileModifiedDate", track.getFileModifiedDate())
+                    .bind("fileSize", track.getFileSize())
+                    .bind("scanGeneration", scanGeneration)
+                    .bind("createDate", track.getCreateDate());
+        }
+        batch.execute();
+    }
+
+    /**
+     * Updates tracks in a single batch.
+     *
+     * @param trackList Tracks to update
+     * @param scanGeneration Scan generation
+     */
+    public void updateAll(List<Track> trackList, int scanGeneration) {
+        if (trackList.isEmpty()) {
+            return;
+        }
+        final Handle handle = ThreadLocalContext.get().getHandle();
+        PreparedBatch batch = handle.prepareBatch("update T_TRACK t set " +
+                " TRK_IDALBUM_C = :albumId, " +
+                " TRK_IDARTIST_C = :artistId, " +
+                " TRK_FILENAME_C = :fileName, " +
+                " TRK_TITLE_C = :title, " +
+                " TRK_YEAR_N = :year, " +
+                " TRK_GENRE_C = :genre, " +
+                " TRK_LENGTH_N = :length, " +
+                " TRK_BITRATE_N = :bitrate, " +
+                " TRK_VBR_B = :vbr, " +
+                " TRK_FORMAT_C = :format, " +
+                " TRK_FILEMODIFIEDDATE_D = :fileModifiedDate, " +
+                " TRK_FILESIZE_N = :fileSize, " +
+                " TRK_SCANGENERATION_N = :scanGeneration, " +
+                " TRK_CREATEDATE_D = :createDate, " +
+                " TRK_UPDATEDATE_D = :updateDate " +
+                " where t.TRK_ID_C = :id and t.TRK_DELETEDATE_D is null");
+        Date now = new Date();
+        for (Track track : trackList) {
+            batch.add()
+                    .bind("id", track.getId())
+                    .bind("albumId", track.getAlbumId())
+                    .bind("artistId", track.getArtistId())
+                    .bind("fileName", track.getFileName())
+                    .bind("title", track.getTitle())
+                    .bind("year", track.getYear())
+                    .bind("genre", track.getGenre())
+                    .bind("length", track.getLength())
+                    .bind("bitrate", track.getBitrate())
+                    .bind("vbr", track.isVbr())
+                    .bind("format", track.getFormat())
+                    .bind("fileModifiedDate", track.getFileModifiedDate())
+                    .bind("fileSize", track.getFileSize())
+                    .bind("scanGeneration", scanGeneration)
+                    .bind("createDate", track.getCreateDate())
+                    .bind("updateDate", now);
+        }
+        batch.execute();
+    }
+
+    /**
+     * Gets the active tracks of a directory by their file names.
+     *
+     * @param directoryId Directory ID
+     * @param fileNameList Track file names
+     * @return Tracks indexed by file name
+     */
+    public Map<String, Track> getActiveByDirectoryAndFilenames(String directoryId, List<String> fileNameList) {
+        final Handle handle = ThreadLocalContext.get().getHandle();
+        Map<String, Track> trackMap = new HashMap<String, Track>();
+        for (List<String> fileNameSubList : Lists.partition(fileNameList, 500)) {
+            List<String> paramList = new ArrayList<String>();
+            for (int i = 0; i < fileNameSubList.size(); i++) {
+                paramList.add(":fileName" + i);
+            }
+            Query<Map<String, Object>> query = handle.createQuery("select " + new TrackMapper().getJoinedColumns("t") +
+                    "  from T_TRACK t, T_ALBUM a" +
+                    "  where t.TRK_FILENAME_C in (" + Joiner.on(", ").join(paramList) + ") and t.TRK_DELETEDATE_D is null " +
+                    "  and a.ALB_ID_C = t.TRK_IDALBUM_C and a.ALB_IDDIRECTORY_C = :directoryId and a.ALB_DELETEDATE_D is null")
+                    .bind("directoryId", directoryId);
+            for (int i = 0; i < fileNameSubList.size(); i++) {
+                query.bind("fileName" + i, fileNameSubList.get(i));
+            }
+            for (Track track : query.mapTo(Track.class).list()) {
+                trackMap.put(track.getFileName(), track);
+            }
+        }
+        return trackMap;
+    }
+
+    /**
+     * Gets active tracks by their IDs.
+     *
+     * @param idList Track IDs
+     * @return Tracks indexed by ID
+     */
+    public Map<String, Track> getActiveByIds(List<String> idList) {
+        final Handle handle = ThreadLocalContext.get().getHandle();
+        Map<String, Track> trackMap = new HashMap<String, Track>();
+        for (List<String> idSubList : Lists.partition(idList, 500)) {
+            List<String> paramList = new ArrayList<String>();
+            for (int i = 0; i < idSubList.size(); i++) {
+                paramList.add(":id" + i);
+            }
+            Query<Map<String, Object>> query = handle.createQuery("select " + new TrackMapper().getJoinedColumns("t") +
+                    "  from T_TRACK t" +
+                    "  where t.TRK_ID_C in (" + Joiner.on(", ").join(paramList) + ") and t.TRK_DELETEDATE_D is null");
+            for (int i = 0; i < idSubList.size(); i++) {
+                query.bind("id" + i, idSubList.get(i));
+            }
+            for (Track track : query.mapTo(Track.class).list()) {
+                trackMap.put(track.getId(), track);
+            }
+        }
+        return trackMap;
+    }
+
     /**
      * Gets an active track by its file name.
      * 
@@ -106,6 +264,35 @@ public class TrackDao {
                 .first();
     }
     
+    /**
+     * Returns the file information of all active tracks from a directory, indexed by file name.
+     * Only the ID, file name, file modification date and file size of the tracks are loaded.
+     *
+     * @param directoryId Directory ID
+     * @return Tracks indexed by file name
+     */
+    public Map<String, Track> getFileInfoByDirectory(String directoryId) {
+        final Handle handle = ThreadLocalContext.get().getHandle();
+        List<Object[]> l = handle.createQuery("select t.TRK_ID_C, t.TRK_FILENAME_C, t.TRK_FILEMODIFIEDDATE_D, t.TRK_FILESIZE_N" +
+                "  from T_TRACK t, T_ALBUM a" +
+                "  where t.TRK_DELETEDATE_D is null " +
+                "  and a.ALB_ID_C = t.TRK_IDALBUM_C and a.ALB_IDDIRECTORY_C = :directoryId and a.ALB_DELETEDATE_D is null")
+                .bind("directoryId", directoryId)
+                .map(ColumnIndexMapper.INSTANCE)
+                .list();
+        Map<String, Track> trackMap = new HashMap<String, Track>();
+        for (Object[] o : l) {
+            int i = 0;
+            Track track = new Track();
+            track.setId((String) o[i++]);
+            track.setFileName((String) o[i++]);
+            track.setFileModifiedDate((Date) o[i++]);
+            track.setFileSize((Long) o[i++]);
+            trackMap.put(track.getFileName(), track);
+        }
+        return trackMap;
+    }
+
     /**
      * Gets an active track by its trackname.
      *
@@ -113,6 +300,9 @@ public class TrackDao {
      * @return Track
      */
     public Track getActiveById(String id) {
+        if (!UuidUtil.isUuid(id)) {
+            return null;
+        }
         final Handle handle = ThreadLocalContext.get().getHandle();
         return handle.createQuery("select " + new TrackMapper().getJoinedColumns("t") +
                 "  from T_TRACK t " +
@@ -129,7 +319,22 @@ public class TrackDao {
      * @param paginatedList Paginated list (populated by side effects)
      */
     public void findByCriteria(TrackCriteria criteria, PaginatedList<TrackDto> paginatedList) {
-        QueryParam queryParam = getQueryParam(criteria);
+        findByCriteria(criteria, paginatedList, false);
+    }
+
+    /**
+     * Searches tracks by criteria.
+     * With keyset pagination, the total is counted on the whole result, not from the last track of the previous page.
+     *
+     * @param criteria Search criteria
+     * @param paginatedList Paginated list (populated by side effects)
+     * @param doCount Count the total number of tracks
+     */
+    public void findByCriteria(TrackCriteria criteria, PaginatedList<TrackDto> paginatedList, boolean doCount) {
+        if (doCount) {
+            PaginatedLists.executeCountQuery(paginatedList, getQueryParam(criteria, false));
+        }
+        QueryParam queryParam = getQueryParam(criteria, true);
         List<Object[]> l = PaginatedLists.executePaginatedQuery(paginatedList, queryParam, false);
         List<TrackDto> trackDtoList = assembleResultList(l);
         paginatedList.setResultList(trackDtoList);
@@ -142,7 +347,7 @@ public class TrackDao {
      * @return List of tracks
      */
     public List<TrackDto> findByCriteria(TrackCriteria criteria) {
-        QueryParam queryParam = getQueryParam(criteria);
+        QueryParam queryParam = getQueryParam(criteria, true);
         Query<Map<String, Object>> q = QueryUtil.getNativeQuery(queryParam);
         List<Object[]> l = q.map(ColumnIndexMapper.INSTANCE).list();
         return assembleResultList(l);
@@ -152,9 +357,10 @@ public class TrackDao {
      * Creates the query parameters from the criteria.
      *
      * @param criteria Search criteria
+     * @param seek Seek past the last track of the previous page (keyset pagination)
      * @return Query parameters
      */
-    private QueryParam getQueryParam(TrackCriteria criteria) {
+    private QueryParam getQueryParam(TrackCriteria criteria, boolean seek) {
         Map<String, Object> parameterMap = new HashMap<String, Object>();
 
         StringBuilder sb = new StringBuilder("select t.TRK_ID_C, t.TRK_FILENAME_C, t.TRK_TITLE_C, t.TRK_YEAR_N, t.TRK_GENRE_C, t.TRK_LENGTH_N, t.TRK_BITRATE_N, t.TRK_VBR_B, t.TRK_FORMAT_C,");
@@ -177,10 +383,22 @@ public class TrackDao {
 
         // Adds search criteria
         List<String> criteriaList = new ArrayList<String>();
+        if (criteria.getIdList() != null) {
+            List<String> idParamList = new ArrayList<String>();
+            for (int i = 0; i < criteria.getIdList().size(); i++) {
+                idParamList.add(":id" + i);
+                parameterMap.put("id" + i, criteria.getIdList().get(i));
+            }
+            criteriaList.add(idParamList.isEmpty() ? "1 = 0" : "t.TRK_ID_C in (" + Joiner.on(", ").join(idParamList) + ")");
+        }
         if (criteria.getAlbumId() != null) {
             criteriaList.add("t.TRK_IDALBUM_C = :albumId");
             parameterMap.put("albumId", criteria.getAlbumId());
         }
+        if (criteria.getDirectoryId() != null) {
+            criteriaList.add("alb.ALB_IDDIRECTORY_C = :directoryId");
+            parameterMap.put("directoryId", criteria.getDirectoryId());
+        }
         if (criteria.getArtistName() != null) {
             criteriaList.add("a.ART_NAME_C = :artistName");
             parameterMap.put("artistName", criteria.getArtistName());
@@ -201,9 +419,29 @@ public class TrackDao {
             criteriaList.add("lower(t.TRK_TITLE_C) like lower(:titleLike)");
             parameterMap.put("titleLike", "%" + criteria.getTitleLike() + "%");
         }
+        if (criteria.getUpdateDateMin() != null) {
+            criteriaList.add("t.TRK_UPDATEDATE_D >= :updateDateMin");
+            parameterMap.put("updateDateMin", criteria.getUpdateDateMin());
+        }
         if (criteria.getUserId() != null) {
             parameterMap.put("userId", criteria.getUserId());
         }
+        if (seek && criteria.getAfterTrackId() != null && criteria.getPlaylistId() == null) {
+            // Keyset pagination: seek past the last track of the previous page in the (title, ID) order
+            String afterTitle = criteria.getAfterTitle();
+            if (afterTitle == null) {
+                Track afterTrack = getActiveById(criteria.getAfterTrackId());
+                afterTitle = afterTrack == null ? null : afterTrack.getTitle();
+            }
+            if (afterTitle == null) {
+                // The last track of the previous page is gone, its position is lost
+                criteriaList.add("1 = 0");
+            } else {
+                criteriaList.add("(t.TRK_TITLE_C > :afterTitle or (t.TRK_TITLE_C = :afterTitle and t.TRK_ID_C > :afterTrackId))");
+                parameterMap.put("afterTitle", afterTitle);
+                parameterMap.put("afterTrackId", criteria.getAfterTrackId());
+            }
+        }
         criteriaList.add("t.TRK_DELETEDATE_D is null");
 
         if (!criteriaList.isEmpty()) {
@@ -214,7 +452,7 @@ public class TrackDao {
         if (criteria.getPlaylistId() != null) {
             sb.append(" order by pt.PLT_ORDER_N asc");
         } else {
-            sb.append(" order by t.TRK_TITLE_C asc"); //TODO add order column
+            sb.append(" order by t.TRK_TITLE_C asc, t.TRK_ID_C asc"); //TODO add order column
         }
 
         QueryParam queryParam = new QueryParam(sb.toString(), parameterMap);
@@ -268,13 +506,98 @@ public class TrackDao {
     public void deleteFromAlbum(String albumId) {
         final Handle handle = ThreadLocalContext.get().getHandle();
         handle.createStatement("update T_TRACK t" +
-                "  set t.TRK_DELETEDATE_D = :deleteDate" +
-                "  where WHERE t.TRK_DELETEDATE_D is null and t.TRK_IDALBUM_C = :albumId ")
+                "  set TRK_DELETEDATE_D = :deleteDate" +
+                "  where t.TRK_DELETEDATE_D is null and t.TRK_IDALBUM_C = :albumId ")
                 .bind("albumId", albumId)
                 .bind("deleteDate", new Date())
                 .execute();
     }
 
+    /**
+     * Deletes the tracks of a file, or of all files under a directory.
+     *
+     * @param directoryId Root directory ID
+     * @param fileName File or directory name
+     */
+    public void deleteByDirectoryAndFileName(String directoryId, String fileName) {
+        final Handle handle = ThreadLocalContext.get().getHandle();
+        String prefix = fileName.endsWith(File.separator) ? fileName : fileName + File.separator;
+        handle.createStatement("update T_TRACK t" +
+                "  set TRK_DELETEDATE_D = :deleteDate" +
+                "  where t.TRK_DELETEDATE_D is null" +
+                "  and (t.TRK_FILENAME_C = :fileName or left(t.TRK_FILENAME_C, :prefixLength) = :prefix)" +
+                "  and t.TRK_IDALBUM_C in (select a.ALB_ID_C from T_ALBUM a where a.ALB_IDDIRECTORY_C = :directoryId)")
+                .bind("fileName", fileName)
+                .bind("prefix", prefix)
+                .bind("prefixLength", prefix.length())
+                .bind("directoryId", directoryId)
+                .bind("deleteDate", new Date())
+                .execute();
+    }
+
+    /**
+     * Returns the last scan generation of a directory.
+     *
+     * @param directoryId Directory ID
+     * @return Last scan generation, 0 if the directory was never scanned
+     */
+    public int getLastScanGeneration(String directoryId) {
+        final Handle handle = ThreadLocalContext.get().getHandle();
+        Integer scanGeneration = handle.createQuery("select max(t.TRK_SCANGENERATION_N)" +
+                "  from T_TRACK t, T_ALBUM a" +
+                "  where a.ALB_ID_C = t.TRK_IDALBUM_C and a.ALB_IDDIRECTORY_C = :directoryId")
+                .bind("directoryId", directoryId)
+                .mapTo(Integer.class)
+                .first();
+        return scanGeneration != null ? scanGeneration : 0;
+    }
+
+    /**
+     * Marks unchanged tracks as seen during a scan, in a single batch.
+     *
+     * @param idList Track IDs
+     * @param scanGeneration Scan generation
+     */
+    public void updateScanGeneration(List<String> idList, int scanGeneration) {
+        if (idList.isEmpty()) {
+            return;
+        }
+        final Handle handle = ThreadLocalContext.get().getHandle();
+        PreparedBatch batch = handle.prepareBatch("update T_TRACK t" +
+                "  set TRK_SCANGENERATION_N = :scanGeneration" +
+                "  where t.TRK_ID_C = :id");
+        for (String id : idList) {
+            batch.add()
+                    .bind("id", id)
+                    .bind("scanGeneration", scanGeneration);
+        }
+        batch.execute();
+    }
+
+    /**
+     * Deletes the tracks of a directory that were not seen during a scan.
+     * The tracks created after the start of the scan (e.g. by the collection watcher) are kept.
+     *
+     * @param directoryId Directory ID
+     * @param scanGeneration Scan generation
+     * @param scanStartDate Start date of the scan
+     * @return Number of deleted tracks
+     */
+    public int deleteByDirectoryAndPreviousScanGeneration(String directoryId, int scanGeneration, Date scanStartDate) {
+        final Handle handle = ThreadLocalContext.get().getHandle();
+        return handle.createStatement("update T_TRACK t" +
+                "  set TRK_DELETEDATE_D = :deleteDate" +
+                "  where t.TRK_DELETEDATE_D is null" +
+                "  and (t.TRK_SCANGENERATION_N is null or t.TRK_SCANGENERATION_N <> :scanGeneration)" +
+                "  and t.TRK_CREATEDATE_D < :scanStartDate" +
+                "  and t.TRK_IDALBUM_C in (select a.ALB_ID_C from T_ALBUM a where a.ALB_IDDIRECTORY_C = :directoryId)")
+                .bind("scanGeneration", scanGeneration)
+                .bind("scanStartDate", scanStartDate)
+                .bind("directoryId", directoryId)
+                .bind("deleteDate", new Date())
+                .execute();
+    }
+
     /**
      * Deletes a track.
      *
@@ -283,8 +606,8 @@ public class TrackDao {
     public void delete(String id) {
         final Handle handle = ThreadLocalContext.get().getHandle();
         handle.createStatement("update T_TRACK t" +
-                "  set t.TRK_DELETEDATE_D = :deleteDate" +
-                "  where WHERE t.TRK_DELETEDATE_D is null and t.TRK_ID_C = :id ")
+                "  set TRK_DELETEDATE_D = :deleteDate" +
+                "  where t.TRK_DELETEDATE_D is null and t.TRK_ID_C = :id ")
                 .bind("id", id)
                 .bind("deleteDate", new Date())
                 .execute();
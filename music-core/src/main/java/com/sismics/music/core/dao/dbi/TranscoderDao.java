@@ -53,11 +53,11 @@ public class TranscoderDao {
     public Transcoder update(Transcoder transcoder) {
         final Handle handle = ThreadLocalContext.get().getHandle();
         handle.createStatement("update T_TRANSCODER t set " +
-                " t.TRN_NAME_C = :name," +
-                " t.TRN_SOURCE_C = :source, " +
-                " t.TRN_DESTINATION_C = :destination, " +
-                " t.TRN_STEP1_C = :step1, " +
-                " t.TRN_STEP2_C = :step2" +
+                " TRN_NAME_C = :name," +
+                " TRN_SOURCE_C = :source, " +
+                " TRN_DESTINATION_C = :destination, " +
+                " TRN_STEP1_C = :step1, " +
+                " TRN_STEP2_C = :step2" +
                 " where t.TRN_ID_C = :id and t.TRN_DELETEDATE_D is null")
                 .bind("id", transcoder.getId())
                 .bind("name", transcoder.getName())
@@ -94,7 +94,7 @@ public class TranscoderDao {
     public void delete(String id) {
         final Handle handle = ThreadLocalContext.get().getHandle();
         handle.createStatement("update T_TRANSCODER t" +
-                "  set t.TRN_DELETEDATE_D = :deleteDate" +
+                "  set TRN_DELETEDATE_D = :deleteDate" +
                 "  where t.TRN_ID_C = :id and t.TRN_DELETEDATE_D is null")
                 .bind("id", id)
                 .bind("deleteDate", new Date())
@@ -111,7 +111,7 @@ public class TranscoderDao {
         Query<Transcoder> q = handle.createQuery("select " + new TranscoderMapper().getJoinedColumns("t")+
                 "  from T_TRANSCODER t " +
                 "  where t.TRN_DELETEDATE_D is null" +
-                "  order by t.TRN_NAME_C is null")
+                "  order by t.TRN_NAME_C")
                 .mapTo(Transcoder.class);
         return q.list();
     }
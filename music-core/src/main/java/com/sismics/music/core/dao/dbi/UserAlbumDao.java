@@ -2,11 +2,11 @@ package com.sismics.music.core.dao.dbi;
 
 import com.sismics.music.core.dao.dbi.mapper.UserAlbumMapper;
 import com.sismics.music.core.model.dbi.UserAlbum;
+import com.sismics.util.UuidUtil;
 import com.sismics.util.context.ThreadLocalContext;
 import org.skife.jdbi.v2.Handle;
 
 import java.util.Date;
-import java.util.UUID;
 
 /**
  * User / album DAO.
@@ -22,7 +22,7 @@ public class UserAlbumDao {
      */
     public String create(UserAlbum userAlbum) {
         // Init user / album data
-        userAlbum.setId(UUID.randomUUID().toString());
+        userAlbum.setId(UuidUtil.newId());
         userAlbum.setCreateDate(new Date());
         userAlbum.setScore(0);
 
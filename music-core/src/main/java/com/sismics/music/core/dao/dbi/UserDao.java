@@ -89,15 +89,17 @@ public class UserDao {
     public User update(User user) {
         final Handle handle = ThreadLocalContext.get().getHandle();
         handle.createStatement("update T_USER u set " +
-                " u.USE_IDLOCALE_C = :localeId," +
-                " u.USE_EMAIL_C = :email, " +
-                " u.USE_THEME_C = :theme, " +
-                " u.USE_FIRSTCONNECTION_B = :firstConnection " +
+                " USE_IDLOCALE_C = :localeId," +
+                " USE_EMAIL_C = :email, " +
+                " USE_THEME_C = :theme, " +
+                " USE_MAXBITRATE_N = :maxBitrate, " +
+                " USE_FIRSTCONNECTION_B = :firstConnection " +
                 " where u.USE_ID_C = :id and u.USE_DELETEDATE_D is null")
                 .bind("id", user.getId())
                 .bind("localeId", user.getLocaleId())
                 .bind("email", user.getEmail())
                 .bind("theme", user.getTheme())
+                .bind("maxBitrate", user.getMaxBitrate())
                 .bind("firstConnection", user.isFirstConnection())
                 .execute();
 
@@ -113,7 +115,7 @@ public class UserDao {
     public User updatePassword(User user) {
         final Handle handle = ThreadLocalContext.get().getHandle();
         handle.createStatement("update T_USER u set " +
-                " u.USE_PASSWORD_C = :password " +
+                " USE_PASSWORD_C = :password " +
                 " where u.USE_ID_C = :id and u.USE_DELETEDATE_D is null")
                 .bind("id", user.getId())
                 .bind("password", hashPassword(user.getPassword()))
@@ -131,7 +133,7 @@ public class UserDao {
     public User updateLastFmSessionToken(User user) {
         final Handle handle = ThreadLocalContext.get().getHandle();
         handle.createStatement("update T_USER u set " +
-                " u.USE_LASTFMSESSIONTOKEN_C = :lastFmSessionToken " +
+                " USE_LASTFMSESSIONTOKEN_C = :lastFmSessionToken " +
                 " where u.USE_ID_C = :id and u.USE_DELETEDATE_D is null")
                 .bind("id", user.getId())
                 .bind("lastFmSessionToken", user.getLastFmSessionToken())
@@ -196,7 +198,7 @@ public class UserDao {
     public void delete(String username) {
         final Handle handle = ThreadLocalContext.get().getHandle();
         handle.createStatement("update T_USER u" +
-                "  set u.USE_DELETEDATE_D = :deleteDate" +
+                "  set USE_DELETEDATE_D = :deleteDate" +
                 "  where u.USE_USERNAME_C = :username and u.USE_DELETEDATE_D is null")
                 .bind("username", username)
                 .bind("deleteDate", new Date())
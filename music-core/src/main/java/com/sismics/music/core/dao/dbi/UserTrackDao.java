@@ -2,11 +2,11 @@ package com.sismics.music.core.dao.dbi;
 
 import com.sismics.music.core.dao.dbi.mapper.UserTrackMapper;
 import com.sismics.music.core.model.dbi.UserTrack;
+import com.sismics.util.UuidUtil;
 import com.sismics.util.context.ThreadLocalContext;
 import org.skife.jdbi.v2.Handle;
 
 import java.util.Date;
-import java.util.UUID;
 
 /**
  * User / track DAO.
@@ -22,7 +22,7 @@ public class UserTrackDao {
      */
     public String create(UserTrack userTrack) {
         // Init user / track data
-        userTrack.setId(UUID.randomUUID().toString());
+        userTrack.setId(UuidUtil.newId());
         userTrack.setCreateDate(new Date());
         userTrack.setPlayCount(0);
 
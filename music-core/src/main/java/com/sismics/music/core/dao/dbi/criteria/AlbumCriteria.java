@@ -1,5 +1,8 @@
 package com.sismics.music.core.dao.dbi.criteria;
 
+import java.util.Date;
+import java.util.List;
+
 /**
  * Album criteria.
  *
@@ -11,6 +14,11 @@ public class AlbumCriteria {
      */
     private String id;
 
+    /**
+     * List of IDs.
+     */
+    private List<String> idList;
+
     /**
      * Directory ID.
      */
@@ -26,6 +34,11 @@ public class AlbumCriteria {
      */
     private String artistId;
 
+    /**
+     * Minimum update date.
+     */
+    private Date updateDateMin;
+
     /**
      * Getter of id.
      *
@@ -103,4 +116,44 @@ public class AlbumCriteria {
         this.nameLike = nameLike;
         return this;
     }
+
+    /**
+     * Getter of idList.
+     *
+     * @return idList
+     */
+    public List<String> getIdList() {
+        return this.idList;
+    }
+
+    /**
+     * Setter of idList.
+     *
+     * @param idList idList
+     * @return Criteria
+     */
+    public AlbumCriteria setIdList(List<String> idList) {
+        this.idList = idList;
+        return this;
+    }
+
+    /**
+     * Getter of updateDateMin.
+     *
+     * @return updateDateMin
+     */
+    public Date getUpdateDateMin() {
+        return this.updateDateMin;
+    }
+
+    /**
+     * Setter of updateDateMin.
+     *
+     * @param updateDateMin updateDateMin
+     * @return Criteria
+     */
+    public AlbumCriteria setUpdateDateMin(Date updateDateMin) {
+        this.updateDateMin = updateDateMin;
+        return this;
+    }
 }
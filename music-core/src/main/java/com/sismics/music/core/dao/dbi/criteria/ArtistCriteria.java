@@ -1,5 +1,8 @@
 package com.sismics.music.core.dao.dbi.criteria;
 
+import java.util.Date;
+import java.util.List;
+
 /**
  * Artist criteria.
  *
@@ -10,12 +13,22 @@ public class ArtistCriteria {
      * Artist ID.
      */
     private String id;
+
+    /**
+     * List of IDs.
+     */
+    private List<String> idList;
     
     /**
      * Artist name (like).
      */
     private String nameLike;
 
+    /**
+     * Minimum creation date.
+     */
+    private Date createDateMin;
+
     /**
      * Getter of id.
      *
@@ -55,4 +68,44 @@ public class ArtistCriteria {
         this.id = id;
         return this;
     }
+
+    /**
+     * Getter of idList.
+     *
+     * @return idList
+     */
+    public List<String> getIdList() {
+        return this.idList;
+    }
+
+    /**
+     * Setter of idList.
+     *
+     * @param idList idList
+     * @return Criteria
+     */
+    public ArtistCriteria setIdList(List<String> idList) {
+        this.idList = idList;
+        return this;
+    }
+
+    /**
+     * Getter of createDateMin.
+     *
+     * @return createDateMin
+     */
+    public Date getCreateDateMin() {
+        return this.createDateMin;
+    }
+
+    /**
+     * Setter of createDateMin.
+     *
+     * @param createDateMin createDateMin
+     * @return Criteria
+     */
+    public ArtistCriteria setCreateDateMin(Date createDateMin) {
+        this.createDateMin = createDateMin;
+        return this;
+    }
 }
@@ -1,5 +1,8 @@
 package com.sismics.music.core.dao.dbi.criteria;
 
+import java.util.Date;
+import java.util.List;
+
 /**
  * Track criteria.
  *
@@ -11,6 +14,16 @@ public class TrackCriteria {
      */
     private String albumId;
 
+    /**
+     * List of IDs.
+     */
+    private List<String> idList;
+
+    /**
+     * Directory ID.
+     */
+    private String directoryId;
+
     /**
      * Artist name.
      */
@@ -36,6 +49,21 @@ public class TrackCriteria {
      */
     private String titleLike;
 
+    /**
+     * Keyset pagination: only the tracks ordered after this track are returned.
+     */
+    private String afterTrackId;
+
+    /**
+     * Keyset pagination: title of the track after which the tracks are returned (read from the track if null).
+     */
+    private String afterTitle;
+
+    /**
+     * Minimum update date.
+     */
+    private Date updateDateMin;
+
     /**
      * Getter of albumId.
      *
@@ -56,6 +84,26 @@ public class TrackCriteria {
         return this;
     }
     
+    /**
+     * Getter of directoryId.
+     *
+     * @return directoryId
+     */
+    public String getDirectoryId() {
+        return this.directoryId;
+    }
+
+    /**
+     * Setter of directoryId.
+     *
+     * @param directoryId directoryId
+     * @return Criteria
+     */
+    public TrackCriteria setDirectoryId(String directoryId) {
+        this.directoryId = directoryId;
+        return this;
+    }
+
     /**
      * Getter of artistName.
      *
@@ -156,4 +204,84 @@ public class TrackCriteria {
         this.titleLike = titleLike;
         return this;
     }
+
+    /**
+     * Getter of afterTrackId.
+     *
+     * @return afterTrackId
+     */
+    public String getAfterTrackId() {
+        return this.afterTrackId;
+    }
+
+    /**
+     * Setter of afterTrackId.
+     *
+     * @param afterTrackId afterTrackId
+     * @return Criteria
+     */
+    public TrackCriteria setAfterTrackId(String afterTrackId) {
+        this.afterTrackId = afterTrackId;
+        return this;
+    }
+
+    /**
+     * Getter of afterTitle.
+     *
+     * @return afterTitle
+     */
+    public String getAfterTitle() {
+        return this.afterTitle;
+    }
+
+    /**
+     * Setter of afterTitle.
+     *
+     * @param afterTitle afterTitle
+     * @return Criteria
+     */
+    public TrackCriteria setAfterTitle(String afterTitle) {
+        this.afterTitle = afterTitle;
+        return this;
+    }
+
+    /**
+     * Getter of idList.
+     *
+     * @return idList
+     */
+    public List<String> getIdList() {
+        return this.idList;
+    }
+
+    /**
+     * Setter of idList.
+     *
+     * @param idList idList
+     * @return Criteria
+     */
+    public TrackCriteria setIdList(List<String> idList) {
+        this.idList = idList;
+        return this;
+    }
+
+    /**
+     * Getter of updateDateMin.
+     *
+     * @return updateDateMin
+     */
+    public Date getUpdateDateMin() {
+        return this.updateDateMin;
+    }
+
+    /**
+     * Setter of updateDateMin.
+     *
+     * @param updateDateMin updateDateMin
+     * @return Criteria
+     */
+    public TrackCriteria setUpdateDateMin(Date updateDateMin) {
+        this.updateDateMin = updateDateMin;
+        return this;
+    }
 }
@@ -26,6 +26,8 @@ public class TrackMapper extends BaseResultSetMapper<Track> {
                 "TRK_BITRATE_N",
                 "TRK_VBR_B",
                 "TRK_FORMAT_C",
+                "TRK_FILEMODIFIEDDATE_D",
+                "TRK_FILESIZE_N",
                 "TRK_CREATEDATE_D",
                 "TRK_DELETEDATE_D"};
     }
@@ -46,6 +48,8 @@ public class TrackMapper extends BaseResultSetMapper<Track> {
                 r.getInt(columns[column++]),
                 r.getBoolean(columns[column++]),
                 r.getString(columns[column++]),
+                r.getTimestamp(columns[column++]),
+                (Long) r.getObject(columns[column++]),
                 r.getDate(columns[column++]),
                 r.getDate(columns[column++]));
     }
@@ -0,0 +1,99 @@
+package com.sismics.music.core.event.async;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.common.base.Objects;
+import com.sismics.music.core.model.dbi.Directory;
+
+/**
+ * Files of a directory changed on the disk event.
+ *
+ * @author jtremeaux
+ */
+public class DirectoryChangedAsyncEvent {
+    /**
+     * Root directory.
+     */
+    private Directory directory;
+
+    /**
+     * True if events were lost, and the whole directory must be scanned.
+     */
+    private boolean rescan;
+
+    /**
+     * Files created or modified.
+     */
+    private List<Path> indexedFileList = new ArrayList<Path>();
+
+    /**
+     * Files deleted.
+     */
+    private List<Path> removedFileList = new ArrayList<Path>();
+
+    /**
+     * Getter of directory.
+     *
+     * @return directory
+     */
+    public Directory getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Setter of directory.
+     *
+     * @param directory directory
+     */
+    public void setDirectory(Directory directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Getter of rescan.
+     *
+     * @return rescan
+     */
+    public boolean isRescan() {
+        return rescan;
+    }
+
+    /**
+     * Setter of rescan.
+     *
+     * @param rescan rescan
+     */
+    public void setRescan(boolean rescan) {
+        this.rescan = rescan;
+    }
+
+    /**
+     * Getter of indexedFileList.
+     *
+     * @return indexedFileList
+     */
+    public List<Path> getIndexedFileList() {
+        return indexedFileList;
+    }
+
+    /**
+     * Getter of removedFileList.
+     *
+     * @return removedFileList
+     */
+    public List<Path> getRemovedFileList() {
+        return removedFileList;
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("directory", directory)
+                .add("rescan", rescan)
+                .add("indexedFileCount", indexedFileList.size())
+                .add("removedFileCount", removedFileList.size())
+                .toString();
+    }
+}
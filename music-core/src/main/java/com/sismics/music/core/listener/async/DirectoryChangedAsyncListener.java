@@ -0,0 +1,64 @@
+package com.sismics.music.core.listener.async;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.eventbus.Subscribe;
+import com.sismics.music.core.event.async.DirectoryChangedAsyncEvent;
+import com.sismics.music.core.model.context.AppContext;
+import com.sismics.music.core.model.dbi.Directory;
+import com.sismics.music.core.service.collection.CollectionService;
+import com.sismics.music.core.util.TransactionUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.text.MessageFormat;
+
+/**
+ * Files of a directory changed on the disk listener.
+ * Runs on the collection event bus, so it is serialized with the scans.
+ *
+ * @author jtremeaux
+ */
+public class DirectoryChangedAsyncListener {
+    /**
+     * Logger.
+     */
+    private static final Logger log = LoggerFactory.getLogger(DirectoryChangedAsyncListener.class);
+
+    /**
+     * Process the event.
+     *
+     * @param directoryChangedAsyncEvent Directory changed event
+     * @throws Exception
+     */
+    @Subscribe
+    public void onDirectoryChanged(final DirectoryChangedAsyncEvent directoryChangedAsyncEvent) throws Exception {
+        if (log.isInfoEnabled()) {
+            log.info("Directory changed event: " + directoryChangedAsyncEvent.toString());
+        }
+        Stopwatch stopwatch = Stopwatch.createStarted();
+
+        TransactionUtil.handle(new Runnable() {
+            @Override
+            public void run() {
+                CollectionService collectionService = AppContext.getInstance().getCollectionService();
+                Directory directory = directoryChangedAsyncEvent.getDirectory();
+                if (directoryChangedAsyncEvent.isRescan()) {
+                    // Events were lost, reindex the changed files of the whole directory
+                    collectionService.addDirectoryToIndex(directory);
+                    return;
+                }
+                for (Path file : directoryChangedAsyncEvent.getIndexedFileList()) {
+                    collectionService.indexFile(directory, file);
+                }
+                for (Path file : directoryChangedAsyncEvent.getRemovedFileList()) {
+                    collectionService.removeFileFromIndex(directory, file);
+                }
+            }
+        });
+
+        if (log.isInfoEnabled()) {
+            log.info(MessageFormat.format("Collection updated in {0}", stopwatch));
+        }
+    }
+}
@@ -50,6 +50,9 @@ public class DirectoryCreatedAsyncListener {
             }
         });
 
+        // Watch the new directory for changes
+        AppContext.getInstance().getCollectionWatchService().watchDirectory(directory);
+
         if (log.isInfoEnabled()) {
             log.info(MessageFormat.format("Collection updated completed in {0}", stopwatch));
         }
@@ -38,6 +38,9 @@ public class DirectoryDeletedAsyncListener {
 
         final Directory directory = directoryDeletedAsyncEvent.getDirectory();
 
+        // Stop watching the directory
+        AppContext.getInstance().getCollectionWatchService().unwatchDirectory(directory);
+
         TransactionUtil.handle(new Runnable() {
             @Override
             public void run() {
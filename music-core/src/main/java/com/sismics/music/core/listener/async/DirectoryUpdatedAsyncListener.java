@@ -0,0 +1,52 @@
+package com.sismics.music.core.listener.async;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.eventbus.Subscribe;
+import com.sismics.music.core.event.async.DirectoryUpdatedAsyncEvent;
+import com.sismics.music.core.model.context.AppContext;
+import com.sismics.music.core.model.dbi.Directory;
+import com.sismics.music.core.service.collection.CollectionWatchService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.text.MessageFormat;
+
+/**
+ * Directory updated listener.
+ * Runs on the collection event bus, so it is serialized with the scans.
+ *
+ * @author jtremeaux
+ */
+public class DirectoryUpdatedAsyncListener {
+    /**
+     * Logger.
+     */
+    private static final Logger log = LoggerFactory.getLogger(DirectoryUpdatedAsyncListener.class);
+
+    /**
+     * Process the event.
+     *
+     * @param directoryUpdatedAsyncEvent Directory updated event
+     * @throws Exception
+     */
+    @Subscribe
+    public void onDirectoryUpdated(final DirectoryUpdatedAsyncEvent directoryUpdatedAsyncEvent) throws Exception {
+        if (log.isInfoEnabled()) {
+            log.info("Directory updated event: " + directoryUpdatedAsyncEvent.toString());
+        }
+        Stopwatch stopwatch = Stopwatch.createStarted();
+
+        Directory directory = directoryUpdatedAsyncEvent.getDirectory();
+
+        // Watch only the active directories, at their new location
+        CollectionWatchService collectionWatchService = AppContext.getInstance().getCollectionWatchService();
+        collectionWatchService.unwatchDirectory(directory);
+        if (directory.getDisableDate() == null) {
+            collectionWatchService.watchDirectory(directory);
+        }
+
+        if (log.isInfoEnabled()) {
+            log.info(MessageFormat.format("Directory watch updated in {0}", stopwatch));
+        }
+    }
+}
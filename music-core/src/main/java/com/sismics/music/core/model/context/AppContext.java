@@ -2,21 +2,31 @@ package com.sismics.music.core.model.context;
 
 import com.google.common.eventbus.AsyncEventBus;
 import com.google.common.eventbus.EventBus;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.sismics.music.core.listener.async.*;
 import com.sismics.music.core.listener.sync.DeadEventListener;
 import com.sismics.music.core.service.albumart.AlbumArtService;
+import com.sismics.music.core.service.authentication.AuthenticationService;
 import com.sismics.music.core.service.collection.CollectionService;
+import com.sismics.music.core.service.collection.CollectionWatchService;
 import com.sismics.music.core.service.lastfm.LastFmService;
 import com.sismics.music.core.service.player.PlayerService;
+import com.sismics.music.core.service.search.SearchService;
 import com.sismics.music.core.service.transcoder.TranscoderService;
 import com.sismics.util.EnvironmentUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Global application context.
@@ -24,6 +34,11 @@ import java.util.concurrent.TimeUnit;
  * @author jtremeaux 
  */
 public class AppContext {
+    /**
+     * Logger.
+     */
+    private static final Logger log = LoggerFactory.getLogger(AppContext.class);
+
     /**
      * Singleton instance.
      */
@@ -49,16 +64,37 @@ public class AppContext {
      */
     private EventBus lastFmEventBus;
 
+    /**
+     * True if this node scans the collection.
+     * With several nodes sharing a database, only one of them must index the collection.
+     */
+    private boolean collectionScanEnabled;
+
     /**
      * Collection service.
      */
     private CollectionService collectionService;
 
+    /**
+     * Collection watch service.
+     */
+    private CollectionWatchService collectionWatchService;
+
+    /**
+     * Search service.
+     */
+    private SearchService searchService;
+
     /**
      * Album art service.
      */
     private AlbumArtService albumArtService;
 
+    /**
+     * Authentication service.
+     */
+    private AuthenticationService authenticationService;
+
     /**
      * Last.fm service.
      */
@@ -78,20 +114,86 @@ public class AppContext {
      * Asynchronous executors.
      */
     private List<ExecutorService> asyncExecutorList;
+
+    /**
+     * Executor of the track streams.
+     * The number of concurrent streams and of streams waiting for a thread are bounded, the others are rejected.
+     */
+    private ThreadPoolExecutor streamExecutor;
+
+    /**
+     * Number of track streams rejected since the startup.
+     */
+    private AtomicLong rejectedStreamCount = new AtomicLong();
     
     /**
      * Private constructor.
      */
     private AppContext() {
+        collectionScanEnabled = Boolean.parseBoolean(System.getProperty("music.collection.scan_enabled", "true"));
         resetEventBus();
 
         collectionService = new CollectionService();
-        collectionService.startAsync();
+        collectionWatchService = new CollectionWatchService();
+        if (collectionScanEnabled) {
+            collectionService.startAsync();
+            if (!EnvironmentUtil.isUnitTest()) {
+                collectionWatchService.startAsync();
+            }
+        } else {
+            log.info("Collection scan disabled on this node");
+        }
+
+        searchService = new SearchService();
+        searchService.startAsync();
 
         albumArtService = new AlbumArtService();
+        authenticationService = new AuthenticationService();
+        authenticationService.startAsync();
         lastFmService = new LastFmService();
         playerService = new PlayerService();
         transcoderService = new TranscoderService();
+
+        int streamThreadCount = Math.max(1, Integer.getInteger("music.stream.threads", 32));
+        int streamQueueSize = Math.max(1, Integer.getInteger("music.stream.queue_size", 64));
+        streamExecutor = new ThreadPoolExecutor(streamThreadCount, streamThreadCount,
+                60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(streamQueueSize),
+                new ThreadFactoryBuilder().setNameFormat("TrackStream-%d").setDaemon(true).build(),
+                new RejectedExecutionHandler() {
+                    @Override
+                    public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+                        rejectedStreamCount.incrementAndGet();
+                        throw new RejectedExecutionException("Too many track streams");
+                    }
+                });
+        streamExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Stops the services and executors.
+     * The track streams in progress are given some time to complete.
+     */
+    public void shutDown() {
+        collectionWatchService.stopAsync();
+        collectionService.stopAsync();
+        searchService.stopAsync();
+        authenticationService.stopAsync();
+
+        streamExecutor.shutdown();
+        transcoderService.shutDown();
+        albumArtService.shutDown();
+        for (ExecutorService executor : asyncExecutorList) {
+            executor.shutdown();
+        }
+        try {
+            if (!streamExecutor.awaitTermination(30, TimeUnit.SECONDS)) {
+                streamExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            streamExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
     }
     
     /**
@@ -105,9 +207,16 @@ public class AppContext {
         
         asyncEventBus = newAsyncEventBus();
         collectionEventBus = newAsyncEventBus();
-        collectionEventBus.register(new DirectoryCreatedAsyncListener());
-        collectionEventBus.register(new DirectoryDeletedAsyncListener());
-        collectionEventBus.register(new CollectionReindexAsyncListener());
+        if (collectionScanEnabled) {
+            collectionEventBus.register(new DirectoryCreatedAsyncListener());
+            collectionEventBus.register(new DirectoryDeletedAsyncListener());
+            collectionEventBus.register(new DirectoryUpdatedAsyncListener());
+            collectionEventBus.register(new DirectoryChangedAsyncListener());
+            collectionEventBus.register(new CollectionReindexAsyncListener());
+        } else {
+            // The directory changes are indexed by the scanning node only
+            collectionEventBus.register(new DeadEventListener());
+        }
 
         lastFmEventBus = newAsyncEventBus();
         lastFmEventBus.register(new PlayStartedAsyncListener());
@@ -153,6 +262,15 @@ public class AppContext {
         return eventBus;
     }
 
+    /**
+     * Getter of collectionScanEnabled.
+     *
+     * @return collectionScanEnabled
+     */
+    public boolean isCollectionScanEnabled() {
+        return collectionScanEnabled;
+    }
+
     /**
      * Getter of collectionService.
      *
@@ -162,6 +280,24 @@ public class AppContext {
         return collectionService;
     }
 
+    /**
+     * Getter of collectionWatchService.
+     *
+     * @return collectionWatchService
+     */
+    public CollectionWatchService getCollectionWatchService() {
+        return collectionWatchService;
+    }
+
+    /**
+     * Getter of searchService.
+     *
+     * @return searchService
+     */
+    public SearchService getSearchService() {
+        return searchService;
+    }
+
     /**
      * Getter of albumArtService.
      *
@@ -180,6 +316,15 @@ public class AppContext {
         return lastFmService;
     }
 
+    /**
+     * Getter of authenticationService.
+     *
+     * @return authenticationService
+     */
+    public AuthenticationService getAuthenticationService() {
+        return authenticationService;
+    }
+
     /**
      * Getter of transcoderService.
      *
@@ -198,6 +343,24 @@ public class AppContext {
         return playerService;
     }
 
+    /**
+     * Getter of streamExecutor.
+     *
+     * @return streamExecutor
+     */
+    public ThreadPoolExecutor getStreamExecutor() {
+        return streamExecutor;
+    }
+
+    /**
+     * Returns the number of track streams rejected since the startup.
+     *
+     * @return Number of rejected streams
+     */
+    public long getRejectedStreamCount() {
+        return rejectedStreamCount.get();
+    }
+
     /**
      * Getter of asyncEventBus.
      *
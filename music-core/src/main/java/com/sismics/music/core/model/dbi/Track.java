@@ -65,6 +65,16 @@ public class Track {
      */
     private String format;
 
+    /**
+     * Last modification date of the media file.
+     */
+    private Date fileModifiedDate;
+
+    /**
+     * Size of the media file (in bytes).
+     */
+    private Long fileSize;
+
     /**
      * Creation date.
      */
@@ -78,7 +88,7 @@ public class Track {
     public Track() {
     }
 
-    public Track(String id, String albumId, String artistId, String fileName, String title, Integer year, String genre, Integer length, Integer bitrate, boolean vbr, String format, Date createDate, Date deleteDate) {
+    public Track(String id, String albumId, String artistId, String fileName, String title, Integer year, String genre, Integer length, Integer bitrate, boolean vbr, String format, Date fileModifiedDate, Long fileSize, Date createDate, Date deleteDate) {
         this.id = id;
         this.albumId = albumId;
         this.artistId = artistId;
@@ -90,6 +100,8 @@ public class Track {
         this.bitrate = bitrate;
         this.vbr = vbr;
         this.format = format;
+        this.fileModifiedDate = fileModifiedDate;
+        this.fileSize = fileSize;
         this.createDate = createDate;
         this.deleteDate = deleteDate;
     }
@@ -292,6 +304,42 @@ public class Track {
         this.format = format;
     }
 
+    /**
+     * Getter of fileModifiedDate.
+     *
+     * @return fileModifiedDate
+     */
+    public Date getFileModifiedDate() {
+        return fileModifiedDate;
+    }
+
+    /**
+     * Setter of fileModifiedDate.
+     *
+     * @param fileModifiedDate fileModifiedDate
+     */
+    public void setFileModifiedDate(Date fileModifiedDate) {
+        this.fileModifiedDate = fileModifiedDate;
+    }
+
+    /**
+     * Getter of fileSize.
+     *
+     * @return fileSize
+     */
+    public Long getFileSize() {
+        return fileSize;
+    }
+
+    /**
+     * Setter of fileSize.
+     *
+     * @param fileSize fileSize
+     */
+    public void setFileSize(Long fileSize) {
+        this.fileSize = fileSize;
+    }
+
     /**
      * Getter of createDate.
      *
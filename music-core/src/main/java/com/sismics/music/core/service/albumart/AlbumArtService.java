@@ -2,26 +2,96 @@ package com.sismics.music.core.service.albumart;
 
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.FilenameFilter;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import com.google.common.util.concurrent.AbstractService;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sismics.music.core.dao.dbi.AlbumDao;
+import com.sismics.music.core.dao.dbi.ArtistDao;
+import com.sismics.music.core.model.dbi.Album;
+import com.sismics.music.core.model.dbi.Artist;
 import com.sismics.music.core.util.DirectoryUtil;
 import com.sismics.music.core.util.ImageUtil;
+import com.sismics.music.core.util.TransactionUtil;
 
 /**
  * Album art service.
  *
  * @author jtremeaux
  */
-public class AlbumArtService  {
+public class AlbumArtService {
     /**
      * Logger.
      */
     private static final Logger log = LoggerFactory.getLogger(AbstractService.class);
 
+    /**
+     * Prefix of the artist art file names.
+     */
+    private static final String ARTIST_ART_PREFIX = "artist_";
+
+    /**
+     * Compression quality of the album art files.
+     */
+    private float jpegQuality;
+
+    /**
+     * Executor importing the album arts found during the collection scans.
+     */
+    private ThreadPoolExecutor importExecutor;
+
+    /**
+     * Constructor of AlbumArtService.
+     */
+    public AlbumArtService() {
+        jpegQuality = Integer.getInteger("music.albumart.jpeg_quality", 85) / 100.f;
+        int importThreadCount = Integer.getInteger("music.albumart.import_threads", Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+        importExecutor = new ThreadPoolExecutor(importThreadCount, importThreadCount,
+                60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(Integer.getInteger("music.albumart.import_queue_size", 64)),
+                new ThreadFactoryBuilder().setNameFormat("AlbumArtImport-%d").setDaemon(true).build(),
+                new RejectedExecutionHandler() {
+                    @Override
+                    public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+                        // Slow down the scan when the queue is full, and never drop an import
+                        r.run();
+                    }
+                });
+        importExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Stops the album art imports.
+     * The imports already queued are completed.
+     */
+    public void shutDown() {
+        importExecutor.shutdown();
+    }
+
     /**
      * Import the album art into the application.
      * 
@@ -31,31 +101,79 @@ public class AlbumArtService  {
      */
     public String importAlbumArt(File originalFile) throws Exception {
         String id = UUID.randomUUID().toString();
-        for (AlbumArtSize albumArtSize : AlbumArtSize.values()) {
-            importAlbumArt(id, originalFile, albumArtSize);
-        }
+        importAlbumArt(id, originalFile);
         return id;
     }
-    
+
+    /**
+     * Import the album art of an album into the application in the background.
+     * The album art ID is written to the album once all the files exist, a failed import leaves the album without album art.
+     *
+     * @param albumId ID of the album (committed)
+     * @param originalFile File to import
+     * @return Import in progress
+     * @throws Exception
+     */
+    public Future<?> importAlbumArtAsync(final String albumId, final File originalFile) throws Exception {
+        if (ImageUtil.getFileFormat(originalFile) == null) {
+            throw new Exception("Unknown file format for picture " + originalFile.getName());
+        }
+        FutureTask<Void> futureTask = new FutureTask<>(new Runnable() {
+            @Override
+            public void run() {
+                final String id = UUID.randomUUID().toString();
+                try {
+                    importAlbumArt(id, originalFile);
+                } catch (Exception e) {
+                    log.error("Error importing album art: " + originalFile, e);
+                    deleteAlbumArt(id);
+                    return;
+                }
+
+                final boolean[] updated = new boolean[1];
+                TransactionUtil.handle(new Runnable() {
+                    @Override
+                    public void run() {
+                        updated[0] = new AlbumDao().updateAlbumArt(albumId, id) > 0;
+                    }
+                });
+                if (!updated[0]) {
+                    // The album is gone
+                    deleteAlbumArt(id);
+                }
+            }
+        }, null);
+        importExecutor.execute(futureTask);
+        return futureTask;
+    }
+
     /**
      * Import the album art into the application.
-     * 
+     * The image is decoded once, and each size is resized from the next larger one.
+     *
      * @param id ID of the album art
      * @param originalFile File to import
-     * @param albumArtSize Album art size
      * @throws Exception
      */
-    protected void importAlbumArt(String id, File originalFile, AlbumArtSize albumArtSize) throws Exception {
+    protected void importAlbumArt(String id, File originalFile) throws Exception {
         ImageUtil.FileType fileType = ImageUtil.getFileFormat(originalFile);
         if (fileType == null) {
             throw new Exception("Unknown file format for picture " + originalFile.getName());
         }
-        BufferedImage originalImage = ImageUtil.readImageWithoutAlphaChannel(originalFile);
-        String albumArtFileName = getAlbumArtFileName(id, albumArtSize);
-        File albumArtFile = new File(DirectoryUtil.getAlbumArtDirectory() + File.separator + albumArtFileName);
-
-        BufferedImage resizedImage = ImageUtil.resizeImage(originalImage, albumArtSize.getSize());
-        ImageUtil.writeJpeg(resizedImage, albumArtFile);
+        BufferedImage image = ImageUtil.readImage(originalFile);
+        List<AlbumArtSize> albumArtSizeList = new ArrayList<>(Arrays.asList(AlbumArtSize.values()));
+        Collections.sort(albumArtSizeList, new Comparator<AlbumArtSize>() {
+            @Override
+            public int compare(AlbumArtSize o1, AlbumArtSize o2) {
+                return Integer.compare(o2.getSize(), o1.getSize());
+            }
+        });
+        for (AlbumArtSize albumArtSize : albumArtSizeList) {
+            BufferedImage resizedImage = ImageUtil.resizeImage(image, albumArtSize.getSize());
+            ImageUtil.writeJpeg(resizedImage, getAlbumArtFile(id, albumArtSize), jpegQuality);
+            image = resizedImage;
+        }
+        image.flush();
     }
     
     /**
@@ -106,4 +224,130 @@ public class AlbumArtService  {
     public String getAlbumArtFileName(String id, AlbumArtSize albumArtSize) {
         return id + "_" + albumArtSize.name().toLowerCase();
     }
+
+    /**
+     * Return an artist art file, generating the mosaic of the artist's album arts if needed.
+     * The file name contains a hash of the album arts, so a mosaic is generated again when the artist's albums
+     * or their covers change.
+     *
+     * @param artistId Artist ID
+     * @param albumList Active albums of the artist
+     * @param albumArtSize Artist art size
+     * @return Artist art file
+     * @throws Exception
+     */
+    public File getArtistArtFile(String artistId, List<Album> albumList, AlbumArtSize albumArtSize) throws Exception {
+        File artistArtFile = new File(DirectoryUtil.getAlbumArtDirectory() + File.separator + getArtistArtFileName(artistId, albumList, albumArtSize));
+        if (artistArtFile.exists()) {
+            return artistArtFile;
+        }
+
+        // Make the mosaic from the album arts of the same size
+        List<BufferedImage> imageList = new ArrayList<>();
+        for (Album album : albumList) {
+            if (album.getAlbumArt() != null) {
+                File file = getAlbumArtFile(album.getAlbumArt(), albumArtSize);
+                if (file.exists() && file.canRead()) {
+                    imageList.add(ImageIO.read(file));
+                }
+            }
+        }
+        File tempFile = new File(artistArtFile.getPath() + "." + UUID.randomUUID() + ".tmp");
+        try {
+            ImageUtil.writeJpeg(ImageUtil.makeMosaic(imageList, albumArtSize.getSize()), tempFile, jpegQuality);
+            Files.move(tempFile.toPath(), artistArtFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            tempFile.delete();
+        }
+
+        // Delete the previous mosaics of this artist
+        deleteArtistArt(artistId, albumArtSize, artistArtFile.getName());
+
+        return artistArtFile;
+    }
+
+    /**
+     * Generate the missing artist art files of all active artists, and delete the files of removed artists.
+     */
+    public void updateArtistArt() {
+        Set<String> artistIdSet = new HashSet<>();
+        for (Artist artist : new ArtistDao().getAllActive()) {
+            artistIdSet.add(artist.getId());
+            updateArtistArt(artist.getId());
+        }
+
+        File[] artistArtFiles = DirectoryUtil.getAlbumArtDirectory().listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.startsWith(ARTIST_ART_PREFIX);
+            }
+        });
+        if (artistArtFiles != null) {
+            for (File file : artistArtFiles) {
+                String artistId = file.getName().substring(ARTIST_ART_PREFIX.length()).split("_")[0];
+                if (!artistIdSet.contains(artistId) && !file.delete()) {
+                    log.error("Artist art cannot be deleted: " + file.getAbsolutePath());
+                }
+            }
+        }
+    }
+
+    /**
+     * Generate the missing artist art files of an artist.
+     *
+     * @param artistId Artist ID
+     */
+    public void updateArtistArt(String artistId) {
+        List<Album> albumList = new AlbumDao().getActiveByArtistId(artistId);
+        for (AlbumArtSize albumArtSize : AlbumArtSize.values()) {
+            try {
+                getArtistArtFile(artistId, albumList, albumArtSize);
+            } catch (Exception e) {
+                log.error("Error generating artist art for artist: " + artistId, e);
+            }
+        }
+    }
+
+    /**
+     * Delete the artist art files of an artist, except the current one.
+     *
+     * @param artistId Artist ID
+     * @param albumArtSize Artist art size
+     * @param currentFileName File name to keep
+     */
+    protected void deleteArtistArt(String artistId, final AlbumArtSize albumArtSize, final String currentFileName) {
+        final String prefix = ARTIST_ART_PREFIX + artistId + "_";
+        final String suffix = "_" + albumArtSize.name().toLowerCase();
+        File[] artistArtFiles = DirectoryUtil.getAlbumArtDirectory().listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.startsWith(prefix) && name.endsWith(suffix) && !name.equals(currentFileName);
+            }
+        });
+        if (artistArtFiles != null) {
+            for (File file : artistArtFiles) {
+                if (!file.delete()) {
+                    log.error("Artist art cannot be deleted: " + file.getAbsolutePath());
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the artist art file name.
+     *
+     * @param artistId Artist ID
+     * @param albumList Active albums of the artist
+     * @param albumArtSize Artist art size
+     * @return File name
+     */
+    public String getArtistArtFileName(String artistId, List<Album> albumList, AlbumArtSize albumArtSize) {
+        Hasher hasher = Hashing.sha1().newHasher();
+        for (Album album : albumList) {
+            if (album.getAlbumArt() != null) {
+                hasher.putString(album.getAlbumArt(), Charsets.UTF_8);
+            }
+        }
+        return ARTIST_ART_PREFIX + artistId + "_" + hasher.hash().toString() + "_" + albumArtSize.name().toLowerCase();
+    }
 }
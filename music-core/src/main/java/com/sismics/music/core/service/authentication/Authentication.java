@@ -0,0 +1,68 @@
+package com.sismics.music.core.service.authentication;
+
+import java.util.Set;
+
+import com.sismics.music.core.model.dbi.AuthenticationToken;
+import com.sismics.music.core.model.dbi.User;
+
+/**
+ * Authentication token with the user it authenticates.
+ *
+ * @author jtremeaux
+ */
+public class Authentication {
+    /**
+     * Authentication token.
+     */
+    private AuthenticationToken authenticationToken;
+
+    /**
+     * Authenticated user.
+     */
+    private User user;
+
+    /**
+     * Base functions of the user.
+     */
+    private Set<String> baseFunctionSet;
+
+    /**
+     * Constructor of Authentication.
+     *
+     * @param authenticationToken Authentication token
+     * @param user Authenticated user
+     * @param baseFunctionSet Base functions of the user
+     */
+    public Authentication(AuthenticationToken authenticationToken, User user, Set<String> baseFunctionSet) {
+        this.authenticationToken = authenticationToken;
+        this.user = user;
+        this.baseFunctionSet = baseFunctionSet;
+    }
+
+    /**
+     * Getter of authenticationToken.
+     *
+     * @return authenticationToken
+     */
+    public AuthenticationToken getAuthenticationToken() {
+        return authenticationToken;
+    }
+
+    /**
+     * Getter of user.
+     *
+     * @return user
+     */
+    public User getUser() {
+        return user;
+    }
+
+    /**
+     * Getter of baseFunctionSet.
+     *
+     * @return baseFunctionSet
+     */
+    public Set<String> getBaseFunctionSet() {
+        return baseFunctionSet;
+    }
+}
@@ -0,0 +1,214 @@
+package com.sismics.music.core.service.authentication;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.AbstractScheduledService;
+import com.sismics.music.core.dao.dbi.AuthenticationTokenDao;
+import com.sismics.music.core.dao.dbi.RoleBaseFunctionDao;
+import com.sismics.music.core.dao.dbi.UserDao;
+import com.sismics.music.core.model.dbi.AuthenticationToken;
+import com.sismics.music.core.model.dbi.User;
+import com.sismics.music.core.util.TransactionUtil;
+
+/**
+ * Authentication service.
+ * The authenticated tokens are cached for a short time, and their last connection dates are written in batches.
+ *
+ * @author jtremeaux
+ */
+public class AuthenticationService extends AbstractScheduledService {
+    /**
+     * Logger.
+     */
+    private static final Logger log = LoggerFactory.getLogger(AuthenticationService.class);
+
+    /**
+     * Authentications by token ID.
+     */
+    private Cache<String, Authentication> authenticationCache;
+
+    /**
+     * Last connection dates not yet written, by token ID.
+     */
+    private Map<String, Date> lastConnectionDateMap = new ConcurrentHashMap<>();
+
+    /**
+     * Expired tokens not yet deleted.
+     */
+    private Set<String> expiredTokenIdSet = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /**
+     * Delay between the writes of the last connection dates (in seconds).
+     */
+    private long flushInterval;
+
+    /**
+     * Constructor of AuthenticationService.
+     */
+    public AuthenticationService() {
+        authenticationCache = CacheBuilder.newBuilder()
+                .maximumSize(Long.getLong("music.auth.cache_size", 10000))
+                .expireAfterWrite(Long.getLong("music.auth.cache_ttl", 300), TimeUnit.SECONDS)
+                .build();
+        flushInterval = Math.max(1, Long.getLong("music.auth.flush_interval", 60));
+    }
+
+    @Override
+    protected void startUp() {
+    }
+
+    @Override
+    protected void shutDown() {
+        runOneIteration();
+    }
+
+    @Override
+    protected void runOneIteration() {
+        if (lastConnectionDateMap.isEmpty() && expiredTokenIdSet.isEmpty()) {
+            return;
+        }
+        TransactionUtil.handle(new Runnable() {
+            @Override
+            public void run() {
+                flush();
+            }
+        });
+    }
+
+    @Override
+    protected Scheduler scheduler() {
+        return Scheduler.newFixedDelaySchedule(flushInterval, flushInterval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Returns the authentication of a token.
+     * This method accesses the database if the token is not cached.
+     *
+     * @param id Authentication token ID
+     * @return Authentication, or null if the token or its user doesn't exist
+     */
+    public Authentication getAuthentication(String id) {
+        Authentication authentication = authenticationCache.getIfPresent(id);
+        if (authentication != null) {
+            return authentication;
+        }
+
+        AuthenticationToken authenticationToken = new AuthenticationTokenDao().get(id);
+        if (authenticationToken == null) {
+            return null;
+        }
+        Date lastConnectionDate = lastConnectionDateMap.get(id);
+        if (lastConnectionDate != null) {
+            authenticationToken.setLastConnectionDate(lastConnectionDate);
+        }
+        User user = new UserDao().getActiveById(authenticationToken.getUserId());
+        if (user == null) {
+            return null;
+        }
+        authentication = new Authentication(authenticationToken, user,
+                new RoleBaseFunctionDao().findByRoleId(user.getRoleId()));
+        authenticationCache.put(id, authentication);
+        return authentication;
+    }
+
+    /**
+     * Records a connection with a token.
+     * The last connection date is written with the next batch.
+     *
+     * @param authentication Authentication
+     */
+    public void updateLastConnectionDate(Authentication authentication) {
+        AuthenticationToken authenticationToken = authentication.getAuthenticationToken();
+        Date now = new Date();
+        authenticationToken.setLastConnectionDate(now);
+        lastConnectionDateMap.put(authenticationToken.getId(), now);
+    }
+
+    /**
+     * Removes a token from the cache, e.g. after its deletion.
+     * The cache is invalidated once the current transaction is committed, so that a concurrent request cannot cache the old token again.
+     *
+     * @param id Authentication token ID
+     */
+    public void invalidate(final String id) {
+        TransactionUtil.afterCommit(new Runnable() {
+            @Override
+            public void run() {
+                authenticationCache.invalidate(id);
+                lastConnectionDateMap.remove(id);
+            }
+        });
+    }
+
+    /**
+     * Deletes an expired token.
+     * The token is deleted from the database with the next batch, so that the current request can stay read-only.
+     *
+     * @param id Authentication token ID
+     */
+    public void deleteExpired(String id) {
+        // Not written by the current transaction, the token can be forgotten right away
+        authenticationCache.invalidate(id);
+        lastConnectionDateMap.remove(id);
+        expiredTokenIdSet.add(id);
+    }
+
+    /**
+     * Removes the tokens of a user from the cache, e.g. after the user was updated or deleted.
+     * The cache is invalidated once the current transaction is committed, so that a concurrent request cannot cache the old user again.
+     *
+     * @param userId User ID
+     */
+    public void invalidateUser(final String userId) {
+        TransactionUtil.afterCommit(new Runnable() {
+            @Override
+            public void run() {
+                for (Authentication authentication : authenticationCache.asMap().values()) {
+                    if (authentication.getUser().getId().equals(userId)) {
+                        authenticationCache.invalidate(authentication.getAuthenticationToken().getId());
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Writes the pending last connection dates, and deletes the expired tokens.
+     * This method accesses the database, and must be called from the thread owning the transaction.
+     * The written entries stay pending until the transaction is committed, so that they are written again after a failure.
+     */
+    public void flush() {
+        final Map<String, Date> flushMap = new HashMap<>(lastConnectionDateMap);
+        final List<String> expiredTokenIdList = new ArrayList<>(expiredTokenIdSet);
+        AuthenticationTokenDao authenticationTokenDao = new AuthenticationTokenDao();
+        authenticationTokenDao.updateLastConnectionDate(flushMap);
+        authenticationTokenDao.deleteAll(expiredTokenIdList);
+        TransactionUtil.afterCommit(new Runnable() {
+            @Override
+            public void run() {
+                // Keep the dates updated in the meantime
+                for (Map.Entry<String, Date> entry : flushMap.entrySet()) {
+                    lastConnectionDateMap.remove(entry.getKey(), entry.getValue());
+                }
+                expiredTokenIdSet.removeAll(expiredTokenIdList);
+            }
+        });
+        if (log.isDebugEnabled()) {
+            log.debug(MessageFormat.format("{0} last connection dates written, {1} expired tokens deleted", flushMap.size(), expiredTokenIdList.size()));
+        }
+    }
+}
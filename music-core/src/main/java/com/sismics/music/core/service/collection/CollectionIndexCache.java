@@ -0,0 +1,142 @@
+package com.sismics.music.core.service.collection;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.google.common.base.Strings;
+import com.sismics.music.core.dao.dbi.AlbumDao;
+import com.sismics.music.core.dao.dbi.ArtistDao;
+import com.sismics.music.core.model.dbi.Album;
+import com.sismics.music.core.model.dbi.Artist;
+
+/**
+ * Artists and albums resolved while indexing a directory.
+ * Loaded once before the scan, and filled with the artists and albums created during the scan,
+ * so that resolving the artist and album of a track doesn't query the database.
+ * Names are matched case-insensitively, like the DAO lookups, and a missing name is matched as an empty one,
+ * so that the tracks without an artist or album tag share the same artist and album.
+ * Not thread-safe: used by the writer thread only.
+ * The album arts of the new albums are held until their batch is committed.
+ *
+ * @author jtremeaux
+ */
+public class CollectionIndexCache {
+    /**
+     * Active artists, by lower case name.
+     */
+    private Map<String, Artist> artistMap = new HashMap<String, Artist>();
+
+    /**
+     * Active albums of the directory, by artist ID and lower case name.
+     */
+    private Map<String, Album> albumMap = new HashMap<String, Album>();
+
+    /**
+     * Album art files of the albums created in the current batch.
+     */
+    private Map<Album, File> albumArtFileMap = new LinkedHashMap<Album, File>();
+
+    /**
+     * (Re)load the active artists, and the active albums of a directory.
+     *
+     * @param directoryId Directory ID
+     */
+    public void load(String directoryId) {
+        artistMap.clear();
+        albumMap.clear();
+        albumArtFileMap.clear();
+        for (Artist artist : new ArtistDao().getAllActive()) {
+            putArtist(artist);
+        }
+        for (Album album : new AlbumDao().getActiveByDirectoryId(directoryId)) {
+            putAlbum(album);
+        }
+    }
+
+    /**
+     * Returns an active artist by its name.
+     *
+     * @param name Artist name
+     * @return Artist, or null if not found
+     */
+    public Artist getArtist(String name) {
+        return artistMap.get(getNameKey(name));
+    }
+
+    /**
+     * Add an artist to the cache.
+     *
+     * @param artist Artist
+     */
+    public void putArtist(Artist artist) {
+        if (!artistMap.containsKey(getNameKey(artist.getName()))) {
+            artistMap.put(getNameKey(artist.getName()), artist);
+        }
+    }
+
+    /**
+     * Returns an active album by its artist and name.
+     *
+     * @param artistId Artist ID
+     * @param name Album name
+     * @return Album, or null if not found
+     */
+    public Album getAlbum(String artistId, String name) {
+        return albumMap.get(getAlbumKey(artistId, name));
+    }
+
+    /**
+     * Add an album to the cache.
+     *
+     * @param album Album
+     */
+    public void putAlbum(Album album) {
+        if (!albumMap.containsKey(getAlbumKey(album.getArtistId(), album.getName()))) {
+            albumMap.put(getAlbumKey(album.getArtistId(), album.getName()), album);
+        }
+    }
+
+    /**
+     * Add the album art file of an album created in the current batch.
+     *
+     * @param album Album
+     * @param albumArtFile Album art file
+     */
+    public void putAlbumArtFile(Album album, File albumArtFile) {
+        albumArtFileMap.put(album, albumArtFile);
+    }
+
+    /**
+     * Returns the album art files of the albums created in the current batch, and forget them.
+     *
+     * @return Album art files, by album
+     */
+    public Map<Album, File> removeAlbumArtFiles() {
+        Map<Album, File> albumArtFileMap = new LinkedHashMap<Album, File>(this.albumArtFileMap);
+        this.albumArtFileMap.clear();
+        return albumArtFileMap;
+    }
+
+    /**
+     * Returns the key of an album.
+     *
+     * @param artistId Artist ID
+     * @param name Album name
+     * @return Album key
+     */
+    private static String getAlbumKey(String artistId, String name) {
+        return artistId + "\u0000" + getNameKey(name);
+    }
+
+    /**
+     * Returns the key of an artist or album name.
+     *
+     * @param name Name (null for none)
+     * @return Lower case name, empty if none
+     */
+    private static String getNameKey(String name) {
+        return Strings.nullToEmpty(name).toLowerCase();
+    }
+}
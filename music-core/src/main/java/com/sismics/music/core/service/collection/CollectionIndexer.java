@@ -0,0 +1,305 @@
+package com.sismics.music.core.service.collection;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sismics.music.core.dao.dbi.TrackDao;
+import com.sismics.music.core.model.dbi.Directory;
+import com.sismics.music.core.model.dbi.Track;
+import com.sismics.music.core.util.TransactionUtil;
+
+/**
+ * Collection indexing pipeline.
+ * A directory walker feeds a bounded queue of media files, a pool of workers extracts their metadata,
+ * and a single writer (the calling thread, which owns the DB handle) persists the tracks with batch statements,
+ * committing after each batch.
+ * Both queues are bounded, so that a fast stage blocks instead of filling the memory.
+ * Files whose size and modification date are unchanged since the last indexing are skipped by the walker,
+ * and the artists and albums are resolved from a cache loaded once for the scan.
+ * Every track written or skipped is stamped with the scan generation in the same batch,
+ * so that the tracks of the files which disappeared can be swept with a single statement.
+ *
+ * @author jtremeaux
+ */
+public class CollectionIndexer {
+    /**
+     * Logger.
+     */
+    private static final Logger log = LoggerFactory.getLogger(CollectionIndexer.class);
+
+    /**
+     * Marks the end of the file queue.
+     */
+    private static final Path END_OF_FILES = Paths.get("");
+
+    /**
+     * Marks the end of the metadata queue.
+     */
+    private static final TrackMetadata END_OF_METADATA = new TrackMetadata(END_OF_FILES);
+
+    /**
+     * Collection service.
+     */
+    private CollectionService collectionService;
+
+    /**
+     * Root directory to index.
+     */
+    private Directory rootDirectory;
+
+    /**
+     * Scan generation stamped on the tracks seen during the scan.
+     */
+    private int scanGeneration;
+
+    /**
+     * True if the whole directory was indexed.
+     */
+    private boolean complete;
+
+    /**
+     * Number of files read and written to the index.
+     */
+    private int indexedCount;
+
+    /**
+     * Number of unchanged files skipped.
+     */
+    private int skippedCount;
+
+    public CollectionIndexer(CollectionService collectionService, Directory rootDirectory, int scanGeneration) {
+        this.collectionService = collectionService;
+        this.rootDirectory = rootDirectory;
+        this.scanGeneration = scanGeneration;
+    }
+
+    /**
+     * Index recursively the root directory.
+     */
+    public void index() {
+        final int workerCount = collectionService.getIndexWorkerCount();
+        final BlockingQueue<Path> fileQueue = new ArrayBlockingQueue<Path>(collectionService.getIndexQueueSize());
+        final BlockingQueue<TrackMetadata> metadataQueue = new ArrayBlockingQueue<TrackMetadata>(collectionService.getIndexQueueSize());
+        ExecutorService executor = Executors.newFixedThreadPool(workerCount + 1, new ThreadFactoryBuilder()
+                .setNameFormat("CollectionIndexer-%d")
+                .setDaemon(true)
+                .build());
+
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        final Map<String, Track> indexedTrackMap = new TrackDao().getFileInfoByDirectory(rootDirectory.getId());
+        CollectionIndexCache collectionIndexCache = new CollectionIndexCache();
+        collectionIndexCache.load(rootDirectory.getId());
+        final CollectionVisitor collectionVisitor = new CollectionVisitor(rootDirectory, fileQueue, metadataQueue, indexedTrackMap);
+        try {
+            // Walk the directory
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        collectionVisitor.index();
+                    } finally {
+                        for (int i = 0; i < workerCount; i++) {
+                            putEndMarker(fileQueue, END_OF_FILES);
+                        }
+                    }
+                }
+            });
+
+            // Extract the metadata
+            for (int i = 0; i < workerCount; i++) {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            for (Path file = fileQueue.take(); file != END_OF_FILES; file = fileQueue.take()) {
+                                Track track = indexedTrackMap.get(file.toAbsolutePath().toString());
+                                TrackMetadata trackMetadata;
+                                try {
+                                    trackMetadata = collectionService.readTrackMetadata(file);
+                                } catch (Exception e) {
+                                    log.error("Error extracting metadata from file: " + file, e);
+                                    if (track == null) {
+                                        continue;
+                                    }
+
+                                    // Keep the track of an unreadable file as it is
+                                    trackMetadata = new TrackMetadata(file);
+                                    trackMetadata.setUnchanged(true);
+                                }
+                                if (track != null) {
+                                    trackMetadata.setTrackId(track.getId());
+                                }
+                                metadataQueue.put(trackMetadata);
+                            }
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        } finally {
+                            putEndMarker(metadataQueue, END_OF_METADATA);
+                        }
+                    }
+                });
+            }
+
+            // Write the tracks, committing every batch
+            List<TrackMetadata> trackMetadataList = new ArrayList<TrackMetadata>();
+            int runningWorkerCount = workerCount;
+            while (runningWorkerCount > 0) {
+                TrackMetadata trackMetadata = metadataQueue.take();
+                if (trackMetadata == END_OF_METADATA) {
+                    runningWorkerCount--;
+                } else {
+                    trackMetadataList.add(trackMetadata);
+                }
+                if (trackMetadataList.size() >= collectionService.getIndexBatchSize()
+                        || runningWorkerCount == 0 && !trackMetadataList.isEmpty()) {
+                    indexedCount += writeBatch(trackMetadataList, collectionIndexCache);
+                    trackMetadataList.clear();
+                }
+            }
+
+            complete = collectionVisitor.isComplete();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn(MessageFormat.format("Indexing of directory {0} interrupted", rootDirectory.getLocation()));
+        } finally {
+            // Unblocks the walker and the workers if the writer failed
+            executor.shutdownNow();
+        }
+        skippedCount = collectionVisitor.getSkippedCount();
+
+        if (log.isInfoEnabled()) {
+            log.info(MessageFormat.format("{0} files from directory {1} indexed in {2}, {3} unchanged files skipped",
+                    indexedCount, rootDirectory.getLocation(), stopwatch, skippedCount));
+        }
+    }
+
+    /**
+     * Write a batch of tracks, and commit it.
+     * The changed tracks are written, the unchanged tracks only get the scan generation.
+     * A failing batch is rolled back, and written again file by file, so that only the failing files are skipped.
+     * The album arts of the new albums are imported once their batch is committed.
+     *
+     * @param trackMetadataList Track metadata
+     * @param collectionIndexCache Artists and albums of the indexing session
+     * @return Number of tracks written
+     */
+    private int writeBatch(List<TrackMetadata> trackMetadataList, CollectionIndexCache collectionIndexCache) {
+        int count;
+        try {
+            count = write(trackMetadataList, collectionIndexCache);
+            TransactionUtil.commit();
+        } catch (Exception e) {
+            TransactionUtil.rollback();
+
+            // The artists and albums created by the failed batch don't exist anymore
+            collectionIndexCache.load(rootDirectory.getId());
+
+            if (trackMetadataList.size() > 1) {
+                log.warn(MessageFormat.format("Error indexing {0} files from directory {1}, from file {2}, retrying file by file",
+                        trackMetadataList.size(), rootDirectory.getLocation(), trackMetadataList.get(0).getFile()), e);
+                count = 0;
+                for (TrackMetadata trackMetadata : trackMetadataList) {
+                    count += writeBatch(Lists.newArrayList(trackMetadata), collectionIndexCache);
+                }
+                return count;
+            }
+
+            // Keep the already indexed track of the failing file
+            TrackMetadata trackMetadata = trackMetadataList.get(0);
+            log.error("Error indexing file: " + trackMetadata.getFile(), e);
+            if (trackMetadata.getTrackId() != null) {
+                new TrackDao().updateScanGeneration(Lists.newArrayList(trackMetadata.getTrackId()), scanGeneration);
+                TransactionUtil.commit();
+            }
+            return 0;
+        }
+
+        collectionService.importAlbumArt(collectionIndexCache.removeAlbumArtFiles());
+        TransactionUtil.commit();
+        return count;
+    }
+
+    /**
+     * Write a batch of tracks, without committing it.
+     *
+     * @param trackMetadataList Track metadata
+     * @param collectionIndexCache Artists and albums of the indexing session
+     * @return Number of tracks written
+     */
+    private int write(List<TrackMetadata> trackMetadataList, CollectionIndexCache collectionIndexCache) {
+        List<TrackMetadata> changedTrackMetadataList = new ArrayList<TrackMetadata>();
+        List<String> unchangedTrackIdList = new ArrayList<String>();
+        for (TrackMetadata trackMetadata : trackMetadataList) {
+            if (trackMetadata.isUnchanged()) {
+                unchangedTrackIdList.add(trackMetadata.getTrackId());
+            } else {
+                changedTrackMetadataList.add(trackMetadata);
+            }
+        }
+
+        new TrackDao().updateScanGeneration(unchangedTrackIdList, scanGeneration);
+        if (changedTrackMetadataList.isEmpty()) {
+            return 0;
+        }
+        return collectionService.indexTrackMetadataList(rootDirectory, changedTrackMetadataList,
+                scanGeneration, collectionIndexCache).size();
+    }
+
+    /**
+     * Getter of complete.
+     *
+     * @return complete
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Getter of indexedCount.
+     *
+     * @return indexedCount
+     */
+    public int getIndexedCount() {
+        return indexedCount;
+    }
+
+    /**
+     * Getter of skippedCount.
+     *
+     * @return skippedCount
+     */
+    public int getSkippedCount() {
+        return skippedCount;
+    }
+
+    /**
+     * Put an end-of-queue marker, unless the current thread is interrupted.
+     * If the consumer is gone, the executor is shutting down and the marker is no longer needed.
+     *
+     * @param queue Queue
+     * @param marker End-of-queue marker
+     */
+    private static <E> void putEndMarker(BlockingQueue<E> queue, E marker) {
+        if (!queue.offer(marker) && !Thread.currentThread().isInterrupted()) {
+            try {
+                queue.put(marker);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -1,9 +1,16 @@
 package com.sismics.music.core.service.collection;
 
 import java.io.File;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang.StringUtils;
@@ -15,8 +22,10 @@ import org.jaudiotagger.tag.Tag;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Objects;
 import com.google.common.base.Stopwatch;
 import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
 import com.google.common.util.concurrent.AbstractScheduledService;
 import com.sismics.music.core.dao.dbi.AlbumDao;
 import com.sismics.music.core.dao.dbi.ArtistDao;
@@ -30,6 +39,7 @@ import com.sismics.music.core.model.dbi.Artist;
 import com.sismics.music.core.model.dbi.Directory;
 import com.sismics.music.core.model.dbi.Track;
 import com.sismics.music.core.service.albumart.AlbumArtImporter;
+import com.sismics.music.core.service.search.SearchService;
 import com.sismics.music.core.util.TransactionUtil;
 
 /**
@@ -43,7 +53,25 @@ public class CollectionService extends AbstractScheduledService {
      */
     private static final Logger log = LoggerFactory.getLogger(CollectionService.class);
 
+    /**
+     * Number of threads extracting the metadata during indexing.
+     */
+    private int indexWorkerCount;
+
+    /**
+     * Capacity of the indexing queues.
+     */
+    private int indexQueueSize;
+
+    /**
+     * Number of files written in a batch, and committed together, during indexing.
+     */
+    private int indexBatchSize;
+
     public CollectionService() {
+        indexWorkerCount = Math.max(1, Integer.getInteger("music.index.workers", Runtime.getRuntime().availableProcessors()));
+        indexQueueSize = Math.max(1, Integer.getInteger("music.index.queue_size", 256));
+        indexBatchSize = Math.max(1, Integer.getInteger("music.index.batch_size", Integer.getInteger("music.index.commit_interval", 500)));
     }
 
     @Override
@@ -73,21 +101,40 @@ public class CollectionService extends AbstractScheduledService {
      * Add a directory to the index / update existing index.
      *
      * @param directory Directory to index
+     * @return Indexer of the directory, with the scan statistics
      */
-    public void addDirectoryToIndex(Directory directory) {
+    public CollectionIndexer addDirectoryToIndex(Directory directory) {
         if (log.isInfoEnabled()) {
             log.info(MessageFormat.format("Adding directory {0} to index", directory.getLocation()));
         }
         // Index the directory recursively
-        new CollectionVisitor(directory).index();
+        TrackDao trackDao = new TrackDao();
+        Date scanStartDate = new Date();
+        int scanGeneration = trackDao.getLastScanGeneration(directory.getId()) + 1;
+        CollectionIndexer collectionIndexer = new CollectionIndexer(this, directory, scanGeneration);
+        collectionIndexer.index();
+
+        // Sweep the tracks whose file disappeared, unless some part of the directory could not be read
+        if (collectionIndexer.isComplete()) {
+            int deletedCount = trackDao.deleteByDirectoryAndPreviousScanGeneration(directory.getId(), scanGeneration, scanStartDate);
+            AlbumDao albumDao = new AlbumDao();
+            albumDao.deleteEmptyAlbum(directory.getId());
+            if (log.isInfoEnabled()) {
+                log.info(MessageFormat.format("{0} tracks removed from directory {1}", deletedCount, directory.getLocation()));
+            }
+        }
 
         // Delete all artists that don't have any album or track
         ArtistDao artistDao = new ArtistDao();
         artistDao.deleteEmptyArtist();
 
+        // Generate the artist mosaics ahead of the first request
+        AppContext.getInstance().getAlbumArtService().updateArtistArt();
+
         if (log.isInfoEnabled()) {
             log.info(MessageFormat.format("Done adding directory {0} to index", directory.getLocation()));
         }
+        return collectionIndexer;
     }
 
     /**
@@ -109,6 +156,7 @@ public class CollectionService extends AbstractScheduledService {
         // Delete all artists that don't have any album or track
         ArtistDao artistDao = new ArtistDao();
         artistDao.deleteEmptyArtist();
+        AppContext.getInstance().getAlbumArtService().updateArtistArt();
 
         if (log.isInfoEnabled()) {
             log.info(MessageFormat.format("Done removing directory {0} from index", directory.getLocation()));
@@ -123,98 +171,333 @@ public class CollectionService extends AbstractScheduledService {
      */
     public void indexFile(Directory rootDirectory, Path file) {
         Stopwatch stopWatch = Stopwatch.createStarted();
+        try {
+            indexTrackMetadata(rootDirectory, readTrackMetadata(file));
+        } catch (Exception e) {
+            log.error("Error extracting metadata from file: " + file, e);
+        }
+        if (log.isInfoEnabled()) {
+            log.info(MessageFormat.format("File {0} indexed in {1}", file, stopWatch));
+        }
+    }
+
+    /**
+     * Remove a media file, or all media files under a directory, from the index.
+     *
+     * @param rootDirectory Directory containing the file
+     * @param file File or directory to remove
+     */
+    public void removeFileFromIndex(Directory rootDirectory, Path file) {
+        TrackDao trackDao = new TrackDao();
+        trackDao.deleteByDirectoryAndFileName(rootDirectory.getId(), file.toAbsolutePath().toString());
+
+        // Delete all albums and artists that don't have any track anymore
+        AlbumDao albumDao = new AlbumDao();
+        albumDao.deleteEmptyAlbum(rootDirectory.getId());
+        ArtistDao artistDao = new ArtistDao();
+        artistDao.deleteEmptyArtist();
+
+        if (log.isInfoEnabled()) {
+            log.info(MessageFormat.format("File {0} removed from index", file));
+        }
+    }
+
+    /**
+     * Add / update a track to the index from its metadata.
+     * This method accesses the database, and must be called from the thread owning the transaction.
+     *
+     * @param rootDirectory Directory to index
+     * @param trackMetadata Track metadata
+     * @return Indexed track, or null if the track cannot be indexed
+     */
+    public Track indexTrackMetadata(Directory rootDirectory, TrackMetadata trackMetadata) {
+        Path file = trackMetadata.getFile();
+        Track track;
         try {
             TrackDao trackDao = new TrackDao();
-            Track track = trackDao.getActiveByDirectoryAndFilename(rootDirectory.getId(), file.toAbsolutePath().toString());
+            track = trackDao.getActiveByDirectoryAndFilename(rootDirectory.getId(), file.toAbsolutePath().toString());
             if (track != null) {
-                readTrackMetadata(rootDirectory, file, track);
+                updateTrack(rootDirectory, trackMetadata, track);
+                trackDao.update(track);
             } else {
                 track = new Track();
                 track.setFileName(file.toAbsolutePath().toString());
 
-                readTrackMetadata(rootDirectory, file, track);
+                updateTrack(rootDirectory, trackMetadata, track);
                 trackDao.create(track);
+
+                // Stamp the new track with the last scan generation, or the next sweep would consider it unseen
+                trackDao.updateScanGeneration(Lists.newArrayList(track.getId()), trackDao.getLastScanGeneration(rootDirectory.getId()));
             }
+            AppContext.getInstance().getSearchService().updateTracks(Lists.newArrayList(track));
         } catch (Exception e) {
-            log.error("Error extracting metadata from file: " + file, e);
+            log.error("Error indexing file: " + file, e);
+            return null;
         }
-        if (log.isInfoEnabled()) {
-            log.info(MessageFormat.format("File {0} indexed in {1}", file, stopWatch));
+        if (log.isDebugEnabled()) {
+            log.debug(MessageFormat.format("File {0} indexed", file));
         }
+        return track;
     }
 
     /**
-     * Read metadata from a media file into the Track.
+     * Add / update a batch of tracks to the index from their metadata.
+     * The new artists, albums and tracks are inserted, and the existing tracks updated, with one batch statement each.
+     * This method accesses the database, and must be called from the thread owning the transaction.
+     *
+     * @param rootDirectory Directory to index
+     * @param trackMetadataList Track metadata
+     * @param scanGeneration Scan generation stamped on the tracks
+     * @param collectionIndexCache Artists and albums of the indexing session
+     * @return Indexed tracks
+     */
+    public List<Track> indexTrackMetadataList(Directory rootDirectory, List<TrackMetadata> trackMetadataList,
+            int scanGeneration, CollectionIndexCache collectionIndexCache) {
+        // Create the missing artists
+        List<Artist> newArtistList = new ArrayList<Artist>();
+        for (TrackMetadata trackMetadata : trackMetadataList) {
+            for (String artistName : Arrays.asList(trackMetadata.getArtistName(), getAlbumArtistName(trackMetadata))) {
+                if (getArtist(artistName, collectionIndexCache, newArtistList) == null) {
+                    Artist artist = new Artist();
+                    artist.setName(artistName);
+                    newArtistList.add(artist);
+                    collectionIndexCache.putArtist(artist);
+                }
+            }
+        }
+        new ArtistDao().createAll(newArtistList);
+
+        // Create the missing albums
+        List<Album> newAlbumList = new ArrayList<Album>();
+        List<Album> albumList = new ArrayList<Album>();
+        for (TrackMetadata trackMetadata : trackMetadataList) {
+            Artist albumArtist = getArtist(getAlbumArtistName(trackMetadata), collectionIndexCache, newArtistList);
+            Album album = collectionIndexCache.getAlbum(albumArtist.getId(), trackMetadata.getAlbumName());
+            if (album == null) {
+                album = newAlbum(rootDirectory, trackMetadata, albumArtist);
+                newAlbumList.add(album);
+                collectionIndexCache.putAlbum(album);
+                File albumArtFile = new AlbumArtImporter().scanDirectory(trackMetadata.getFile().getParent());
+                if (albumArtFile != null) {
+                    collectionIndexCache.putAlbumArtFile(album, albumArtFile);
+                }
+            }
+            albumList.add(album);
+        }
+        new AlbumDao().createAll(newAlbumList);
+
+        // Create or update the tracks
+        List<String> fileNameList = new ArrayList<String>();
+        for (TrackMetadata trackMetadata : trackMetadataList) {
+            fileNameList.add(trackMetadata.getFile().toAbsolutePath().toString());
+        }
+        TrackDao trackDao = new TrackDao();
+        Map<String, Track> trackMap = trackDao.getActiveByDirectoryAndFilenames(rootDirectory.getId(), fileNameList);
+        List<Track> newTrackList = new ArrayList<Track>();
+        List<Track> updatedTrackList = new ArrayList<Track>();
+        for (int i = 0; i < trackMetadataList.size(); i++) {
+            TrackMetadata trackMetadata = trackMetadataList.get(i);
+            Track track = trackMap.get(fileNameList.get(i));
+            if (track != null) {
+                updatedTrackList.add(track);
+            } else {
+                track = new Track();
+                track.setFileName(fileNameList.get(i));
+                newTrackList.add(track);
+            }
+            copyTrackMetadata(trackMetadata, track);
+            track.setArtistId(getArtist(trackMetadata.getArtistName(), collectionIndexCache, newArtistList).getId());
+            track.setAlbumId(albumList.get(i).getId());
+        }
+        trackDao.createAll(newTrackList, scanGeneration);
+        trackDao.updateAll(updatedTrackList, scanGeneration);
+
+        List<Track> trackList = new ArrayList<Track>(newTrackList);
+        trackList.addAll(updatedTrackList);
+
+        // Update the search index
+        SearchService searchService = AppContext.getInstance().getSearchService();
+        searchService.updateArtists(newArtistList);
+        searchService.updateAlbums(newAlbumList);
+        searchService.updateTracks(trackList);
+        return trackList;
+    }
+
+    /**
+     * Read metadata from a media file.
+     * This method doesn't access the database, and is safe to call from any thread.
      *
-     * @param rootDirectory Root directory to index
      * @param file Media file to read from
-     * @param track Track entity (updated)
+     * @return Track metadata
      */
-    public void readTrackMetadata(Directory rootDirectory, Path file, Track track) throws Exception {
+    public TrackMetadata readTrackMetadata(Path file) throws Exception {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
         AudioFile audioFile = AudioFileIO.read(file.toFile());
         Tag tag = audioFile.getTag();
         // TODO deal with empty tags
         AudioHeader header = audioFile.getAudioHeader();
 
-        track.setLength(header.getTrackLength());
-        track.setBitrate(header.getSampleRateAsNumber());
-        track.setFormat(StringUtils.abbreviate(header.getEncodingType(), 50));
-        track.setVbr(header.isVariableBitRate());
+        TrackMetadata trackMetadata = new TrackMetadata(file);
+        trackMetadata.setFileModifiedDate(new Date(attributes.lastModifiedTime().toMillis()));
+        trackMetadata.setFileSize(attributes.size());
+        trackMetadata.setLength(header.getTrackLength());
+        trackMetadata.setBitrate((int) header.getBitRateAsNumber());
+        trackMetadata.setFormat(StringUtils.abbreviate(header.getEncodingType(), 50));
+        trackMetadata.setVbr(header.isVariableBitRate());
 
         String year = tag.getFirst(FieldKey.YEAR);
         if (!Strings.isNullOrEmpty(year)) {
             try {
-                track.setYear(Integer.valueOf(year));
+                trackMetadata.setYear(Integer.valueOf(year));
             } catch (NumberFormatException e) {
                 // Ignore parsing errors
             }
         }
 
-        track.setTitle(StringUtils.abbreviate(tag.getFirst(FieldKey.TITLE), 2000));
-        String artistName = StringUtils.abbreviate(tag.getFirst(FieldKey.ARTIST), 1000);
-        ArtistDao artistDao = new ArtistDao();
-        Artist artist = artistDao.getActiveByName(artistName);
-        if (artist == null) {
-            artist = new Artist();
-            artist.setName(artistName);
-            artistDao.create(artist);
-        }
+        trackMetadata.setTitle(StringUtils.abbreviate(tag.getFirst(FieldKey.TITLE), 2000));
+        trackMetadata.setArtistName(StringUtils.abbreviate(tag.getFirst(FieldKey.ARTIST), 1000));
+        trackMetadata.setAlbumArtistName(StringUtils.abbreviate(tag.getFirst(FieldKey.ALBUM_ARTIST), 1000));
+        trackMetadata.setAlbumName(StringUtils.abbreviate(tag.getFirst(FieldKey.ALBUM), 1000));
+        return trackMetadata;
+    }
+
+    /**
+     * Update the Track from the metadata of its media file, creating its artists and album if needed.
+     *
+     * @param rootDirectory Root directory to index
+     * @param trackMetadata Metadata read from the media file
+     * @param track Track entity (updated)
+     */
+    private void updateTrack(Directory rootDirectory, TrackMetadata trackMetadata, Track track) throws Exception {
+        copyTrackMetadata(trackMetadata, track);
+
+        Artist artist = getOrCreateArtist(trackMetadata.getArtistName());
         track.setArtistId(artist.getId());
 
-        String albumArtistName = StringUtils.abbreviate(tag.getFirst(FieldKey.ALBUM_ARTIST), 1000);
+        String albumArtistName = trackMetadata.getAlbumArtistName();
         Artist albumArtist = null;
         if (!Strings.isNullOrEmpty(albumArtistName)) {
-            albumArtist = artistDao.getActiveByName(albumArtistName);
-            if (albumArtist == null) {
-                albumArtist = new Artist();
-                albumArtist.setName(albumArtistName);
-                artistDao.create(albumArtist);
-            }
+            albumArtist = getOrCreateArtist(albumArtistName);
         } else {
             albumArtist = artist;
         }
 
-        String albumName = StringUtils.abbreviate(tag.getFirst(FieldKey.ALBUM), 1000);
         AlbumDao albumDao = new AlbumDao();
-        Album album = albumDao.getActiveByArtistIdAndName(albumArtist.getId(), albumName);
+        Album album = albumDao.getActiveByDirectoryAndArtistIdAndName(rootDirectory.getId(), albumArtist.getId(), trackMetadata.getAlbumName());
         if (album == null) {
-            // Import album art
-            AlbumArtImporter albumArtImporter = new AlbumArtImporter();
-            File albumArtFile = albumArtImporter.scanDirectory(file.getParent());
-
-            album = new Album();
-            album.setArtistId(albumArtist.getId());
-            album.setDirectoryId(rootDirectory.getId());
-            album.setName(albumName);
+            album = newAlbum(rootDirectory, trackMetadata, albumArtist);
+            File albumArtFile = new AlbumArtImporter().scanDirectory(trackMetadata.getFile().getParent());
             if (albumArtFile != null) {
-                String albumArtId = AppContext.getInstance().getAlbumArtService().importAlbumArt(albumArtFile);
-                album.setAlbumArt(albumArtId);
+                try {
+                    album.setAlbumArt(AppContext.getInstance().getAlbumArtService().importAlbumArt(albumArtFile));
+                } catch (Exception e) {
+                    log.error("Error importing album art: " + albumArtFile, e);
+                }
             }
             albumDao.create(album);
+            AppContext.getInstance().getSearchService().updateAlbums(Lists.newArrayList(album));
         }
         track.setAlbumId(album.getId());
     }
 
+    /**
+     * Copy the metadata read from a media file to its Track.
+     *
+     * @param trackMetadata Metadata read from the media file
+     * @param track Track entity (updated)
+     */
+    private void copyTrackMetadata(TrackMetadata trackMetadata, Track track) {
+        track.setLength(trackMetadata.getLength());
+        track.setBitrate(trackMetadata.getBitrate());
+        track.setFormat(trackMetadata.getFormat());
+        track.setVbr(trackMetadata.isVbr());
+        track.setYear(trackMetadata.getYear());
+        track.setTitle(trackMetadata.getTitle());
+        track.setFileModifiedDate(trackMetadata.getFileModifiedDate());
+        track.setFileSize(trackMetadata.getFileSize());
+    }
+
+    /**
+     * Returns an active artist by its name, creating it if needed.
+     *
+     * @param artistName Artist name
+     * @return Artist
+     */
+    private Artist getOrCreateArtist(String artistName) {
+        ArtistDao artistDao = new ArtistDao();
+        Artist artist = artistDao.getActiveByName(artistName);
+        if (artist == null) {
+            artist = new Artist();
+            artist.setName(artistName);
+            artistDao.create(artist);
+            AppContext.getInstance().getSearchService().updateArtists(Lists.newArrayList(artist));
+        }
+        return artist;
+    }
+
+    /**
+     * Returns the name of the album artist of a track, defaulting to the track artist.
+     *
+     * @param trackMetadata Track metadata
+     * @return Album artist name
+     */
+    private String getAlbumArtistName(TrackMetadata trackMetadata) {
+        return Strings.isNullOrEmpty(trackMetadata.getAlbumArtistName()) ?
+                trackMetadata.getArtistName() : trackMetadata.getAlbumArtistName();
+    }
+
+    /**
+     * Returns an artist from the cache, or from the artists created in the current batch.
+     *
+     * @param artistName Artist name
+     * @param collectionIndexCache Artists and albums of the indexing session
+     * @param newArtistList Artists created in the current batch
+     * @return Artist
+     */
+    private Artist getArtist(String artistName, CollectionIndexCache collectionIndexCache, List<Artist> newArtistList) {
+        Artist artist = collectionIndexCache.getArtist(artistName);
+        if (artist == null) {
+            for (Artist newArtist : newArtistList) {
+                if (Objects.equal(newArtist.getName(), artistName)) {
+                    return newArtist;
+                }
+            }
+        }
+        return artist;
+    }
+
+    /**
+     * Returns a new album, without album art.
+     *
+     * @param rootDirectory Root directory to index
+     * @param trackMetadata Metadata of a track of the album
+     * @param albumArtist Album artist
+     * @return New album (not saved)
+     */
+    private Album newAlbum(Directory rootDirectory, TrackMetadata trackMetadata, Artist albumArtist) {
+        Album album = new Album();
+        album.setArtistId(albumArtist.getId());
+        album.setDirectoryId(rootDirectory.getId());
+        album.setName(trackMetadata.getAlbumName());
+        return album;
+    }
+
+    /**
+     * Import the album arts of new albums, the images are processed in the background.
+     * Must be called once the albums are committed, so that a rolled back batch doesn't leave album art files behind.
+     *
+     * @param albumArtFileMap Album art files, by album
+     */
+    public void importAlbumArt(Map<Album, File> albumArtFileMap) {
+        for (Entry<Album, File> entry : albumArtFileMap.entrySet()) {
+            try {
+                AppContext.getInstance().getAlbumArtService().importAlbumArtAsync(entry.getKey().getId(), entry.getValue());
+            } catch (Exception e) {
+                log.error("Error importing album art: " + entry.getValue(), e);
+            }
+        }
+    }
+
     /**
      * Reindex the whole collection.
      */
@@ -226,6 +509,33 @@ public class CollectionService extends AbstractScheduledService {
         }
     }
 
+    /**
+     * Getter of indexWorkerCount.
+     *
+     * @return indexWorkerCount
+     */
+    public int getIndexWorkerCount() {
+        return indexWorkerCount;
+    }
+
+    /**
+     * Getter of indexQueueSize.
+     *
+     * @return indexQueueSize
+     */
+    public int getIndexQueueSize() {
+        return indexQueueSize;
+    }
+
+    /**
+     * Getter of indexBatchSize.
+     *
+     * @return indexBatchSize
+     */
+    public int getIndexBatchSize() {
+        return indexBatchSize;
+    }
+
     /**
      * Update the album scores.
      * TODO implement a more elaborated scoring function
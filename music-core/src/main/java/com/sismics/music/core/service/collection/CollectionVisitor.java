@@ -1,18 +1,22 @@
 package com.sismics.music.core.service.collection;
 
 import com.google.common.collect.ImmutableSet;
-import com.sismics.music.core.model.context.AppContext;
 import com.sismics.music.core.model.dbi.Directory;
+import com.sismics.music.core.model.dbi.Track;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
 
 /**
  * Collection visitor.
+ * Walks the root directory and feeds the supported media files to the indexing queue.
+ * Unchanged files are sent directly to the writer, which only updates the scan generation of their tracks.
  *
  * @author jtremeaux
  */
@@ -25,39 +29,137 @@ public class CollectionVisitor extends SimpleFileVisitor<Path> {
      */
     private Directory rootDirectory;
 
+    /**
+     * Queue of files to index.
+     */
+    private BlockingQueue<Path> fileQueue;
+
+    /**
+     * Queue of track metadata to write.
+     */
+    private BlockingQueue<TrackMetadata> metadataQueue;
+
+    /**
+     * Tracks already indexed in this directory, by file name.
+     */
+    private Map<String, Track> indexedTrackMap;
+
+    /**
+     * Number of unchanged files skipped.
+     */
+    private int skippedCount;
+
+    /**
+     * True if the whole directory was visited without error.
+     */
+    private boolean complete;
+
     /**
      * Logger.
      */
     private static final Logger log = LoggerFactory.getLogger(CollectionVisitor.class);
 
-    public CollectionVisitor(Directory rootDirectory) {
+    public CollectionVisitor(Directory rootDirectory, BlockingQueue<Path> fileQueue, BlockingQueue<TrackMetadata> metadataQueue,
+            Map<String, Track> indexedTrackMap) {
         this.rootDirectory = rootDirectory;
+        this.fileQueue = fileQueue;
+        this.metadataQueue = metadataQueue;
+        this.indexedTrackMap = indexedTrackMap;
+    }
+
+    /**
+     * Returns true if the file has not changed since it was indexed.
+     *
+     * @param track Indexed track of the file, or null if not indexed
+     * @param attrs File attributes
+     * @return File unchanged
+     */
+    private boolean isUnchanged(Track track, BasicFileAttributes attrs) {
+        return track != null
+                && track.getFileSize() != null && track.getFileSize() == attrs.size()
+                && track.getFileModifiedDate() != null && track.getFileModifiedDate().getTime() == attrs.lastModifiedTime().toMillis();
+    }
+
+    /**
+     * Returns true if the file is a supported media file.
+     *
+     * @param path File
+     * @return Supported media file
+     */
+    public static boolean isSupported(Path path) {
+        String ext = com.google.common.io.Files.getFileExtension(path.toString()).toLowerCase();
+        return supportedExtSet.contains(ext);
     }
 
     @Override
     public FileVisitResult visitFile(Path path, BasicFileAttributes attrs) throws IOException {
-        String ext = com.google.common.io.Files.getFileExtension(path.toString()).toLowerCase();
-        if (supportedExtSet.contains(ext)) {
-            final CollectionService collectionService = AppContext.getInstance().getCollectionService();
-            collectionService.indexFile(rootDirectory, path);
+        if (isSupported(path)) {
+            Track track = indexedTrackMap.get(path.toAbsolutePath().toString());
+            try {
+                if (isUnchanged(track, attrs)) {
+                    skippedCount++;
+                    TrackMetadata trackMetadata = new TrackMetadata(path);
+                    trackMetadata.setTrackId(track.getId());
+                    trackMetadata.setUnchanged(true);
+                    metadataQueue.put(trackMetadata);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                // Blocks while the queue is full, so that the walker can't outrun the workers
+                fileQueue.put(path);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return FileVisitResult.TERMINATE;
+            }
         }
         return FileVisitResult.CONTINUE;
     }
 
+    @Override
+    public FileVisitResult visitFileFailed(Path file, IOException e) throws IOException {
+        // The tracks of an unreadable file or directory must not be removed from the index
+        log.error("Cannot read file: " + file, e);
+        complete = false;
+        return FileVisitResult.CONTINUE;
+    }
+
     @Override
     public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
         return FileVisitResult.CONTINUE;
     }
 
+    /**
+     * Getter of skippedCount.
+     *
+     * @return skippedCount
+     */
+    public int getSkippedCount() {
+        return skippedCount;
+    }
+
+    /**
+     * Getter of complete.
+     *
+     * @return complete
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
     /**
      * Index recursively the root directory.
      */
     public void index() {
+        complete = true;
         try {
             Files.walkFileTree(Paths.get(rootDirectory.getLocation()), this);
         } catch (IOException e) {
             log.error("Cannot read from directory: " + rootDirectory.getLocation());
+            complete = false;
             return;
         }
+        if (Thread.currentThread().isInterrupted()) {
+            complete = false;
+        }
     }
 }
@@ -0,0 +1,311 @@
+package com.sismics.music.core.service.collection;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.AbstractExecutionThreadService;
+import com.sismics.music.core.dao.dbi.DirectoryDao;
+import com.sismics.music.core.event.async.DirectoryChangedAsyncEvent;
+import com.sismics.music.core.model.context.AppContext;
+import com.sismics.music.core.model.dbi.Directory;
+import com.sismics.music.core.util.TransactionUtil;
+
+/**
+ * Collection watch service.
+ * Watches recursively the enabled directories, and updates the index with the files created, modified or deleted.
+ * Bursts of events (a file being copied, an album being ripped) are coalesced: the affected files are
+ * processed once no new event has been received for a quiet period.
+ *
+ * @author jtremeaux
+ */
+public class CollectionWatchService extends AbstractExecutionThreadService {
+    /**
+     * Logger.
+     */
+    private static final Logger log = LoggerFactory.getLogger(CollectionWatchService.class);
+
+    /**
+     * Quiet period before processing the pending events (in milliseconds).
+     */
+    private long quietPeriod;
+
+    /**
+     * Watch service.
+     */
+    private volatile WatchService watchService;
+
+    /**
+     * Watched directories, by watch key.
+     */
+    private Map<WatchKey, Path> watchKeyMap = new ConcurrentHashMap<WatchKey, Path>();
+
+    /**
+     * Watched root directories, by ID.
+     */
+    private Map<String, Directory> rootDirectoryMap = new ConcurrentHashMap<String, Directory>();
+
+    /**
+     * Files affected by the pending events, and whether they were created.
+     */
+    private Map<Path, Boolean> pendingFileMap = new LinkedHashMap<Path, Boolean>();
+
+    public CollectionWatchService() {
+        quietPeriod = Math.max(1, Long.getLong("music.watch.quiet_period", 2000L));
+    }
+
+    @Override
+    protected void startUp() throws Exception {
+        watchService = FileSystems.getDefault().newWatchService();
+
+        TransactionUtil.handle(new Runnable() {
+            @Override
+            public void run() {
+                DirectoryDao directoryDao = new DirectoryDao();
+                for (Directory directory : directoryDao.findAllEnabled()) {
+                    watchDirectory(directory);
+                }
+            }
+        });
+    }
+
+    @Override
+    protected void run() throws Exception {
+        long lastEventTime = 0;
+        while (isRunning()) {
+            WatchKey watchKey;
+            try {
+                watchKey = watchService.poll(quietPeriod, TimeUnit.MILLISECONDS);
+            } catch (ClosedWatchServiceException e) {
+                return;
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            if (watchKey != null) {
+                collectEvents(watchKey);
+                lastEventTime = System.currentTimeMillis();
+            } else if (!pendingFileMap.isEmpty() && System.currentTimeMillis() - lastEventTime >= quietPeriod) {
+                processPendingFiles();
+            }
+        }
+    }
+
+    @Override
+    protected void triggerShutdown() {
+        closeWatchService();
+    }
+
+    @Override
+    protected void shutDown() throws Exception {
+        closeWatchService();
+    }
+
+    /**
+     * Start watching a root directory recursively.
+     * Does nothing if the service is not started.
+     *
+     * @param directory Root directory
+     */
+    public void watchDirectory(Directory directory) {
+        if (watchService == null) {
+            return;
+        }
+        rootDirectoryMap.put(directory.getId(), directory);
+        registerAll(Paths.get(directory.getLocation()));
+        if (log.isInfoEnabled()) {
+            log.info(MessageFormat.format("Watching directory {0}", directory.getLocation()));
+        }
+    }
+
+    /**
+     * Stop watching a root directory.
+     *
+     * @param directory Root directory
+     */
+    public void unwatchDirectory(Directory directory) {
+        Directory watchedDirectory = rootDirectoryMap.remove(directory.getId());
+        if (watchedDirectory == null) {
+            return;
+        }
+        Path rootPath = Paths.get(watchedDirectory.getLocation());
+        for (Entry<WatchKey, Path> entry : watchKeyMap.entrySet()) {
+            if (entry.getValue().startsWith(rootPath)) {
+                entry.getKey().cancel();
+                watchKeyMap.remove(entry.getKey());
+            }
+        }
+        if (log.isInfoEnabled()) {
+            log.info(MessageFormat.format("Stopped watching directory {0}", watchedDirectory.getLocation()));
+        }
+    }
+
+    /**
+     * Register a directory and all its subdirectories to the watch service.
+     *
+     * @param start Directory to register
+     */
+    private void registerAll(Path start) {
+        try {
+            Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    watchKeyMap.put(dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY), dir);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (ClosedWatchServiceException e) {
+            // The service is shutting down
+        } catch (IOException e) {
+            log.error("Cannot watch directory: " + start, e);
+        }
+    }
+
+    /**
+     * Add the files affected by the events of a watch key to the pending files.
+     *
+     * @param watchKey Watch key
+     */
+    private void collectEvents(WatchKey watchKey) {
+        Path dir = watchKeyMap.get(watchKey);
+        for (WatchEvent<?> event : watchKey.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                // Some events are lost, rescan the whole collection
+                for (Directory directory : rootDirectoryMap.values()) {
+                    pendingFileMap.put(Paths.get(directory.getLocation()), true);
+                }
+                continue;
+            }
+            if (dir == null) {
+                continue;
+            }
+            Path file = dir.resolve((Path) event.context());
+            Boolean created = pendingFileMap.get(file);
+            pendingFileMap.put(file, event.kind() == ENTRY_CREATE || Boolean.TRUE.equals(created));
+        }
+        if (!watchKey.reset()) {
+            // The directory is no longer accessible
+            watchKeyMap.remove(watchKey);
+        }
+    }
+
+    /**
+     * Update the index with the pending files.
+     * The changes are posted to the collection event bus, so that they are serialized with the scans.
+     */
+    private void processPendingFiles() {
+        Map<String, DirectoryChangedAsyncEvent> eventMap = new LinkedHashMap<String, DirectoryChangedAsyncEvent>();
+        for (Entry<Path, Boolean> entry : pendingFileMap.entrySet()) {
+            Path file = entry.getKey();
+            Directory rootDirectory = getRootDirectory(file);
+            if (rootDirectory == null) {
+                continue;
+            }
+            DirectoryChangedAsyncEvent directoryChangedAsyncEvent = eventMap.get(rootDirectory.getId());
+            if (directoryChangedAsyncEvent == null) {
+                directoryChangedAsyncEvent = new DirectoryChangedAsyncEvent();
+                directoryChangedAsyncEvent.setDirectory(rootDirectory);
+                eventMap.put(rootDirectory.getId(), directoryChangedAsyncEvent);
+            }
+
+            if (file.equals(Paths.get(rootDirectory.getLocation()))) {
+                // Events were lost, reindex the changed files of the whole directory
+                directoryChangedAsyncEvent.setRescan(true);
+            } else if (Files.isDirectory(file)) {
+                // The content of a new directory is indexed, a modified directory notifies its own changes
+                if (entry.getValue()) {
+                    registerAll(file);
+                    directoryChangedAsyncEvent.getIndexedFileList().addAll(listMediaFiles(file));
+                }
+            } else if (Files.isRegularFile(file)) {
+                if (CollectionVisitor.isSupported(file)) {
+                    directoryChangedAsyncEvent.getIndexedFileList().add(file);
+                }
+            } else {
+                directoryChangedAsyncEvent.getRemovedFileList().add(file);
+            }
+        }
+        pendingFileMap.clear();
+
+        for (DirectoryChangedAsyncEvent directoryChangedAsyncEvent : eventMap.values()) {
+            AppContext.getInstance().getCollectionEventBus().post(directoryChangedAsyncEvent);
+        }
+    }
+
+    /**
+     * Returns the watched root directory containing a file.
+     *
+     * @param file File
+     * @return Root directory, or null if the file is not watched anymore
+     */
+    private Directory getRootDirectory(Path file) {
+        for (Directory directory : rootDirectoryMap.values()) {
+            if (file.startsWith(Paths.get(directory.getLocation()))) {
+                return directory;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * List recursively the supported media files of a directory.
+     *
+     * @param dir Directory
+     * @return Media files
+     */
+    private List<Path> listMediaFiles(Path dir) {
+        final List<Path> fileList = new ArrayList<Path>();
+        try {
+            Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    if (CollectionVisitor.isSupported(file)) {
+                        fileList.add(file);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            log.error("Cannot read from directory: " + dir, e);
+        }
+        return fileList;
+    }
+
+    /**
+     * Close the watch service, which unblocks the watching thread.
+     */
+    private void closeWatchService() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                log.error("Error closing the watch service", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package com.sismics.music.core.service.collection;
+
+import java.nio.file.Path;
+import java.util.Date;
+
+import com.google.common.base.Objects;
+
+/**
+ * Metadata extracted from a media file, before it is written to the index.
+ *
+ * @author jtremeaux
+ */
+public class TrackMetadata {
+    /**
+     * Media file.
+     */
+    private Path file;
+
+    /**
+     * Track title.
+     */
+    private String title;
+
+    /**
+     * Artist name.
+     */
+    private String artistName;
+
+    /**
+     * Album artist name.
+     */
+    private String albumArtistName;
+
+    /**
+     * Album name.
+     */
+    private String albumName;
+
+    /**
+     * Track year.
+     */
+    private Integer year;
+
+    /**
+     * Track length (in seconds).
+     */
+    private Integer length;
+
+    /**
+     * Track bitrate (in kbps).
+     */
+    private Integer bitrate;
+
+    /**
+     * Track is encoded in variable bitrate (VBR).
+     */
+    private boolean vbr;
+
+    /**
+     * Track format.
+     */
+    private String format;
+
+    /**
+     * Last modification date of the media file.
+     */
+    private Date fileModifiedDate;
+
+    /**
+     * Size of the media file (in bytes).
+     */
+    private Long fileSize;
+
+    /**
+     * ID of the already indexed track of the file, null if the file is new.
+     */
+    private String trackId;
+
+    /**
+     * True if the indexed track is kept as is, only its scan generation is updated.
+     */
+    private boolean unchanged;
+
+    public TrackMetadata(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Getter of file.
+     *
+     * @return file
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Getter of title.
+     *
+     * @return title
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * Setter of title.
+     *
+     * @param title title
+     */
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    /**
+     * Getter of artistName.
+     *
+     * @return artistName
+     */
+    public String getArtistName() {
+        return artistName;
+    }
+
+    /**
+     * Setter of artistName.
+     *
+     * @param artistName artistName
+     */
+    public void setArtistName(String artistName) {
+        this.artistName = artistName;
+    }
+
+    /**
+     * Getter of albumArtistName.
+     *
+     * @return albumArtistName
+     */
+    public String getAlbumArtistName() {
+        return albumArtistName;
+    }
+
+    /**
+     * Setter of albumArtistName.
+     *
+     * @param albumArtistName albumArtistName
+     */
+    public void setAlbumArtistName(String albumArtistName) {
+        this.albumArtistName = albumArtistName;
+    }
+
+    /**
+     * Getter of albumName.
+     *
+     * @return albumName
+     */
+    public String getAlbumName() {
+        return albumName;
+    }
+
+    /**
+     * Setter of albumName.
+     *
+     * @param albumName albumName
+     */
+    public void setAlbumName(String albumName) {
+        this.albumName = albumName;
+    }
+
+    /**
+     * Getter of year.
+     *
+     * @return year
+     */
+    public Integer getYear() {
+        return year;
+    }
+
+    /**
+     * Setter of year.
+     *
+     * @param year year
+     */
+    public void setYear(Integer year) {
+        this.year = year;
+    }
+
+    /**
+     * Getter of length.
+     *
+     * @return length
+     */
+    public Integer getLength() {
+        return length;
+    }
+
+    /**
+     * Setter of length.
+     *
+     * @param length length
+     */
+    public void setLength(Integer length) {
+        this.length = length;
+    }
+
+    /**
+     * Getter of bitrate.
+     *
+     * @return bitrate
+     */
+    public Integer getBitrate() {
+        return bitrate;
+    }
+
+    /**
+     * Setter of bitrate.
+     *
+     * @param bitrate bitrate
+     */
+    public void setBitrate(Integer bitrate) {
+        this.bitrate = bitrate;
+    }
+
+    /**
+     * Getter of vbr.
+     *
+     * @return vbr
+     */
+    public boolean isVbr() {
+        return vbr;
+    }
+
+    /**
+     * Setter of vbr.
+     *
+     * @param vbr vbr
+     */
+    public void setVbr(boolean vbr) {
+        this.vbr = vbr;
+    }
+
+    /**
+     * Getter of format.
+     *
+     * @return format
+     */
+    public String getFormat() {
+        return format;
+    }
+
+    /**
+     * Setter of format.
+     *
+     * @param format format
+     */
+    public void setFormat(String format) {
+        this.format = format;
+    }
+
+    /**
+     * Getter of fileModifiedDate.
+     *
+     * @return fileModifiedDate
+     */
+    public Date getFileModifiedDate() {
+        return fileModifiedDate;
+    }
+
+    /**
+     * Setter of fileModifiedDate.
+     *
+     * @param fileModifiedDate fileModifiedDate
+     */
+    public void setFileModifiedDate(Date fileModifiedDate) {
+        this.fileModifiedDate = fileModifiedDate;
+    }
+
+    /**
+     * Getter of fileSize.
+     *
+     * @return fileSize
+     */
+    public Long getFileSize() {
+        return fileSize;
+    }
+
+    /**
+     * Setter of fileSize.
+     *
+     * @param fileSize fileSize
+     */
+    public void setFileSize(Long fileSize) {
+        this.fileSize = fileSize;
+    }
+
+    /**
+     * Getter of trackId.
+     *
+     * @return trackId
+     */
+    public String getTrackId() {
+        return trackId;
+    }
+
+    /**
+     * Setter of trackId.
+     *
+     * @param trackId trackId
+     */
+    public void setTrackId(String trackId) {
+        this.trackId = trackId;
+    }
+
+    /**
+     * Getter of unchanged.
+     *
+     * @return unchanged
+     */
+    public boolean isUnchanged() {
+        return unchanged;
+    }
+
+    /**
+     * Setter of unchanged.
+     *
+     * @param unchanged unchanged
+     */
+    public void setUnchanged(boolean unchanged) {
+        this.unchanged = unchanged;
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("file", file)
+                .add("title", title)
+                .toString();
+    }
+}
@@ -0,0 +1,29 @@
+package com.sismics.music.core.service.search;
+
+import java.io.Reader;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.core.LowerCaseFilter;
+import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilter;
+import org.apache.lucene.analysis.standard.StandardFilter;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.util.Version;
+
+/**
+ * Analyzer of the track, album and artist names.
+ * Names are lower cased and folded to ASCII, and stop words are kept ("The The" is a valid artist name).
+ *
+ * @author jtremeaux
+ */
+public class SearchAnalyzer extends Analyzer {
+    @Override
+    protected TokenStreamComponents createComponents(String fieldName, Reader reader) {
+        Tokenizer source = new StandardTokenizer(Version.LUCENE_42, reader);
+        TokenStream filter = new StandardFilter(Version.LUCENE_42, source);
+        filter = new LowerCaseFilter(Version.LUCENE_42, filter);
+        filter = new ASCIIFoldingFilter(filter);
+        return new TokenStreamComponents(source, filter);
+    }
+}
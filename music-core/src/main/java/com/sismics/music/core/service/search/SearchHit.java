@@ -0,0 +1,47 @@
+package com.sismics.music.core.service.search;
+
+/**
+ * Result of a full text search.
+ *
+ * @author jtremeaux
+ */
+public class SearchHit {
+    /**
+     * ID of the track, album or artist.
+     */
+    private String id;
+
+    /**
+     * Name with the matching terms highlighted (HTML).
+     */
+    private String highlight;
+
+    /**
+     * Constructor of SearchHit.
+     *
+     * @param id ID of the track, album or artist
+     * @param highlight Name with the matching terms highlighted
+     */
+    public SearchHit(String id, String highlight) {
+        this.id = id;
+        this.highlight = highlight;
+    }
+
+    /**
+     * Getter of id.
+     *
+     * @return id
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Getter of highlight.
+     *
+     * @return highlight
+     */
+    public String getHighlight() {
+        return highlight;
+    }
+}
@@ -0,0 +1,687 @@
+package com.sismics.music.core.service.search;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.FuzzyQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MultiTermQuery;
+import org.apache.lucene.search.NumericRangeQuery;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.QueryWrapperFilter;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TotalHitCountCollector;
+import org.apache.lucene.search.highlight.Highlighter;
+import org.apache.lucene.search.highlight.NullFragmenter;
+import org.apache.lucene.search.highlight.QueryScorer;
+import org.apache.lucene.search.highlight.SimpleHTMLEncoder;
+import org.apache.lucene.search.highlight.SimpleHTMLFormatter;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.store.SimpleFSDirectory;
+import org.apache.lucene.util.Version;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.util.concurrent.AbstractScheduledService;
+import com.sismics.music.core.constant.ConfigType;
+import com.sismics.music.core.dao.dbi.AlbumDao;
+import com.sismics.music.core.dao.dbi.ArtistDao;
+import com.sismics.music.core.dao.dbi.TrackDao;
+import com.sismics.music.core.dao.dbi.criteria.AlbumCriteria;
+import com.sismics.music.core.dao.dbi.criteria.ArtistCriteria;
+import com.sismics.music.core.dao.dbi.criteria.TrackCriteria;
+import com.sismics.music.core.dao.dbi.dto.AlbumDto;
+import com.sismics.music.core.dao.dbi.dto.ArtistDto;
+import com.sismics.music.core.dao.dbi.dto.TrackDto;
+import com.sismics.music.core.model.dbi.Album;
+import com.sismics.music.core.model.dbi.Artist;
+import com.sismics.music.core.model.dbi.Track;
+import com.sismics.music.core.util.ConfigUtil;
+import com.sismics.music.core.util.DirectoryUtil;
+import com.sismics.music.core.util.TransactionUtil;
+import com.sismics.music.core.util.dbi.PaginatedList;
+
+/**
+ * Full text search service.
+ * Maintains a Lucene index of the names of the active tracks, albums and artists.
+ * The index is updated once the transaction indexing the collection or tagging a track is committed,
+ * and the updates are committed to the Lucene directory periodically. Each node keeps its own index:
+ * the changes made by the other nodes sharing the database are read every minute from the update dates
+ * of the tracks and albums, and the creation dates of the artists. The index is rebuilt from the database
+ * at startup then every day, which also purges the deleted tracks, albums and artists: each rebuild stamps
+ * the documents with a new generation, then deletes the documents of the previous generations.
+ * The hits are only IDs: the caller loads them from the database, which filters out any stale entry.
+ * If the index is not opened in time, the names are searched in the database instead.
+ * Deep pages of tracks are read from a cursor, the ID of the last hit of the previous page, instead of an offset.
+ *
+ * @author jtremeaux
+ */
+public class SearchService extends AbstractScheduledService {
+    /**
+     * Logger.
+     */
+    private static final Logger log = LoggerFactory.getLogger(SearchService.class);
+
+    /**
+     * Document type of a track.
+     */
+    private static final String TYPE_TRACK = "track";
+
+    /**
+     * Document type of an album.
+     */
+    private static final String TYPE_ALBUM = "album";
+
+    /**
+     * Document type of an artist.
+     */
+    private static final String TYPE_ARTIST = "artist";
+
+    /**
+     * Minimum length of a term to be matched approximately.
+     */
+    private static final int FUZZY_MIN_LENGTH = 4;
+
+    /**
+     * Maximum number of index terms a prefix is expanded to.
+     */
+    private static final int PREFIX_MAX_TERMS = 64;
+
+    /**
+     * Analyzer of the names.
+     */
+    private Analyzer analyzer = new SearchAnalyzer();
+
+    /**
+     * Lucene directory.
+     */
+    private Directory directory;
+
+    /**
+     * Index writer.
+     */
+    private IndexWriter indexWriter;
+
+    /**
+     * Near real time searchers on the index writer.
+     */
+    private SearcherManager searcherManager;
+
+    /**
+     * Generation of the documents written to the index.
+     */
+    private volatile long generation;
+
+    /**
+     * Interval between the commits of the index updates, in milliseconds.
+     */
+    private long commitInterval;
+
+    /**
+     * Interval between the rebuilds of the index, in milliseconds.
+     */
+    private long rebuildInterval;
+
+    /**
+     * Time of the next rebuild of the index.
+     */
+    private long nextRebuildTime;
+
+    /**
+     * Interval between the refreshes of the index from the database, in milliseconds.
+     */
+    private long refreshInterval;
+
+    /**
+     * Time of the next refresh of the index from the database.
+     */
+    private long nextRefreshTime;
+
+    /**
+     * Changes older than the last refresh by this margin are read again, in milliseconds,
+     * since a transaction is committed after its update dates are written.
+     */
+    private long refreshMargin;
+
+    /**
+     * Start date of the last refresh or rebuild of the index from the database.
+     */
+    private volatile Date refreshDate;
+
+    /**
+     * True if the index has updates to commit.
+     */
+    private AtomicBoolean dirty = new AtomicBoolean();
+
+    /**
+     * Maximum time a search waits for the index to be opened, in milliseconds.
+     */
+    private long awaitTimeout;
+
+    /**
+     * Number of tracks read per query during a rebuild or a refresh.
+     */
+    private int rebuildPageSize;
+
+    public SearchService() {
+        rebuildPageSize = Math.max(1, Integer.getInteger("music.search.rebuild_page_size", 1000));
+        awaitTimeout = Math.max(0, Long.getLong("music.search.await_timeout", 2000L));
+        commitInterval = Math.max(1, Long.getLong("music.search.commit_interval", 10000L));
+        rebuildInterval = Math.max(1, Long.getLong("music.search.rebuild_interval", TimeUnit.DAYS.toMillis(1)));
+        refreshInterval = Math.max(1, Long.getLong("music.search.refresh_interval", 60000L));
+        refreshMargin = Math.max(0, Long.getLong("music.search.refresh_margin", 120000L));
+    }
+
+    @Override
+    protected void startUp() throws Exception {
+        final String[] luceneStorageConfig = new String[1];
+        TransactionUtil.handle(new Runnable() {
+            @Override
+            public void run() {
+                luceneStorageConfig[0] = ConfigUtil.getConfigStringValue(ConfigType.LUCENE_DIRECTORY_STORAGE);
+            }
+        });
+
+        if ("RAM".equals(luceneStorageConfig[0])) {
+            directory = new RAMDirectory();
+            log.info("Using RAM Lucene storage");
+        } else {
+            directory = new SimpleFSDirectory(DirectoryUtil.getLuceneDirectory());
+            log.info(MessageFormat.format("Using file Lucene storage: {0}", DirectoryUtil.getLuceneDirectory()));
+        }
+        IndexWriterConfig config = new IndexWriterConfig(Version.LUCENE_42, analyzer);
+        config.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+        indexWriter = new IndexWriter(directory, config);
+        searcherManager = new SearcherManager(indexWriter, true, null);
+    }
+
+    @Override
+    protected void shutDown() throws Exception {
+        searcherManager.close();
+        indexWriter.close();
+        directory.close();
+    }
+
+    @Override
+    protected void runOneIteration() throws Exception {
+        long now = System.currentTimeMillis();
+        if (now >= nextRebuildTime) {
+            nextRebuildTime = now + rebuildInterval;
+            nextRefreshTime = now + refreshInterval;
+            TransactionUtil.handle(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        rebuildIndex();
+                    } catch (Exception e) {
+                        log.error("Error rebuilding the search index", e);
+                    }
+                }
+            });
+        } else if (now >= nextRefreshTime) {
+            nextRefreshTime = now + refreshInterval;
+            TransactionUtil.handle(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        refreshIndex();
+                    } catch (Exception e) {
+                        log.error("Error refreshing the search index", e);
+                    }
+                }
+            });
+        }
+        if (dirty.getAndSet(false)) {
+            try {
+                indexWriter.commit();
+            } catch (IOException e) {
+                dirty.set(true);
+                log.error("Error committing the search index", e);
+            }
+        }
+    }
+
+    @Override
+    protected Scheduler scheduler() {
+        return Scheduler.newFixedDelaySchedule(0, commitInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Rebuild the index from the active tracks, albums and artists of the database.
+     *
+     * @throws IOException
+     */
+    public void rebuildIndex() throws IOException {
+        Stopwatch stopWatch = Stopwatch.createStarted();
+        Date startDate = new Date();
+        long previousGeneration = generation;
+        generation = Math.max(System.currentTimeMillis(), previousGeneration + 1);
+        int trackCount = indexTracks(new TrackCriteria());
+        List<AlbumDto> albumList = new AlbumDao().findByCriteria(new AlbumCriteria());
+        for (AlbumDto album : albumList) {
+            indexWriter.updateDocument(new Term("id", album.getId()), newDocument(TYPE_ALBUM, album.getId(), album.getName()));
+        }
+        List<Artist> artistList = new ArtistDao().getAllActive();
+        for (Artist artist : artistList) {
+            indexWriter.updateDocument(new Term("id", artist.getId()), newDocument(TYPE_ARTIST, artist.getId(), artist.getName()));
+        }
+
+        // Documents added or updated concurrently belong to the new generation too
+        indexWriter.deleteDocuments(NumericRangeQuery.newLongRange("generation", null, generation, true, false));
+        dirty.set(false);
+        indexWriter.commit();
+        searcherManager.maybeRefresh();
+        refreshDate = startDate;
+        if (log.isInfoEnabled()) {
+            log.info(MessageFormat.format("Search index rebuilt with {0} tracks, {1} albums and {2} artists in {3}",
+                    trackCount, albumList.size(), artistList.size(), stopWatch));
+        }
+    }
+
+    /**
+     * Refresh the index with the tracks, albums and artists changed in the database since the last refresh,
+     * by this node or by another node sharing the database.
+     *
+     * @throws IOException
+     */
+    public void refreshIndex() throws IOException {
+        Stopwatch stopWatch = Stopwatch.createStarted();
+        Date startDate = new Date();
+        Date updateDateMin = refreshDate == null ? new Date(0) : new Date(refreshDate.getTime() - refreshMargin);
+        int trackCount = indexTracks(new TrackCriteria().setUpdateDateMin(updateDateMin));
+        List<AlbumDto> albumList = new AlbumDao().findByCriteria(new AlbumCriteria().setUpdateDateMin(updateDateMin));
+        for (AlbumDto album : albumList) {
+            indexWriter.updateDocument(new Term("id", album.getId()), newDocument(TYPE_ALBUM, album.getId(), album.getName()));
+        }
+        List<ArtistDto> artistList = new ArtistDao().findByCriteria(new ArtistCriteria().setCreateDateMin(updateDateMin));
+        for (ArtistDto artist : artistList) {
+            indexWriter.updateDocument(new Term("id", artist.getId()), newDocument(TYPE_ARTIST, artist.getId(), artist.getName()));
+        }
+
+        if (trackCount + albumList.size() + artistList.size() > 0) {
+            dirty.set(true);
+            searcherManager.maybeRefreshBlocking();
+        }
+        refreshDate = startDate;
+        if (log.isDebugEnabled()) {
+            log.debug(MessageFormat.format("Search index refreshed with {0} tracks, {1} albums and {2} artists in {3}",
+                    trackCount, albumList.size(), artistList.size(), stopWatch));
+        }
+    }
+
+    /**
+     * Add / update the tracks matching the criteria in the index.
+     * The tracks are read by pages, each one seeking past the last track of the previous page.
+     *
+     * @param trackCriteria Track criteria
+     * @return Number of tracks
+     * @throws IOException
+     */
+    private int indexTracks(TrackCriteria trackCriteria) throws IOException {
+        TrackDao trackDao = new TrackDao();
+        int trackCount = 0;
+        while (true) {
+            PaginatedList<TrackDto> paginatedList = new PaginatedList<TrackDto>(rebuildPageSize, 0);
+            trackDao.findByCriteria(trackCriteria, paginatedList);
+            List<TrackDto> trackList = paginatedList.getResultList();
+            for (TrackDto track : trackList) {
+                indexWriter.updateDocument(new Term("id", track.getId()), newDocument(TYPE_TRACK, track.getId(), track.getTitle()));
+            }
+            trackCount += trackList.size();
+            if (trackList.size() < rebuildPageSize) {
+                return trackCount;
+            }
+            TrackDto lastTrack = trackList.get(trackList.size() - 1);
+            trackCriteria.setAfterTrackId(lastTrack.getId())
+                    .setAfterTitle(lastTrack.getTitle());
+        }
+    }
+
+    /**
+     * Add / update tracks in the index.
+     *
+     * @param trackList Tracks
+     */
+    public void updateTracks(List<Track> trackList) {
+        Map<String, String> nameMap = new LinkedHashMap<String, String>();
+        for (Track track : trackList) {
+            nameMap.put(track.getId(), track.getTitle());
+        }
+        updateDocuments(TYPE_TRACK, nameMap);
+    }
+
+    /**
+     * Add / update albums in the index.
+     *
+     * @param albumList Albums
+     */
+    public void updateAlbums(List<Album> albumList) {
+        Map<String, String> nameMap = new LinkedHashMap<String, String>();
+        for (Album album : albumList) {
+            nameMap.put(album.getId(), album.getName());
+        }
+        updateDocuments(TYPE_ALBUM, nameMap);
+    }
+
+    /**
+     * Add / update artists in the index.
+     *
+     * @param artistList Artists
+     */
+    public void updateArtists(List<Artist> artistList) {
+        Map<String, String> nameMap = new LinkedHashMap<String, String>();
+        for (Artist artist : artistList) {
+            nameMap.put(artist.getId(), artist.getName());
+        }
+        updateDocuments(TYPE_ARTIST, nameMap);
+    }
+
+    /**
+     * Search tracks by title.
+     *
+     * @param query Search query
+     * @param offset Offset of the first hit
+     * @param limit Maximum number of hits
+     * @return Hits, by decreasing relevance
+     */
+    public List<SearchHit> searchTracks(String query, int offset, int limit) {
+        return search(TYPE_TRACK, query, null, offset, limit);
+    }
+
+    /**
+     * Search tracks by title, from the last hit of the previous page.
+     *
+     * @param query Search query
+     * @param afterId ID of the last hit of the previous page
+     * @param limit Maximum number of hits
+     * @return Hits, by decreasing relevance
+     */
+    public List<SearchHit> searchTracks(String query, String afterId, int limit) {
+        return search(TYPE_TRACK, query, afterId, 0, limit);
+    }
+
+    /**
+     * Search albums by name.
+     *
+     * @param query Search query
+     * @param offset Offset of the first hit
+     * @param limit Maximum number of hits
+     * @return Hits, by decreasing relevance
+     */
+    public List<SearchHit> searchAlbums(String query, int offset, int limit) {
+        return search(TYPE_ALBUM, query, null, offset, limit);
+    }
+
+    /**
+     * Search all albums by name.
+     *
+     * @param query Search query
+     * @return Hits, by decreasing relevance
+     */
+    public List<SearchHit> searchAlbums(String query) {
+        return search(TYPE_ALBUM, query, null, 0, null);
+    }
+
+    /**
+     * Search artists by name.
+     *
+     * @param query Search query
+     * @param offset Offset of the first hit
+     * @param limit Maximum number of hits
+     * @return Hits, by decreasing relevance
+     */
+    public List<SearchHit> searchArtists(String query, int offset, int limit) {
+        return search(TYPE_ARTIST, query, null, offset, limit);
+    }
+
+    /**
+     * Search all artists by name.
+     *
+     * @param query Search query
+     * @return Hits, by decreasing relevance
+     */
+    public List<SearchHit> searchArtists(String query) {
+        return search(TYPE_ARTIST, query, null, 0, null);
+    }
+
+    /**
+     * Add / update documents in the index once the current transaction is committed,
+     * and make them visible to the searches. They are committed to the Lucene directory by the next iteration.
+     *
+     * @param type Document type
+     * @param nameMap Names, by ID
+     */
+    private void updateDocuments(final String type, final Map<String, String> nameMap) {
+        if (nameMap.isEmpty()) {
+            return;
+        }
+        TransactionUtil.afterCommit(new Runnable() {
+            @Override
+            public void run() {
+                if (!isRunning()) {
+                    // The index is not opened yet, its first rebuild reads the committed names from the database
+                    return;
+                }
+                try {
+                    // The documents are created now, to belong to the generation of a concurrent rebuild
+                    for (Entry<String, String> entry : nameMap.entrySet()) {
+                        indexWriter.updateDocument(new Term("id", entry.getKey()), newDocument(type, entry.getKey(), entry.getValue()));
+                    }
+                    dirty.set(true);
+                    searcherManager.maybeRefreshBlocking();
+                } catch (IOException e) {
+                    log.error("Error updating the search index", e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Search the documents of a type by name.
+     * Each term of the query must match a term of the name exactly, as a prefix, or approximately.
+     * With a cursor, the search resumes after the score of the cursor document, so a deep page costs the same as the first one.
+     *
+     * @param type Document type
+     * @param queryString Search query
+     * @param afterId ID of the last hit of the previous page, replaces the offset (null for none)
+     * @param offset Offset of the first hit
+     * @param limit Maximum number of hits (null for all)
+     * @return Hits, by decreasing relevance
+     */
+    private List<SearchHit> search(String type, String queryString, String afterId, int offset, Integer limit) {
+        List<SearchHit> searchHitList = new ArrayList<SearchHit>();
+        if (!awaitIndex()) {
+            return searchDatabase(type, queryString, afterId, offset, limit);
+        }
+
+        try {
+            List<String> termList = analyze(queryString);
+            if (termList.isEmpty()) {
+                return searchHitList;
+            }
+            BooleanQuery query = new BooleanQuery();
+            query.add(new TermQuery(new Term("type", type)), Occur.MUST);
+            for (String term : termList) {
+                BooleanQuery termQuery = new BooleanQuery();
+                TermQuery exactQuery = new TermQuery(new Term("name", term));
+                exactQuery.setBoost(3f);
+                termQuery.add(exactQuery, Occur.SHOULD);
+                PrefixQuery prefixQuery = new PrefixQuery(new Term("name", term));
+                prefixQuery.setBoost(2f);
+                prefixQuery.setRewriteMethod(new MultiTermQuery.TopTermsScoringBooleanQueryRewrite(PREFIX_MAX_TERMS));
+                termQuery.add(prefixQuery, Occur.SHOULD);
+                if (term.length() >= FUZZY_MIN_LENGTH) {
+                    termQuery.add(new FuzzyQuery(new Term("name", term), 1, 1), Occur.SHOULD);
+                }
+                query.add(termQuery, Occur.MUST);
+            }
+
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                TopDocs topDocs;
+                if (afterId != null) {
+                    // Resume after the cursor document, the page is empty if it doesn't match anymore
+                    TopDocs afterTopDocs = searcher.search(query, new QueryWrapperFilter(new TermQuery(new Term("id", afterId))), 1);
+                    if (afterTopDocs.scoreDocs.length == 0) {
+                        return searchHitList;
+                    }
+                    topDocs = searcher.searchAfter(afterTopDocs.scoreDocs[0], query, limit);
+                } else if (limit != null) {
+                    topDocs = searcher.search(query, offset + limit);
+                } else {
+                    // Count the hits first, the hit queue is allocated for the requested number of hits
+                    TotalHitCountCollector totalHitCountCollector = new TotalHitCountCollector();
+                    searcher.search(query, totalHitCountCollector);
+                    topDocs = searcher.search(query, Math.max(1, offset + totalHitCountCollector.getTotalHits()));
+                }
+                Highlighter highlighter = new Highlighter(new SimpleHTMLFormatter("<strong>", "</strong>"),
+                        new SimpleHTMLEncoder(), new QueryScorer(searcher.rewrite(query), "name"));
+                highlighter.setTextFragmenter(new NullFragmenter());
+                for (int i = offset; i < topDocs.scoreDocs.length; i++) {
+                    ScoreDoc scoreDoc = topDocs.scoreDocs[i];
+                    Document document = searcher.doc(scoreDoc.doc);
+                    String name = document.get("name");
+                    String highlight = highlighter.getBestFragment(analyzer, "name", name);
+                    searchHitList.add(new SearchHit(document.get("id"), highlight != null ? highlight : name));
+                }
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (Exception e) {
+            log.error("Error searching the index for: " + queryString, e);
+        }
+        return searchHitList;
+    }
+
+    /**
+     * Search the documents of a type by name in the database, when the index is not available.
+     * The names containing the query are returned in name order, without approximate matching.
+     *
+     * @param type Document type
+     * @param queryString Search query
+     * @param afterId ID of the last hit of the previous page, replaces the offset (null for none)
+     * @param offset Offset of the first hit
+     * @param limit Maximum number of hits (null for all)
+     * @return Hits, by name
+     */
+    private List<SearchHit> searchDatabase(String type, String queryString, String afterId, int offset, Integer limit) {
+        Map<String, String> nameMap = new LinkedHashMap<String, String>();
+        if (TYPE_TRACK.equals(type)) {
+            PaginatedList<TrackDto> paginatedList = new PaginatedList<TrackDto>(limit, afterId == null ? offset : 0);
+            new TrackDao().findByCriteria(new TrackCriteria()
+                    .setTitleLike(queryString)
+                    .setAfterTrackId(afterId), paginatedList);
+            for (TrackDto track : paginatedList.getResultList()) {
+                nameMap.put(track.getId(), track.getTitle());
+            }
+            offset = 0;
+        } else if (TYPE_ALBUM.equals(type)) {
+            for (AlbumDto album : new AlbumDao().findByCriteria(new AlbumCriteria().setNameLike(queryString))) {
+                nameMap.put(album.getId(), album.getName());
+            }
+        } else {
+            for (ArtistDto artist : new ArtistDao().findByCriteria(new ArtistCriteria().setNameLike(queryString))) {
+                nameMap.put(artist.getId(), artist.getName());
+            }
+        }
+
+        List<SearchHit> searchHitList = new ArrayList<SearchHit>();
+        int i = 0;
+        for (Entry<String, String> entry : nameMap.entrySet()) {
+            if (i++ < offset) {
+                continue;
+            }
+            if (limit != null && searchHitList.size() >= limit) {
+                break;
+            }
+            searchHitList.add(new SearchHit(entry.getKey(), SimpleHTMLEncoder.htmlEncode(entry.getValue())));
+        }
+        return searchHitList;
+    }
+
+    /**
+     * Wait until the index is opened.
+     *
+     * @return True if the index is available
+     */
+    private boolean awaitIndex() {
+        try {
+            awaitRunning(awaitTimeout, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (TimeoutException e) {
+            log.warn(MessageFormat.format("Search index not opened after {0}ms, searching the database", awaitTimeout));
+            return false;
+        } catch (IllegalStateException e) {
+            log.error("Search index not available, searching the database", e);
+            return false;
+        }
+    }
+
+    /**
+     * Split a search query into index terms.
+     *
+     * @param queryString Search query
+     * @return Terms
+     * @throws IOException
+     */
+    private List<String> analyze(String queryString) throws IOException {
+        List<String> termList = new ArrayList<String>();
+        TokenStream tokenStream = analyzer.tokenStream("name", new StringReader(queryString));
+        try {
+            CharTermAttribute charTermAttribute = tokenStream.addAttribute(CharTermAttribute.class);
+            tokenStream.reset();
+            while (tokenStream.incrementToken()) {
+                termList.add(charTermAttribute.toString());
+            }
+            tokenStream.end();
+        } finally {
+            tokenStream.close();
+        }
+        return termList;
+    }
+
+    /**
+     * Creates a new document.
+     *
+     * @param type Document type
+     * @param id ID of the track, album or artist
+     * @param name Name of the track, album or artist
+     * @return Document
+     */
+    private Document newDocument(String type, String id, String name) {
+        Document document = new Document();
+        document.add(new StringField("id", id, Field.Store.YES));
+        document.add(new StringField("type", type, Field.Store.NO));
+        document.add(new LongField("generation", generation, Field.Store.NO));
+        document.add(new TextField("name", name != null ? name : "", Field.Store.YES));
+        return document;
+    }
+}
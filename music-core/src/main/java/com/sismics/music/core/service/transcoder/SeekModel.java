@@ -0,0 +1,97 @@
+package com.sismics.music.core.service.transcoder;
+
+/**
+ * Byte to time mapping of a constant bitrate MP3 stream.
+ * The transcoders output MPEG-1 Layer III frames of 1152 samples at 44.1 kHz, so the frames have
+ * a constant average size and each byte offset falls in a known frame.
+ *
+ * @author jtremeaux
+ */
+public class SeekModel {
+    /**
+     * Sample rate of the transcoded streams (in Hz).
+     */
+    public static final int SAMPLE_RATE = 44100;
+
+    /**
+     * Number of samples per MP3 frame.
+     */
+    public static final int SAMPLES_PER_FRAME = 1152;
+
+    /**
+     * Average size of a frame (in bytes).
+     */
+    private double frameSize;
+
+    /**
+     * Number of frames of the stream.
+     */
+    private long frameCount;
+
+    /**
+     * Constructor of SeekModel.
+     *
+     * @param bitrate Bitrate of the stream (in kbps)
+     * @param duration Duration of the stream (in seconds)
+     */
+    public SeekModel(int bitrate, int duration) {
+        frameSize = (double) SAMPLES_PER_FRAME / 8 * bitrate * 1000 / SAMPLE_RATE;
+        frameCount = ((long) duration * SAMPLE_RATE + SAMPLES_PER_FRAME - 1) / SAMPLES_PER_FRAME;
+    }
+
+    /**
+     * Returns the size of the stream.
+     *
+     * @return Size (in bytes)
+     */
+    public long getLength() {
+        return getFrameOffset(frameCount);
+    }
+
+    /**
+     * Getter of frameCount.
+     *
+     * @return frameCount
+     */
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Returns the frame containing a byte.
+     *
+     * @param offset Byte offset
+     * @return Frame index
+     */
+    public long getFrameIndex(long offset) {
+        long frameIndex = (long) (offset / frameSize);
+        // Correct the rounding of the frame boundaries
+        while (frameIndex > 0 && getFrameOffset(frameIndex) > offset) {
+            frameIndex--;
+        }
+        while (getFrameOffset(frameIndex + 1) <= offset) {
+            frameIndex++;
+        }
+        return frameIndex;
+    }
+
+    /**
+     * Returns the offset of the first byte of a frame.
+     *
+     * @param frameIndex Frame index
+     * @return Byte offset
+     */
+    public long getFrameOffset(long frameIndex) {
+        return (long) Math.floor(frameIndex * frameSize);
+    }
+
+    /**
+     * Returns the start time of a frame.
+     *
+     * @param frameIndex Frame index
+     * @return Time (in seconds)
+     */
+    public double getFrameTime(long frameIndex) {
+        return (double) frameIndex * SAMPLES_PER_FRAME / SAMPLE_RATE;
+    }
+}
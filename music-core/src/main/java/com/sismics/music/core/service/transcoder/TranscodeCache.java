@@ -0,0 +1,407 @@
+package com.sismics.music.core.service.transcoder;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.MessageFormat;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.hash.Hashing;
+
+/**
+ * On-disk cache of transcoded tracks.
+ * Entries are addressed by the source file and the transcoding parameters, and evicted by LRU
+ * once the cache exceeds its size budget.
+ *
+ * @author jtremeaux
+ */
+public class TranscodeCache {
+    /**
+     * Logger.
+     */
+    private static final Logger log = LoggerFactory.getLogger(TranscodeCache.class);
+
+    /**
+     * Extension of the cached files.
+     */
+    private static final String CACHE_EXTENSION = ".cache";
+
+    /**
+     * Extension of the files being written.
+     */
+    private static final String TEMP_EXTENSION = ".tmp";
+
+    /**
+     * Cache directory.
+     */
+    private File directory;
+
+    /**
+     * Maximum size of the cache (in bytes).
+     */
+    private long maxSize;
+
+    /**
+     * Size of the cached entries, from the least to the most recently used.
+     */
+    private LinkedHashMap<String, Long> entryMap = new LinkedHashMap<String, Long>(16, 0.75f, true);
+
+    /**
+     * Current size of the cache (in bytes).
+     */
+    private long size;
+
+    /**
+     * Constructor of TranscodeCache.
+     *
+     * @param directory Cache directory
+     * @param maxSize Maximum size of the cache (in bytes)
+     */
+    public TranscodeCache(File directory, long maxSize) {
+        this.directory = directory;
+        this.maxSize = maxSize;
+
+        // Remove the streams interrupted by a shutdown
+        File[] tempFiles = directory.listFiles(new ExtensionFileFilter(TEMP_EXTENSION));
+        for (File tempFile : tempFiles) {
+            tempFile.delete();
+        }
+
+        // Restore the recency of the cached entries from their creation date
+        File[] cacheFiles = directory.listFiles(new ExtensionFileFilter(CACHE_EXTENSION));
+        Arrays.sort(cacheFiles, new Comparator<File>() {
+            @Override
+            public int compare(File f1, File f2) {
+                return Long.compare(f1.lastModified(), f2.lastModified());
+            }
+        });
+        for (File cacheFile : cacheFiles) {
+            String key = cacheFile.getName().substring(0, cacheFile.getName().length() - CACHE_EXTENSION.length());
+            entryMap.put(key, cacheFile.length());
+            size += cacheFile.length();
+        }
+        evict();
+    }
+
+    /**
+     * Returns the key of a transcoded file.
+     * The key changes when the source file or the transcoding pipeline is modified.
+     *
+     * @param file Source file
+     * @param transcodePlan Transcoding plan
+     * @return Cache key
+     */
+    public static String getKey(File file, TranscodePlan transcodePlan) {
+        String content = Joiner.on('\u0000').join(file.getAbsolutePath(), file.lastModified(), file.length(),
+                transcodePlan.getDestination(), transcodePlan.getBitrate(), Joiner.on('|').join(transcodePlan.getCommandList()));
+        return Hashing.sha1().hashString(content, Charsets.UTF_8).toString();
+    }
+
+    /**
+     * Returns a cached file, and marks it as recently used.
+     *
+     * @param key Cache key
+     * @return Cached file, or null if not cached
+     */
+    public synchronized File get(String key) {
+        if (entryMap.get(key) == null) {
+            return null;
+        }
+        File file = getFile(key, CACHE_EXTENSION);
+        if (!file.isFile()) {
+            size -= entryMap.remove(key);
+            return null;
+        }
+        return file;
+    }
+
+    /**
+     * Wraps a stream so that its content is cached as it is read.
+     * The entry is committed when the stream is read completely, and dropped if it is closed before.
+     *
+     * @param key Cache key
+     * @param is Stream to cache
+     * @return Caching stream
+     * @throws IOException
+     */
+    public InputStream cache(String key, InputStream is) throws IOException {
+        return cache(key, is, null);
+    }
+
+    /**
+     * Wraps a stream so that its content is cached as it is read.
+     * The entry is committed when the stream is read completely and its content is valid, and dropped otherwise.
+     *
+     * @param key Cache key
+     * @param is Stream to cache
+     * @param check Check of the content at the end of the stream, null for none
+     * @return Caching stream
+     * @throws IOException
+     */
+    public InputStream cache(String key, InputStream is, Check check) throws IOException {
+        File tempFile = getFile(key + "." + UUID.randomUUID().toString(), TEMP_EXTENSION);
+        return new CachingInputStream(key, is, tempFile, check);
+    }
+
+    /**
+     * Returns the current size of the cache.
+     *
+     * @return Size (in bytes)
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * Commits a fully written temporary file into the cache.
+     *
+     * @param key Cache key
+     * @param tempFile Temporary file
+     */
+    private void commit(String key, File tempFile) {
+        if (tempFile.length() == 0) {
+            // The transcoder failed without output
+            tempFile.delete();
+            return;
+        }
+        File file = getFile(key, CACHE_EXTENSION);
+        synchronized (this) {
+            try {
+                Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                log.error(MessageFormat.format("Error caching transcoded file {0}", file), e);
+                tempFile.delete();
+                return;
+            }
+            Long previousSize = entryMap.put(key, file.length());
+            if (previousSize != null) {
+                size -= previousSize;
+            }
+            size += file.length();
+            evict();
+        }
+    }
+
+    /**
+     * Removes the least recently used entries until the cache fits its size budget.
+     */
+    private synchronized void evict() {
+        Iterator<Map.Entry<String, Long>> iterator = entryMap.entrySet().iterator();
+        while (size > maxSize && iterator.hasNext()) {
+            Map.Entry<String, Long> entry = iterator.next();
+            iterator.remove();
+            size -= entry.getValue();
+            getFile(entry.getKey(), CACHE_EXTENSION).delete();
+            if (log.isDebugEnabled()) {
+                log.debug(MessageFormat.format("Evicted transcoded file {0} from the cache", entry.getKey()));
+            }
+        }
+    }
+
+    /**
+     * Returns a file of the cache directory.
+     *
+     * @param name File name
+     * @param extension File extension
+     * @return File
+     */
+    private File getFile(String name, String extension) {
+        return new File(directory, name + extension);
+    }
+
+    /**
+     * Check of the content of a stream, once read completely.
+     */
+    public interface Check {
+        /**
+         * Returns true if the content can be cached.
+         *
+         * @return True if valid
+         */
+        boolean isValid();
+    }
+
+    /**
+     * Filter of files by extension.
+     */
+    private static class ExtensionFileFilter implements FileFilter {
+        /**
+         * Extension to accept.
+         */
+        private String extension;
+
+        /**
+         * Constructor of ExtensionFileFilter.
+         *
+         * @param extension Extension to accept
+         */
+        public ExtensionFileFilter(String extension) {
+            this.extension = extension;
+        }
+
+        @Override
+        public boolean accept(File file) {
+            return file.isFile() && file.getName().endsWith(extension);
+        }
+    }
+
+    /**
+     * Input stream that copies its content to a temporary file of the cache.
+     */
+    private class CachingInputStream extends FilterInputStream {
+        /**
+         * Cache key.
+         */
+        private String key;
+
+        /**
+         * Temporary file.
+         */
+        private File tempFile;
+
+        /**
+         * Check of the content, null for none.
+         */
+        private Check check;
+
+        /**
+         * Output stream to the temporary file, null once the stream is completed or failed.
+         */
+        private OutputStream os;
+
+        /**
+         * Constructor of CachingInputStream.
+         *
+         * @param key Cache key
+         * @param is Stream to cache
+         * @param tempFile Temporary file
+         * @param check Check of the content, null for none
+         * @throws IOException
+         */
+        public CachingInputStream(String key, InputStream is, File tempFile, Check check) throws IOException {
+            super(is);
+            this.key = key;
+            this.tempFile = tempFile;
+            this.check = check;
+            this.os = new FileOutputStream(tempFile);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b == -1) {
+                complete();
+            } else {
+                write(new byte[] { (byte) b }, 0, 1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n == -1) {
+                complete();
+            } else {
+                write(b, off, n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // Skipped bytes would leave a hole in the cached file
+            abort();
+            return super.skip(n);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                abort();
+            }
+        }
+
+        /**
+         * Copies bytes to the temporary file.
+         * A failure on the cache side does not interrupt the stream.
+         *
+         * @param b Buffer
+         * @param off Offset
+         * @param len Number of bytes
+         */
+        private void write(byte[] b, int off, int len) {
+            if (os == null) {
+                return;
+            }
+            try {
+                os.write(b, off, len);
+            } catch (IOException e) {
+                log.error(MessageFormat.format("Error writing transcoded file {0} to the cache", tempFile), e);
+                abort();
+            }
+        }
+
+        /**
+         * Commits the temporary file at the end of the stream.
+         */
+        private void complete() {
+            if (os == null) {
+                return;
+            }
+            try {
+                os.close();
+                os = null;
+            } catch (IOException e) {
+                log.error(MessageFormat.format("Error writing transcoded file {0} to the cache", tempFile), e);
+                abort();
+                return;
+            }
+            if (check != null && !check.isValid()) {
+                log.warn(MessageFormat.format("Transcoded file {0} is incomplete, not cached", tempFile));
+                tempFile.delete();
+                return;
+            }
+            commit(key, tempFile);
+        }
+
+        /**
+         * Drops the temporary file of an incomplete stream.
+         */
+        private void abort() {
+            if (os == null) {
+                return;
+            }
+            try {
+                os.close();
+            } catch (IOException e) {
+                // NOP
+            }
+            os = null;
+            tempFile.delete();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.sismics.music.core.service.transcoder;
+
+import java.util.List;
+
+import com.google.common.base.Objects;
+
+/**
+ * Transcoding pipeline chosen for a track.
+ *
+ * @author jtremeaux
+ */
+public class TranscodePlan {
+    /**
+     * Commands of the pipeline, each one reading the output of the previous one.
+     */
+    private List<String> commandList;
+
+    /**
+     * Destination format.
+     */
+    private String destination;
+
+    /**
+     * Target bitrate (in kbps).
+     */
+    private int bitrate;
+
+    /**
+     * Constructor of TranscodePlan.
+     *
+     * @param commandList Commands of the pipeline
+     * @param destination Destination format
+     * @param bitrate Target bitrate (in kbps)
+     */
+    public TranscodePlan(List<String> commandList, String destination, int bitrate) {
+        this.commandList = commandList;
+        this.destination = destination;
+        this.bitrate = bitrate;
+    }
+
+    /**
+     * Getter of commandList.
+     *
+     * @return commandList
+     */
+    public List<String> getCommandList() {
+        return commandList;
+    }
+
+    /**
+     * Getter of destination.
+     *
+     * @return destination
+     */
+    public String getDestination() {
+        return destination;
+    }
+
+    /**
+     * Getter of bitrate.
+     *
+     * @return bitrate
+     */
+    public int getBitrate() {
+        return bitrate;
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("commandList", commandList)
+                .add("destination", destination)
+                .add("bitrate", bitrate)
+                .toString();
+    }
+}
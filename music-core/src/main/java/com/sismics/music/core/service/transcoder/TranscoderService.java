@@ -1,15 +1,45 @@
 package com.sismics.music.core.service.transcoder;
 
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sismics.music.core.dao.dbi.TranscoderDao;
 import com.sismics.music.core.model.dbi.Track;
+import com.sismics.music.core.model.dbi.Transcoder;
+import com.sismics.music.core.util.DirectoryUtil;
+import com.sismics.util.io.FixedLengthInputStream;
 import com.sismics.util.io.TranscodedInputStream;
 import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.text.MessageFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Transcoder service.
@@ -18,84 +48,676 @@ import java.util.List;
  */
 public class TranscoderService {
     /**
-     * Returns a transcoded stream for a track.
+     * Logger.
+     */
+    private static final Logger log = LoggerFactory.getLogger(TranscoderService.class);
+
+    /**
+     * Format of the streamed tracks.
+     */
+    private static final String STREAM_FORMAT = "mp3";
+
+    /**
+     * Command used when no transcoder is configured for a format.
+     * Outputs bare constant bitrate frames at 44.1 kHz, without tags, to match the seek model.
+     */
+    private static final String DEFAULT_COMMAND = "ffmpeg -ss %ss -i %s -map 0:a -ab %bk -ar " + SeekModel.SAMPLE_RATE
+            + " -v 0 -write_xing 0 -id3v2_version 0 -f mp3 -";
+
+    /**
+     * Standard bitrates of MPEG-1 Layer III (in kbps).
+     */
+    public static final int[] MP3_BITRATES = { 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320 };
+
+    /**
+     * Bitrate of the transcoded streams when the user has no limit (in kbps).
+     */
+    private static final int DEFAULT_BITRATE = 128;
+
+    /**
+     * Bitrates of the HLS variants (in kbps).
+     */
+    private static final int[] HLS_BITRATES = { 64, 128, 192, 320 };
+
+    /**
+     * Owner of the ID3 private frame holding the start time of an HLS segment.
+     */
+    private static final String HLS_TIMESTAMP_OWNER = "com.apple.streaming.transportStreamTimestamp";
+
+    /**
+     * Frequency of the MPEG-2 presentation timestamps (in Hz).
+     */
+    private static final int PTS_FREQUENCY = 90000;
+
+    /**
+     * Number of frames of an HLS segment (about 10 seconds).
+     */
+    private static final int HLS_SEGMENT_FRAME_COUNT = (10 * SeekModel.SAMPLE_RATE + SeekModel.SAMPLES_PER_FRAME - 1) / SeekModel.SAMPLES_PER_FRAME;
+
+    /**
+     * Length read from the beginning of the files streamed as is to prefetch them (in bytes).
+     */
+    private static final long PREFETCH_FILE_LENGTH = 2 * 1024 * 1024;
+
+    /**
+     * Cache of the transcoded tracks.
+     */
+    private TranscodeCache transcodeCache;
+
+    /**
+     * Maximum number of concurrent transcoder processes of the live streams.
+     */
+    private int maxProcessCount;
+
+    /**
+     * Permits to start a transcoder process, waiting streams are queued fairly.
+     */
+    private Semaphore processSemaphore;
+
+    /**
+     * Maximum number of concurrent transcoder processes of the prefetches.
+     */
+    private int maxPrefetchProcessCount;
+
+    /**
+     * Permits to start a prefetch transcoder process, separate from the live streams so that a prefetch never delays them.
+     */
+    private Semaphore prefetchProcessSemaphore;
+
+    /**
+     * Maximum time to wait for a transcoder process (in milliseconds).
+     */
+    private long processQueueTimeout;
+
+    /**
+     * Executor piping the output of a transcoding step into the next one.
+     */
+    private ExecutorService pipeExecutor;
+
+    /**
+     * File receiving the error output of the transcoder processes.
+     */
+    private File logFile;
+
+    /**
+     * Executor preparing the streams of the upcoming tracks.
+     */
+    private ThreadPoolExecutor prefetchExecutor;
+
+    /**
+     * Keys of the streams being prepared.
+     */
+    private Set<String> prefetchKeySet = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /**
+     * Constructor of TranscoderService.
+     */
+    public TranscoderService() {
+        long cacheSize = Long.getLong("music.transcode.cache_size", 1024) * 1024 * 1024;
+        transcodeCache = new TranscodeCache(DirectoryUtil.getTranscodeCacheDirectory(), cacheSize);
+        maxProcessCount = Integer.getInteger("music.transcode.max_processes", Runtime.getRuntime().availableProcessors());
+        processSemaphore = new Semaphore(maxProcessCount, true);
+        maxPrefetchProcessCount = Integer.getInteger("music.transcode.prefetch_processes", 1);
+        prefetchProcessSemaphore = new Semaphore(maxPrefetchProcessCount);
+        processQueueTimeout = Long.getLong("music.transcode.queue_timeout", 30000);
+        pipeExecutor = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat("TranscoderPipe-%d").setDaemon(true).build());
+        logFile = new File(DirectoryUtil.getLogDirectory(), "transcoder.log");
+        int prefetchThreadCount = Integer.getInteger("music.transcode.prefetch_threads", 1);
+        prefetchExecutor = new ThreadPoolExecutor(prefetchThreadCount, prefetchThreadCount,
+                60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(Integer.getInteger("music.transcode.prefetch_queue_size", 8)),
+                new ThreadFactoryBuilder().setNameFormat("TranscoderPrefetch-%d").setDaemon(true).build());
+        prefetchExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Stops the running pipes and prefetches.
+     */
+    public void shutDown() {
+        prefetchExecutor.shutdownNow();
+        pipeExecutor.shutdownNow();
+    }
+
+    /**
+     * Returns the number of running transcoder processes.
+     *
+     * @return Number of processes
+     */
+    public int getProcessCount() {
+        return maxProcessCount - processSemaphore.availablePermits()
+                + maxPrefetchProcessCount - prefetchProcessSemaphore.availablePermits();
+    }
+
+    /**
+     * Returns the number of streams waiting for a transcoder process.
+     *
+     * @return Number of streams
+     */
+    public int getQueuedProcessCount() {
+        return processSemaphore.getQueueLength();
+    }
+
+    /**
+     * Plans the transcoding of a track for a user.
+     * MP3 files within the user's bitrate limit are streamed as is, other files are transcoded
+     * with the configured transcoder for their format, or with ffmpeg by default.
+     *
+     * @param track Track to stream
+     * @param maxBitrate Maximum bitrate of the user (in kbps), null or 0 for no limit
+     * @return Transcoding plan, or null if the file can be streamed as is
+     */
+    public TranscodePlan getTranscodePlan(Track track, Integer maxBitrate) {
+        String format = StringUtils.lowerCase(track.getFormat());
+        Integer sourceBitrate = track.getBitrate();
+        boolean limited = maxBitrate != null && maxBitrate > 0;
+        if (STREAM_FORMAT.equals(format) && (!limited || sourceBitrate == null || sourceBitrate <= maxBitrate)) {
+            return null;
+        }
+
+        int bitrate = limited ? maxBitrate : DEFAULT_BITRATE;
+        if (sourceBitrate != null && sourceBitrate > 0 && sourceBitrate < bitrate) {
+            // Never encode above the bitrate of the source
+            bitrate = sourceBitrate;
+        }
+        return createTranscodePlan(format, getStandardBitrate(bitrate));
+    }
+
+    /**
+     * Returns the highest standard MP3 bitrate not above a bitrate.
+     *
+     * @param bitrate Bitrate (in kbps)
+     * @return Standard bitrate (in kbps), at least the lowest standard bitrate
+     */
+    public static int getStandardBitrate(int bitrate) {
+        int standardBitrate = MP3_BITRATES[0];
+        for (int mp3Bitrate : MP3_BITRATES) {
+            if (mp3Bitrate <= bitrate) {
+                standardBitrate = mp3Bitrate;
+            }
+        }
+        return standardBitrate;
+    }
+
+    /**
+     * Plans the HLS variants of a track for a user.
+     * Unlike progressive streams, HLS variants are always transcoded to get frame-aligned segments.
+     *
+     * @param track Track to stream
+     * @param maxBitrate Maximum bitrate of the user (in kbps), null or 0 for no limit
+     * @return Transcoding plans, from the lowest to the highest bitrate
+     */
+    public List<TranscodePlan> getHlsTranscodePlanList(Track track, Integer maxBitrate) {
+        String format = StringUtils.lowerCase(track.getFormat());
+        Integer sourceBitrate = track.getBitrate();
+        boolean limited = maxBitrate != null && maxBitrate > 0;
+        List<TranscodePlan> transcodePlanList = new ArrayList<TranscodePlan>();
+        for (int bitrate : HLS_BITRATES) {
+            if ((!limited || bitrate <= maxBitrate) && (sourceBitrate == null || sourceBitrate <= 0 || bitrate <= sourceBitrate)) {
+                transcodePlanList.add(createTranscodePlan(format, bitrate));
+            }
+        }
+        if (transcodePlanList.isEmpty()) {
+            // Low bitrate source or limit, single variant
+            int bitrate = limited ? maxBitrate : HLS_BITRATES[0];
+            if (sourceBitrate != null && sourceBitrate > 0) {
+                bitrate = Math.min(bitrate, sourceBitrate);
+            }
+            transcodePlanList.add(createTranscodePlan(format, getStandardBitrate(bitrate)));
+        }
+        return transcodePlanList;
+    }
+
+    /**
+     * Returns the number of HLS segments of a track.
+     *
+     * @param track Track
+     * @param transcodePlan Transcoding plan
+     * @return Number of segments
+     */
+    public int getHlsSegmentCount(Track track, TranscodePlan transcodePlan) {
+        long frameCount = getSeekModel(track, transcodePlan).getFrameCount();
+        return (int) ((frameCount + HLS_SEGMENT_FRAME_COUNT - 1) / HLS_SEGMENT_FRAME_COUNT);
+    }
+
+    /**
+     * Returns the duration of an HLS segment.
+     *
+     * @param track Track
+     * @param transcodePlan Transcoding plan
+     * @param index Segment index
+     * @return Duration (in seconds)
+     */
+    public double getHlsSegmentDuration(Track track, TranscodePlan transcodePlan, int index) {
+        SeekModel seekModel = getSeekModel(track, transcodePlan);
+        long startFrame = (long) index * HLS_SEGMENT_FRAME_COUNT;
+        long endFrame = Math.min(startFrame + HLS_SEGMENT_FRAME_COUNT, seekModel.getFrameCount());
+        return seekModel.getFrameTime(endFrame) - seekModel.getFrameTime(startFrame);
+    }
+
+    /**
+     * Returns the file of an HLS segment, produced and cached on demand.
+     * Segments are cut from the cached transcoded track if available.
+     * Each segment starts with an ID3 tag holding its start time, so that the players can align the segments.
+     *
+     * @param track Track
+     * @param transcodePlan Transcoding plan
+     * @param index Segment index
+     * @return Segment file
+     * @throws Exception
+     */
+    public File getHlsSegmentFile(Track track, TranscodePlan transcodePlan, int index) throws Exception {
+        File file = new File(track.getFileName());
+        String key = TranscodeCache.getKey(file, transcodePlan) + "-hls-" + index;
+        File segmentFile = transcodeCache.get(key);
+        if (segmentFile != null) {
+            return segmentFile;
+        }
+
+        SeekModel seekModel = getSeekModel(track, transcodePlan);
+        long startFrame = (long) index * HLS_SEGMENT_FRAME_COUNT;
+        long endFrame = Math.min(startFrame + HLS_SEGMENT_FRAME_COUNT, seekModel.getFrameCount());
+        long from = seekModel.getFrameOffset(startFrame);
+        long length = seekModel.getFrameOffset(endFrame) - from;
+        InputStream is;
+        TranscodeCache.Check check = null;
+        File cachedFile = getCachedFile(track, transcodePlan);
+        if (cachedFile != null) {
+            is = new FileInputStream(cachedFile);
+            ByteStreams.skipFully(is, from);
+            is = ByteStreams.limit(is, length);
+        } else {
+            RangeInputStream rangeInputStream = getRangeInputStream(track, transcodePlan, from, length,
+                    processSemaphore, maxProcessCount, processQueueTimeout);
+            is = rangeInputStream;
+            check = rangeInputStream;
+        }
+        is = new SequenceInputStream(new ByteArrayInputStream(getHlsTimestampTag(seekModel.getFrameTime(startFrame))), is);
+        try (InputStream cachingInputStream = transcodeCache.cache(key, is, check)) {
+            ByteStreams.copy(cachingInputStream, ByteStreams.nullOutputStream());
+        }
+
+        segmentFile = transcodeCache.get(key);
+        if (segmentFile == null) {
+            throw new IOException("Segment " + index + " of track " + track.getId() + " not cached");
+        }
+        return segmentFile;
+    }
+
+    /**
+     * Returns the ID3 tag starting an HLS segment.
+     * The tag holds a private frame with the presentation timestamp of the first sample of the segment,
+     * as a 33 bits number at 90 kHz in 8 big-endian bytes.
+     *
+     * @param time Start time of the segment (in seconds)
+     * @return ID3v2.4 tag
+     */
+    static byte[] getHlsTimestampTag(double time) {
+        byte[] owner = HLS_TIMESTAMP_OWNER.getBytes(Charsets.ISO_8859_1);
+        int frameSize = owner.length + 1 + 8;
+        ByteBuffer buffer = ByteBuffer.allocate(10 + 10 + frameSize);
+
+        // Tag header
+        buffer.put(new byte[] { 'I', 'D', '3', 4, 0, 0 });
+        buffer.put(getSyncSafeInteger(10 + frameSize));
+
+        // PRIV frame
+        buffer.put(new byte[] { 'P', 'R', 'I', 'V' });
+        buffer.put(getSyncSafeInteger(frameSize));
+        buffer.put(new byte[] { 0, 0 });
+        buffer.put(owner);
+        buffer.put((byte) 0);
+        buffer.putLong(Math.round(time * PTS_FREQUENCY) & 0x1ffffffffL);
+        return buffer.array();
+    }
+
+    /**
+     * Returns a size of an ID3v2.4 tag, encoded on 4 bytes of 7 bits.
+     *
+     * @param size Size
+     * @return Encoded size
+     */
+    private static byte[] getSyncSafeInteger(int size) {
+        return new byte[] { (byte) (size >> 21 & 0x7f), (byte) (size >> 14 & 0x7f), (byte) (size >> 7 & 0x7f), (byte) (size & 0x7f) };
+    }
+
+    /**
+     * Creates a transcoding plan from the configured transcoder for a format.
+     *
+     * @param format Source format
+     * @param bitrate Target bitrate (in kbps)
+     * @return Transcoding plan
+     */
+    private TranscodePlan createTranscodePlan(String format, int bitrate) {
+        List<String> commandList = new ArrayList<String>();
+        Transcoder transcoder = findTranscoder(format);
+        if (transcoder == null) {
+            commandList.add(DEFAULT_COMMAND);
+        } else {
+            commandList.add(transcoder.getStep1());
+            if (StringUtils.isNotBlank(transcoder.getStep2())) {
+                commandList.add(transcoder.getStep2());
+            }
+        }
+        return new TranscodePlan(commandList, STREAM_FORMAT, bitrate);
+    }
+
+    /**
+     * Returns the cached transcoded file of a track.
+     *
+     * @param track Track
+     * @param transcodePlan Transcoding plan
+     * @return Transcoded file, or null if the track is not cached yet
+     */
+    public File getCachedFile(Track track, TranscodePlan transcodePlan) {
+        return transcodeCache.get(TranscodeCache.getKey(new File(track.getFileName()), transcodePlan));
+    }
+
+    /**
+     * Returns the seek model of a transcoded track.
+     *
+     * @param track Track
+     * @param transcodePlan Transcoding plan
+     * @return Seek model
+     */
+    public SeekModel getSeekModel(Track track, TranscodePlan transcodePlan) {
+        return new SeekModel(transcodePlan.getBitrate(), track.getLength());
+    }
+
+    /**
+     * Returns a transcoded stream for a range of a track.
+     * The transcoder seeks to the frame containing the first byte, and the stream has exactly the requested length.
+     * A stream of the whole track is cached once read completely.
+     * Waits for a free transcoder process if too many are running.
      *
      * @param track Track to transcode
-     * @param seek Time to seek (in seconds)
+     * @param transcodePlan Transcoding plan
+     * @param from First byte of the range
+     * @param length Length of the range (in bytes)
      * @return Transcoded input stream
+     * @throws RejectedExecutionException No transcoder process became available in time
      * @throws Exception
      */
-    public InputStream getTranscodedInputStream(Track track, int seek) throws Exception {
+    public InputStream getTranscodedInputStream(Track track, TranscodePlan transcodePlan, long from, long length) throws Exception {
+        return getTranscodedInputStream(track, transcodePlan, from, length, processSemaphore, maxProcessCount, processQueueTimeout);
+    }
+
+    /**
+     * Prepares the stream of an upcoming track in the background.
+     * Transcoded tracks are transcoded into the cache if a prefetch transcoder process is free,
+     * the beginning of other files is read into the page cache of the system.
+     * The prefetches have their own transcoder processes, and never take those of the live streams.
+     *
+     * @param track Track
+     * @param transcodePlan Transcoding plan, null if the file is streamed as is
+     */
+    public void prefetch(final Track track, final TranscodePlan transcodePlan) {
         final File file = new File(track.getFileName());
-        ProcessBuilder pb = getProcessBuilder(track, seek);
-        return new TranscodedInputStream(pb, new FileInputStream(file));
+        final String key = transcodePlan == null ? file.getAbsolutePath() : TranscodeCache.getKey(file, transcodePlan);
+        if (transcodePlan != null && (maxPrefetchProcessCount <= 0 || transcodeCache.get(key) != null) || !prefetchKeySet.add(key)) {
+            // Transcoding prefetch disabled, already cached or being prepared
+            return;
+        }
+
+        try {
+            prefetchExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        if (transcodePlan == null) {
+                            readFileStart(file);
+                        } else {
+                            long length = getSeekModel(track, transcodePlan).getLength();
+                            try (InputStream is = getTranscodedInputStream(track, transcodePlan, 0, length, prefetchProcessSemaphore, maxPrefetchProcessCount, 0)) {
+                                ByteStreams.copy(is, ByteStreams.nullOutputStream());
+                            }
+                        }
+                    } catch (RejectedExecutionException e) {
+                        // No prefetch transcoder process available
+                        if (log.isDebugEnabled()) {
+                            log.debug(MessageFormat.format("Prefetch of track {0} skipped", track.getId()));
+                        }
+                    } catch (Exception e) {
+                        log.warn(MessageFormat.format("Error prefetching track {0}", track.getId()), e);
+                    } finally {
+                        prefetchKeySet.remove(key);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Too many prefetches queued
+            prefetchKeySet.remove(key);
+        }
     }
 
     /**
-     * Returns a transcoded stream for a track.
+     * Returns a transcoded stream for a range of a track.
      *
      * @param track Track to transcode
+     * @param transcodePlan Transcoding plan
+     * @param from First byte of the range
+     * @param length Length of the range (in bytes)
+     * @param semaphore Permits to start the transcoder processes
+     * @param maxPermits Number of permits of the semaphore
+     * @param timeout Maximum time to wait for a transcoder process (in milliseconds)
      * @return Transcoded input stream
+     * @throws RejectedExecutionException No transcoder process became available in time
      * @throws Exception
      */
-    public InputStream getTranscodedInputStream(Track track) throws Exception {
-        return getTranscodedInputStream(track, 0);
+    private InputStream getTranscodedInputStream(Track track, TranscodePlan transcodePlan, long from, long length,
+            Semaphore semaphore, int maxPermits, long timeout) throws Exception {
+        RangeInputStream is = getRangeInputStream(track, transcodePlan, from, length, semaphore, maxPermits, timeout);
+        if (from == 0 && length == getSeekModel(track, transcodePlan).getLength()) {
+            try {
+                // A failed transcoding is not cached
+                return transcodeCache.cache(TranscodeCache.getKey(new File(track.getFileName()), transcodePlan), is, is);
+            } catch (IOException e) {
+                is.close();
+                throw e;
+            }
+        }
+        return is;
     }
 
-    private ProcessBuilder getProcessBuilder(Track track, int seek) {
-        // TODO Create process builder from settings
-        String command = "ffmpeg -i %s -ab %bk -v 0 -f mp3 -ss %ss -";
+    /**
+     * Starts the transcoder processes for a range of a track.
+     *
+     * @param track Track to transcode
+     * @param transcodePlan Transcoding plan
+     * @param from First byte of the range
+     * @param length Length of the range (in bytes)
+     * @param semaphore Permits to start the transcoder processes
+     * @param maxPermits Number of permits of the semaphore
+     * @param timeout Maximum time to wait for a transcoder process (in milliseconds)
+     * @return Transcoded input stream
+     * @throws RejectedExecutionException No transcoder process became available in time
+     * @throws Exception
+     */
+    private RangeInputStream getRangeInputStream(Track track, TranscodePlan transcodePlan, long from, long length,
+            Semaphore semaphore, int maxPermits, long timeout) throws Exception {
+        SeekModel seekModel = getSeekModel(track, transcodePlan);
+        List<String> commandList = transcodePlan.getCommandList();
+        long frameIndex = isSeekable(commandList.get(0)) ? seekModel.getFrameIndex(from) : 0;
+        double seek = seekModel.getFrameTime(frameIndex);
+        final int permits = Math.min(commandList.size(), maxPermits);
+        if (!semaphore.tryAcquire(permits, timeout, TimeUnit.MILLISECONDS)) {
+            throw new RejectedExecutionException("Too many transcoder processes");
+        }
+
+        TranscodedInputStream is = null;
+        try {
+            for (int i = 0; i < commandList.size(); i++) {
+                // The first step reads the file itself, each next step reads the output of the previous one
+                ProcessBuilder pb = getProcessBuilder(commandList.get(i), track, transcodePlan.getBitrate(), i == 0 ? seek : 0);
+                is = new TranscodedInputStream(pb, is, pipeExecutor);
+            }
+        } catch (Exception e) {
+            if (is != null) {
+                is.close();
+            }
+            semaphore.release(permits);
+            throw e;
+        }
+
+        // Skip to the first byte inside the frame, and stick to the length of the model
+        return new RangeInputStream(is, from - seekModel.getFrameOffset(frameIndex), length, semaphore, permits);
+    }
+
+    /**
+     * Reads the beginning of a file, so that it is in the page cache when streamed.
+     *
+     * @param file File
+     * @throws IOException
+     */
+    private void readFileStart(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            long position = 0;
+            while (position < PREFETCH_FILE_LENGTH) {
+                buffer.clear();
+                int n = channel.read(buffer, position);
+                if (n == -1) {
+                    break;
+                }
+                position += n;
+            }
+        }
+    }
+
+    /**
+     * Returns the transcoder configured for a source format.
+     *
+     * @param format Source format
+     * @return Transcoder, or null if none is configured
+     */
+    private Transcoder findTranscoder(String format) {
+        for (Transcoder transcoder : new TranscoderDao().findAll()) {
+            if (!STREAM_FORMAT.equalsIgnoreCase(StringUtils.trim(transcoder.getDestination()))) {
+                continue;
+            }
+            for (String source : StringUtils.split(transcoder.getSource())) {
+                if (source.equalsIgnoreCase(format)) {
+                    return transcoder;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns true if the first step of a transcoding can start at a given time.
+     * Commands with a seek placeholder and ffmpeg can, other commands transcode from the start and the output is skipped.
+     *
+     * @param command Command of the first step
+     * @return True if the command can seek
+     */
+    static boolean isSeekable(String command) {
+        if (command.contains("%ss")) {
+            return true;
+        }
+        String[] commandArray = StringUtils.split(command);
+        if (commandArray.length == 0) {
+            return false;
+        }
+        String executable = new File(commandArray[0]).getName().toLowerCase();
+        return executable.equals("ffmpeg") || executable.equals("ffmpeg.exe");
+    }
+
+    /**
+     * Builds the process of a transcoding step.
+     *
+     * @param command Command of the step
+     * @param track Track to transcode
+     * @param bitrate Target bitrate (in kbps)
+     * @param seek Time to seek (in seconds)
+     * @return Process builder
+     */
+    private ProcessBuilder getProcessBuilder(String command, Track track, int bitrate, double seek) {
         List<String> result = new LinkedList<String>(Arrays.asList(StringUtils.split(command)));
-        //result.set(0, getTranscodeDirectory().getPath() + File.separatorChar + result.get(0));
+        String seekString = String.format(Locale.ENGLISH, "%.3f", seek);
+        if (seek > 0 && !command.contains("%ss")) {
+            // Seek on the input of ffmpeg commands without a seek placeholder
+            result.add(1, "-ss");
+            result.add(2, seekString);
+        }
 
-        int maxBitRate = 128;
         for (int i = 1; i < result.size(); i++) {
             String cmd = result.get(i);
             if (cmd.contains("%b")) {
-                cmd = cmd.replace("%b", String.valueOf(maxBitRate));
+                cmd = cmd.replace("%b", String.valueOf(bitrate));
             }
             if (cmd.contains("%ss")) {
-                cmd = cmd.replace("%ss", String.valueOf(seek));
+                cmd = cmd.replace("%ss", seekString);
             }
-//            if (cmd.contains("%t")) {
-//                cmd = cmd.replace("%t", title);
-//            }
-//            if (cmd.contains("%l")) {
-//                cmd = cmd.replace("%l", album);
-//            }
-//            if (cmd.contains("%a")) {
-//                cmd = cmd.replace("%a", artist);
-//            }
-//            if (cmd.contains("%o") && videoTranscodingSettings != null) {
-//                cmd = cmd.replace("%o", String.valueOf(videoTranscodingSettings.getTimeOffset()));
-//            }
-//            if (cmd.contains("%d") && videoTranscodingSettings != null) {
-//                cmd = cmd.replace("%d", String.valueOf(videoTranscodingSettings.getDuration()));
-//            }
-//            if (cmd.contains("%w") && videoTranscodingSettings != null) {
-//                cmd = cmd.replace("%w", String.valueOf(videoTranscodingSettings.getWidth()));
-//            }
-//            if (cmd.contains("%h") && videoTranscodingSettings != null) {
-//                cmd = cmd.replace("%h", String.valueOf(videoTranscodingSettings.getHeight()));
-//            }
             if (cmd.contains("%s")) {
-
-                // Work-around for filename character encoding problem on Windows.
-                // Create temporary file, and feed this to the transcoder.
-                String path = track.getFileName();
-//                if (Util.isWindows() && !mediaFile.isVideo() && !StringUtils.isAsciiPrintable(path)) {
-//                    tmpFile = File.createTempFile("subsonic", "." + FilenameUtils.getExtension(path));
-//                    tmpFile.deleteOnExit();
-//                    FileUtils.copyFile(new File(path), tmpFile);
-//                    LOG.debug("Created tmp file: " + tmpFile);
-//                    cmd = cmd.replace("%s", tmpFile.getPath());
-//                } else {
-                    cmd = cmd.replace("%s", path);
-//                }
+                cmd = cmd.replace("%s", track.getFileName());
             }
-
             result.set(i, cmd);
         }
-        return new ProcessBuilder(result);
+        return new ProcessBuilder(result)
+                .redirectError(ProcessBuilder.Redirect.appendTo(logFile));
+    }
+
+    /**
+     * Transcoded stream of a range, which releases its transcoder processes when closed.
+     * The range is padded if the transcoder stops early, such a stream is not valid.
+     */
+    private static class RangeInputStream extends FilterInputStream implements TranscodeCache.Check {
+        /**
+         * Last step of the transcoding.
+         */
+        private TranscodedInputStream transcodedInputStream;
+
+        /**
+         * Stream of the range.
+         */
+        private FixedLengthInputStream fixedLengthInputStream;
+
+        /**
+         * Permits of the transcoder processes.
+         */
+        private Semaphore semaphore;
+
+        /**
+         * Number of permits held.
+         */
+        private int permits;
+
+        /**
+         * True if the processes are released.
+         */
+        private AtomicBoolean released = new AtomicBoolean();
+
+        /**
+         * Constructor of RangeInputStream.
+         *
+         * @param transcodedInputStream Last step of the transcoding
+         * @param skip Number of transcoded bytes to skip
+         * @param length Length of the range
+         * @param semaphore Permits of the transcoder processes
+         * @param permits Number of permits held
+         */
+        public RangeInputStream(TranscodedInputStream transcodedInputStream, long skip, long length, Semaphore semaphore, int permits) {
+            super(new FixedLengthInputStream(transcodedInputStream, skip, length));
+            this.fixedLengthInputStream = (FixedLengthInputStream) in;
+            this.transcodedInputStream = transcodedInputStream;
+            this.semaphore = semaphore;
+            this.permits = permits;
+        }
+
+        @Override
+        public boolean isValid() {
+            return !fixedLengthInputStream.isPadded() && !transcodedInputStream.isFailed();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                if (released.compareAndSet(false, true)) {
+                    semaphore.release(permits);
+                }
+            }
+        }
     }
 }
@@ -72,6 +72,24 @@ public class DirectoryUtil {
         return getDataSubDirectory("albumart");
     }
 
+    /**
+     * Returns the Lucene index directory.
+     * 
+     * @return Lucene index directory.
+     */
+    public static File getLuceneDirectory() {
+        return getDataSubDirectory("lucene");
+    }
+
+    /**
+     * Returns the transcode cache directory.
+     * 
+     * @return Transcode cache directory.
+     */
+    public static File getTranscodeCacheDirectory() {
+        return getDataSubDirectory("transcode");
+    }
+
     /**
      * Returns a subdirectory of the base data directory
      * 
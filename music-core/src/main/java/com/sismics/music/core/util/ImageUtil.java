@@ -1,5 +1,6 @@
 package com.sismics.music.core.util;
 
+import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.Image;
 import java.awt.Toolkit;
@@ -166,6 +167,18 @@ public class ImageUtil {
      * @throws java.io.IOException
      */
     public static void writeJpeg(BufferedImage image, File file) throws IOException {
+        writeJpeg(image, file, 1.f);
+    }
+
+    /**
+     * Converts the image to a JPEG.
+     *
+     * @param image Image to convert
+     * @param file Output file
+     * @param quality Compression quality, between 0 and 1
+     * @throws java.io.IOException
+     */
+    public static void writeJpeg(BufferedImage image, File file, float quality) throws IOException {
         Iterator<ImageWriter> iter = ImageIO.getImageWritersByFormatName("jpeg");
         ImageWriter writer = null;
         FileImageOutputStream output = null;
@@ -173,7 +186,7 @@ public class ImageUtil {
             writer = (ImageWriter) iter.next();
             ImageWriteParam iwp = writer.getDefaultWriteParam();
             iwp.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
-            iwp.setCompressionQuality(1.f);
+            iwp.setCompressionQuality(quality);
             output = new FileImageOutputStream(file);
             writer.setOutput(output);
             IIOImage iioImage = new IIOImage(image, null, null);
@@ -192,6 +205,37 @@ public class ImageUtil {
         }
     }
 
+    /**
+     * Read an image as opaque RGB.
+     * The image is decoded with ImageIO, and with the AWT toolkit if ImageIO cannot read it (e.g. CMYK JPEG).
+     *
+     * @param file Image file
+     * @return Image without alpha channel
+     * @throws Exception
+     */
+    public static BufferedImage readImage(File file) throws Exception {
+        BufferedImage image = null;
+        try {
+            image = ImageIO.read(file);
+        } catch (IOException e) {
+            // Fall back to the AWT toolkit
+        }
+        if (image == null) {
+            return readImageWithoutAlphaChannel(file);
+        }
+        if (image.getType() == BufferedImage.TYPE_INT_RGB || image.getType() == BufferedImage.TYPE_3BYTE_BGR) {
+            return image;
+        }
+
+        // Draw the image on an opaque background
+        BufferedImage rgbImage = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = rgbImage.createGraphics();
+        graphics.drawImage(image, 0, 0, Color.BLACK, null);
+        graphics.dispose();
+        image.flush();
+        return rgbImage;
+    }
+
     /**
      * Read an image and remove the alpha channel.
      * @param file Image file
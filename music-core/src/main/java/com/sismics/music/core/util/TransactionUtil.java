@@ -66,6 +66,7 @@ public class TransactionUtil {
         if (handle.isInTransaction()) {
             if (handle.isInTransaction()) {
                 handle.commit();
+                context.runAfterCommit();
                 
                 try {
                     handle.close();
@@ -76,12 +77,58 @@ public class TransactionUtil {
         }
     }
     
+    /**
+     * Runs an action once the current transaction is committed, e.g. to invalidate a cache.
+     * The action is run immediately if no transaction is in progress, and discarded if the transaction is rolled back.
+     *
+     * @param runnable Action
+     */
+    public static void afterCommit(Runnable runnable) {
+        ThreadLocalContext context = ThreadLocalContext.get();
+        Handle handle = context.isHandleOpened() ? context.getHandle() : null;
+        if (handle != null && handle.isInTransaction()) {
+            context.addAfterCommit(runnable);
+        } else {
+            runnable.run();
+        }
+    }
+
     /**
      * Commits the current transaction, and begins a new one.
      */
     public static void commit() {
-        Handle handle = ThreadLocalContext.get().getHandle();
+        ThreadLocalContext context = ThreadLocalContext.get();
+        Handle handle = context.getHandle();
         handle.commit();
+        context.runAfterCommit();
+        handle.begin();
+    }
+
+    /**
+     * Commits the current transaction, and gives the connection back to the pool before a long operation.
+     * If the database is used again afterwards, a new handle is opened.
+     */
+    public static void release() {
+        ThreadLocalContext context = ThreadLocalContext.get();
+        if (!context.isHandleOpened()) {
+            return;
+        }
+        Handle handle = context.getHandle();
+        if (handle.isInTransaction()) {
+            handle.commit();
+            context.runAfterCommit();
+        }
+        context.closeHandle();
+    }
+
+    /**
+     * Rolls back the current transaction, and begins a new one.
+     */
+    public static void rollback() {
+        ThreadLocalContext context = ThreadLocalContext.get();
+        Handle handle = context.getHandle();
+        handle.rollback();
+        context.clearAfterCommit();
         handle.begin();
     }
 }
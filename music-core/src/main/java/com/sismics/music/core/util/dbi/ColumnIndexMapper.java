@@ -7,6 +7,7 @@ import org.skife.jdbi.v2.tweak.ResultSetMapper;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.util.UUID;
 
 /**
  * Maps the results set to an indexed array.
@@ -31,7 +32,10 @@ public class ColumnIndexMapper implements ResultSetMapper<Object[]> {
         try {
             row = new Object[m.getColumnCount()];
             for (int i = 1; i <= m.getColumnCount(); i++) {
-                row[i - 1] = r.getObject(i);
+                Object value = r.getObject(i);
+                
+                // UUID keys are returned as strings
+                row[i - 1] = value instanceof UUID ? value.toString() : value;
             }
         } catch (SQLException e) {
             throw new ResultSetException("Unable to access specific metadata from " +
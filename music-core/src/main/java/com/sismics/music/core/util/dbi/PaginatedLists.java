@@ -1,10 +1,17 @@
 package com.sismics.music.core.util.dbi;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
 
 import org.skife.jdbi.v2.Query;
 import org.skife.jdbi.v2.util.IntegerMapper;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 /**
  * Utilities for paginated lists.
  * 
@@ -21,6 +28,15 @@ public class PaginatedLists {
      */
     private static final int MAX_PAGE_SIZE = 100;
 
+    /**
+     * Results of the count(*) requests, by query string and parameters.
+     * The count of a criteria is reused for a short time, so that browsing the pages doesn't count the results each time.
+     */
+    private static final Cache<String, Integer> countCache = CacheBuilder.newBuilder()
+            .maximumSize(1000)
+            .expireAfterWrite(Long.getLong("music.query.count_cache_ttl", 10000L), TimeUnit.MILLISECONDS)
+            .build();
+
     /**
      * Constructs a paginated list.
      * 
@@ -52,33 +68,54 @@ public class PaginatedLists {
     
     /**
      * Executes a native count(*) request to count the number of results.
+     * The result is cached for a short time per query string and parameters.
      * 
      * @param paginatedList Paginated list object containing parameters, and into which results are added by side effects
      * @param queryParam Query parameters
      */
     public static <E> void executeCountQuery(PaginatedList<E> paginatedList, QueryParam queryParam) {
+        String cacheKey = queryParam.getQueryString() + "\u0000" + new TreeMap<String, Object>(queryParam.getParameterMap());
+        Integer resultCount = countCache.getIfPresent(cacheKey);
+        if (resultCount == null) {
+            resultCount = executeCountQuery(queryParam);
+            countCache.put(cacheKey, resultCount);
+        }
+        paginatedList.setResultCount(resultCount);
+    }
+
+    /**
+     * Executes a native count(*) request to count the number of results.
+     * 
+     * @param queryParam Query parameters
+     * @return Number of results
+     */
+    private static Integer executeCountQuery(QueryParam queryParam) {
         StringBuilder sb = new StringBuilder("select count(*) as result_count from (");
         sb.append(queryParam.getQueryString());
         sb.append(") as t1");
         
         QueryParam countQueryParam = new QueryParam(sb.toString(), queryParam.getParameterMap());
         
-        Integer resultCount = QueryUtil.getNativeQuery(countQueryParam).map(IntegerMapper.FIRST).first();
-        paginatedList.setResultCount(resultCount);
+        return QueryUtil.getNativeQuery(countQueryParam).map(IntegerMapper.FIRST).first();
     }
 
     /**
-     * Executes a query and returns the data of the currunt page.
+     * Executes a query and returns the data of the current page.
+     * The page is selected by the database with limit / offset.
      * 
      * @param paginatedList Paginated list object containing parameters, and into which results are added by side effects
      * @param queryParam Query parameters
      * @return List of results
      */
     private static <E> List<Object[]> executeResultQuery(PaginatedList<E> paginatedList, QueryParam queryParam) {
-        Query<Object[]> q = QueryUtil.getNativeQuery(queryParam).map(ColumnIndexMapper.INSTANCE);
+        StringBuilder sb = new StringBuilder(queryParam.getQueryString());
+        sb.append(" limit :pageLimit offset :pageOffset");
+        
+        Map<String, Object> parameterMap = new HashMap<String, Object>(queryParam.getParameterMap());
+        parameterMap.put("pageLimit", paginatedList.getLimit());
+        parameterMap.put("pageOffset", paginatedList.getOffset());
         
-        //q.setOffset(paginatedList.getOffset()); // TODO how to do offset?
-        q.setMaxRows(paginatedList.getLimit());
+        Query<Object[]> q = QueryUtil.getNativeQuery(new QueryParam(sb.toString(), parameterMap)).map(ColumnIndexMapper.INSTANCE);
         return q.list();
     }
     
@@ -0,0 +1,45 @@
+package com.sismics.util;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * UUID utilities.
+ *
+ * @author jtremeaux
+ */
+public class UuidUtil {
+    /**
+     * Pattern of a UUID string.
+     */
+    private static final Pattern UUID_PATTERN = Pattern.compile("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}");
+
+    /**
+     * Random number generator.
+     */
+    private static final SecureRandom random = new SecureRandom();
+
+    /**
+     * Returns a new time-ordered UUID.
+     * The 48 most significant bits hold the current time in milliseconds, the rest is random (UUID version 7 layout),
+     * so that new keys are appended at the end of the indexes.
+     *
+     * @return UUID string
+     */
+    public static String newId() {
+        long msb = (System.currentTimeMillis() << 16) | 0x7000L | (random.nextInt() & 0x0fffL);
+        long lsb = (random.nextLong() & 0x3fffffffffffffffL) | 0x8000000000000000L;
+        return new UUID(msb, lsb).toString();
+    }
+
+    /**
+     * Returns true if the string is a valid UUID.
+     *
+     * @param id ID
+     * @return True if valid
+     */
+    public static boolean isUuid(String id) {
+        return id != null && UUID_PATTERN.matcher(id).matches();
+    }
+}
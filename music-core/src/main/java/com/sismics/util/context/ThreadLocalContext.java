@@ -1,6 +1,14 @@
 package com.sismics.util.context;
 
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
 import org.skife.jdbi.v2.Handle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sismics.util.dbi.DBIF;
 
 /**
  * Context associated to a user request, and stored in a ThreadLocal.
@@ -8,6 +16,11 @@ import org.skife.jdbi.v2.Handle;
  * @author jtremeaux
  */
 public class ThreadLocalContext {
+    /**
+     * Logger.
+     */
+    private static final Logger log = LoggerFactory.getLogger(ThreadLocalContext.class);
+
     /**
      * ThreadLocal to store the context.
      */
@@ -17,6 +30,21 @@ public class ThreadLocalContext {
      * JDBI handle.
      */
     private Handle handle;
+
+    /**
+     * True if the handle is opened on its first use.
+     */
+    private boolean lazyHandle;
+
+    /**
+     * True if the handle is opened read-only in autocommit mode, false if it is opened in a transaction.
+     */
+    private boolean readOnly;
+
+    /**
+     * Actions to run once the current transaction is committed.
+     */
+    private List<Runnable> afterCommitList = new ArrayList<>();
     
     /**
      * Private constructor.
@@ -47,14 +75,99 @@ public class ThreadLocalContext {
     }
     
     /**
-     * Getter of handle.
+     * Returns the JDBI handle, and opens it if the handle is lazy and not opened yet.
      *
      * @return handle
      */
     public Handle getHandle() {
+        if (handle == null && lazyHandle) {
+            handle = DBIF.get().open();
+            if (readOnly) {
+                try {
+                    handle.getConnection().setReadOnly(true);
+                } catch (SQLException e) {
+                    throw new RuntimeException("Cannot set the connection read-only", e);
+                }
+            } else {
+                handle.begin();
+            }
+        }
         return handle;
     }
 
+    /**
+     * Returns true if a handle is opened.
+     *
+     * @return Handle opened
+     */
+    public boolean isHandleOpened() {
+        return handle != null;
+    }
+
+    /**
+     * Opens the handle on its first use.
+     *
+     * @param readOnly True to open a read-only handle in autocommit mode, false to begin a transaction
+     */
+    public void setLazyHandle(boolean readOnly) {
+        this.lazyHandle = true;
+        this.readOnly = readOnly;
+    }
+
+    /**
+     * Closes the handle and gives its connection back to the pool.
+     * The transaction in progress must be committed or rolled back before.
+     * A lazy handle is opened again on its next use.
+     */
+    public void closeHandle() {
+        if (handle == null) {
+            return;
+        }
+        try {
+            if (readOnly) {
+                handle.getConnection().setReadOnly(false);
+            }
+            handle.close();
+        } catch (Exception e) {
+            throw new RuntimeException("Error closing DBI handle", e);
+        } finally {
+            handle = null;
+        }
+    }
+
+    /**
+     * Adds an action to run once the current transaction is committed.
+     * The action is discarded if the transaction is rolled back.
+     *
+     * @param runnable Action
+     */
+    public void addAfterCommit(Runnable runnable) {
+        afterCommitList.add(runnable);
+    }
+
+    /**
+     * Runs the actions waiting for the commit of the current transaction.
+     * Must be called once the transaction is committed.
+     */
+    public void runAfterCommit() {
+        List<Runnable> runnableList = afterCommitList;
+        afterCommitList = new ArrayList<>();
+        for (Runnable runnable : runnableList) {
+            try {
+                runnable.run();
+            } catch (Exception e) {
+                log.error("Error running an action after commit", e);
+            }
+        }
+    }
+
+    /**
+     * Discards the actions waiting for the commit of the current transaction, e.g. after a rollback.
+     */
+    public void clearAfterCommit() {
+        afterCommitList.clear();
+    }
+
     /**
      * Setter of handle.
      *
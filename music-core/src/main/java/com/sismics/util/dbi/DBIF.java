@@ -5,6 +5,7 @@ import com.sismics.music.core.dao.dbi.mapper.*;
 import com.sismics.music.core.util.DirectoryUtil;
 import org.skife.jdbi.v2.DBI;
 import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.tweak.ConnectionFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -12,9 +13,11 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
-import java.util.HashMap;
-import java.util.Map;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.text.MessageFormat;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * DBI factory.
@@ -28,6 +31,26 @@ public class DBIF {
 
     private static DBI dbi;
 
+    /**
+     * Database dialect.
+     */
+    private static DbDialect dialect;
+
+    /**
+     * Number of connections checked out from the pool since the startup.
+     */
+    private static AtomicLong checkoutCount = new AtomicLong();
+
+    /**
+     * Total time spent waiting for a connection from the pool (in nanoseconds).
+     */
+    private static AtomicLong checkoutTime = new AtomicLong();
+
+    /**
+     * Longest time spent waiting for a connection from the pool (in nanoseconds).
+     */
+    private static AtomicLong maxCheckoutTime = new AtomicLong();
+
     static {
         if (dbi == null) {
             createDbi();
@@ -36,8 +59,26 @@ public class DBIF {
 
     public static void createDbi() {
         try {
-            cpds = new ComboPooledDataSource(); // TODO use getDbProperties()
-            dbi = new DBI(cpds);
+            Properties properties = getDbProperties();
+            dialect = getDialect(properties);
+            cpds = createDataSource(properties);
+            dbi = new DBI(new ConnectionFactory() {
+                @Override
+                public Connection openConnection() throws SQLException {
+                    long start = System.nanoTime();
+                    try {
+                        return cpds.getConnection();
+                    } finally {
+                        long time = System.nanoTime() - start;
+                        checkoutCount.incrementAndGet();
+                        checkoutTime.addAndGet(time);
+                        long max = maxCheckoutTime.get();
+                        while (time > max && !maxCheckoutTime.compareAndSet(max, time)) {
+                            max = maxCheckoutTime.get();
+                        }
+                    }
+                }
+            });
             dbi.registerMapper(new AlbumMapper());
             dbi.registerMapper(new ArtistMapper());
             dbi.registerMapper(new AuthenticationTokenMapper());
@@ -60,7 +101,7 @@ public class DBIF {
         Handle handle = null;
         try {
             handle = dbi.open();
-            DbOpenHelper openHelper = new DbOpenHelper(handle) {
+            DbOpenHelper openHelper = new DbOpenHelper(handle, dialect) {
 
                 @Override
                 public void onCreate() throws Exception {
@@ -84,31 +125,160 @@ public class DBIF {
 
     }
 
-    private static Map<Object, Object> getDbProperties() {
-        // Use properties file if exists
-        try {
-            URL dbPropertiesUrl = DBIF.class.getResource("/c3p0.properties");
-            if (dbPropertiesUrl != null) {
-                log.info("Configuring connection pool from c3p0.properties");
+    /**
+     * Returns the connection pool properties.
+     * The defaults are overridden by c3p0.properties if it exists, then by the c3p0.* system properties.
+     *
+     * @return Connection pool properties
+     */
+    private static Properties getDbProperties() {
+        Properties properties = new Properties();
+        properties.put("c3p0.driverClass", "org.h2.Driver");
+        File dbDirectory = DirectoryUtil.getDbDirectory();
+        String dbFile = dbDirectory.getAbsoluteFile() + File.separator + "music";
+        properties.put("c3p0.jdbcUrl", "jdbc:h2:file:" + dbFile + ";WRITE_DELAY=false;shutdown=true");
+        properties.put("c3p0.user", "sa");
+        properties.put("c3p0.password", "");
+        properties.put("c3p0.minPoolSize", "3");
+        properties.put("c3p0.maxPoolSize", "50");
+        properties.put("c3p0.checkoutTimeout", "10000");
+        properties.put("c3p0.maxStatementsPerConnection", "50");
+        properties.put("c3p0.idleConnectionTestPeriod", "300");
+        properties.put("c3p0.testConnectionOnCheckin", "true");
 
-                InputStream is = dbPropertiesUrl.openStream();
-                Properties properties = new Properties();
+        // Use properties file if exists
+        URL dbPropertiesUrl = DBIF.class.getResource("/c3p0.properties");
+        if (dbPropertiesUrl != null) {
+            log.info("Configuring connection pool from c3p0.properties");
+            try (InputStream is = dbPropertiesUrl.openStream()) {
                 properties.load(is);
-                return properties;
+            } catch (IOException e) {
+                log.error("Error reading c3p0.properties", e);
             }
-        } catch (IOException e) {
-            log.error("Error reading c3p0.properties", e);
         }
 
-        // Use environment parameters
-        log.info("Configuring EntityManager from environment parameters");
-        Map<Object, Object> props = new HashMap<Object, Object>();
-        props.put("c3p0.driverClass", "org.h2.Driver");
-        File dbDirectory = DirectoryUtil.getDbDirectory();
-        String dbFile = dbDirectory.getAbsoluteFile() + File.separator + "music";
-        props.put("c3p0.jdbcUrl", "jdbc:h2:file:" + dbFile + ";WRITE_DELAY=false;shutdown=true");
-        props.put("c3p0.user", "sa");
-        return props;
+        // Use system properties
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith("c3p0.")) {
+                properties.put(name, System.getProperty(name));
+            }
+        }
+        return properties;
+    }
+
+    /**
+     * Returns the database dialect.
+     * The dialect is read from the music.db.dialect property, or guessed from the JDBC URL.
+     *
+     * @param properties Connection pool properties
+     * @return Database dialect
+     */
+    private static DbDialect getDialect(Properties properties) {
+        String dialectName = System.getProperty("music.db.dialect", properties.getProperty("music.db.dialect"));
+        if (dialectName != null) {
+            return DbDialect.valueOf(dialectName.toUpperCase());
+        }
+        return DbDialect.fromJdbcUrl(properties.getProperty("c3p0.jdbcUrl"));
+    }
+
+    /**
+     * Creates the connection pool.
+     *
+     * @param properties Connection pool properties
+     * @return Connection pool
+     * @throws Exception
+     */
+    private static ComboPooledDataSource createDataSource(Properties properties) throws Exception {
+        ComboPooledDataSource cpds = new ComboPooledDataSource();
+        cpds.setDriverClass(properties.getProperty("c3p0.driverClass"));
+        cpds.setJdbcUrl(properties.getProperty("c3p0.jdbcUrl"));
+        cpds.setUser(properties.getProperty("c3p0.user"));
+        cpds.setPassword(properties.getProperty("c3p0.password"));
+        cpds.setMinPoolSize(Integer.parseInt(properties.getProperty("c3p0.minPoolSize")));
+        cpds.setInitialPoolSize(Integer.parseInt(properties.getProperty("c3p0.initialPoolSize", properties.getProperty("c3p0.minPoolSize"))));
+        cpds.setMaxPoolSize(Integer.parseInt(properties.getProperty("c3p0.maxPoolSize")));
+        cpds.setCheckoutTimeout(Integer.parseInt(properties.getProperty("c3p0.checkoutTimeout")));
+        cpds.setMaxStatementsPerConnection(Integer.parseInt(properties.getProperty("c3p0.maxStatementsPerConnection")));
+        cpds.setIdleConnectionTestPeriod(Integer.parseInt(properties.getProperty("c3p0.idleConnectionTestPeriod")));
+        cpds.setTestConnectionOnCheckin(Boolean.parseBoolean(properties.getProperty("c3p0.testConnectionOnCheckin")));
+        if (properties.getProperty("c3p0.preferredTestQuery") != null) {
+            cpds.setPreferredTestQuery(properties.getProperty("c3p0.preferredTestQuery"));
+        }
+        if (log.isInfoEnabled()) {
+            log.info(MessageFormat.format("Connection pool of {0} to {1} connections to {2} ({3} dialect)",
+                    cpds.getMinPoolSize(), cpds.getMaxPoolSize(), cpds.getJdbcUrl(), dialect));
+        }
+        return cpds;
+    }
+
+    /**
+     * Returns the number of connections in use.
+     *
+     * @return Number of busy connections
+     */
+    public static int getBusyConnectionCount() {
+        try {
+            return cpds.getNumBusyConnectionsDefaultUser();
+        } catch (SQLException e) {
+            log.error("Error reading the connection pool statistics", e);
+            return 0;
+        }
+    }
+
+    /**
+     * Returns the number of connections available in the pool.
+     *
+     * @return Number of idle connections
+     */
+    public static int getIdleConnectionCount() {
+        try {
+            return cpds.getNumIdleConnectionsDefaultUser();
+        } catch (SQLException e) {
+            log.error("Error reading the connection pool statistics", e);
+            return 0;
+        }
+    }
+
+    /**
+     * Returns the number of threads waiting for a connection.
+     *
+     * @return Number of waiting threads
+     */
+    public static int getWaitingThreadCount() {
+        try {
+            return cpds.getNumThreadsAwaitingCheckoutDefaultUser();
+        } catch (SQLException e) {
+            log.error("Error reading the connection pool statistics", e);
+            return 0;
+        }
+    }
+
+    /**
+     * Returns the number of connections checked out since the startup.
+     *
+     * @return Number of checkouts
+     */
+    public static long getCheckoutCount() {
+        return checkoutCount.get();
+    }
+
+    /**
+     * Returns the average time spent waiting for a connection.
+     *
+     * @return Average checkout time (in milliseconds)
+     */
+    public static double getAverageCheckoutTime() {
+        long count = checkoutCount.get();
+        return count == 0 ? 0 : (double) checkoutTime.get() / count / 1000000;
+    }
+
+    /**
+     * Returns the longest time spent waiting for a connection.
+     *
+     * @return Maximum checkout time (in milliseconds)
+     */
+    public static double getMaxCheckoutTime() {
+        return (double) maxCheckoutTime.get() / 1000000;
     }
 
     /**
@@ -126,9 +296,22 @@ public class DBIF {
         return dbi;
     }
 
+    /**
+     * Returns the database dialect.
+     *
+     * @return Database dialect
+     */
+    public static DbDialect getDialect() {
+        return dialect;
+    }
+
     public static void reset() {
         if (cpds != null) {
-            dbi.open().createStatement("DROP ALL OBJECTS").execute();
+            Handle handle = dbi.open();
+            for (String sql : dialect.getDropAllStatements()) {
+                handle.createStatement(sql).execute();
+            }
+            handle.close();
             cpds.close();
             cpds = null;
             dbi = null;
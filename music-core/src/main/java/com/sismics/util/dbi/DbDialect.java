@@ -0,0 +1,71 @@
+package com.sismics.util.dbi;
+
+/**
+ * Database dialects.
+ *
+ * @author jtremeaux
+ */
+public enum DbDialect {
+    /**
+     * Embedded H2 database.
+     */
+    H2("/db/update/", "drop all objects"),
+
+    /**
+     * External PostgreSQL database.
+     */
+    POSTGRESQL("/db/update/postgresql/", "drop schema public cascade", "create schema public");
+
+    /**
+     * Path of the database update scripts.
+     */
+    private String scriptPath;
+
+    /**
+     * Statements dropping the whole schema.
+     */
+    private String[] dropAllStatements;
+
+    /**
+     * Constructor of DbDialect.
+     *
+     * @param scriptPath Path of the database update scripts
+     * @param dropAllStatements Statements dropping the whole schema
+     */
+    private DbDialect(String scriptPath, String... dropAllStatements) {
+        this.scriptPath = scriptPath;
+        this.dropAllStatements = dropAllStatements;
+    }
+
+    /**
+     * Getter of scriptPath.
+     *
+     * @return scriptPath
+     */
+    public String getScriptPath() {
+        return scriptPath;
+    }
+
+    /**
+     * Getter of dropAllStatements.
+     *
+     * @return dropAllStatements
+     */
+    public String[] getDropAllStatements() {
+        return dropAllStatements;
+    }
+
+    /**
+     * Returns the dialect of a JDBC URL.
+     * H2 in compatibility mode still uses the H2 dialect, set music.db.dialect to run the PostgreSQL scripts.
+     *
+     * @param jdbcUrl JDBC URL
+     * @return Dialect
+     */
+    public static DbDialect fromJdbcUrl(String jdbcUrl) {
+        if (jdbcUrl != null && jdbcUrl.startsWith("jdbc:postgresql:")) {
+            return POSTGRESQL;
+        }
+        return H2;
+    }
+}
@@ -27,13 +27,19 @@ public abstract class DbOpenHelper {
     private static final Logger log = LoggerFactory.getLogger(DbOpenHelper.class);
 
     private final Handle handle;
+
+    /**
+     * Database dialect.
+     */
+    private final DbDialect dialect;
     
     private final List<Exception> exceptions = new ArrayList<Exception>();
 
     private boolean haltOnError;
     
-    public DbOpenHelper(Handle handle) {
+    public DbOpenHelper(Handle handle, DbDialect dialect) {
         this.handle = handle;
+        this.dialect = dialect;
     }
 
     public void open() {
@@ -51,7 +57,7 @@ public abstract class DbOpenHelper {
                     oldVersion = Integer.parseInt(oldVersionStr);
                 }
             } catch (Exception e) {
-                if (e.getMessage().contains("not found")) {
+                if (e.getMessage().contains("not found") || e.getMessage().contains("does not exist")) {
                     log.info("Unable to get database version: Table T_CONFIG not found");
                 } else {
                     log.error("Unable to get database version", e);
@@ -84,7 +90,7 @@ public abstract class DbOpenHelper {
      * @throws Exception
      */
     protected void executeAllScript(final int version) throws Exception {
-        List<String> fileNameList = ResourceUtil.list(getClass(), "/db/update/", new FilenameFilter() {
+        List<String> fileNameList = ResourceUtil.list(getClass(), dialect.getScriptPath(), new FilenameFilter() {
             @Override
             public boolean accept(File dir, String name) {
                 String versionString = String.format("%03d", version);
@@ -97,7 +103,7 @@ public abstract class DbOpenHelper {
             if (log.isInfoEnabled()) {
                 log.info(MessageFormat.format("Executing script: {0}", fileName));
             }
-            InputStream is = getClass().getResourceAsStream("/db/update/" + fileName);
+            InputStream is = getClass().getResourceAsStream(dialect.getScriptPath() + fileName);
             executeScript(is);
         }
     }
@@ -0,0 +1,128 @@
+package com.sismics.util.io;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Input stream of an exact length, used when the length is announced before the content is produced.
+ * Skips the first bytes of the source, truncates the source if it is longer and pads it with zeros if it is shorter.
+ * The rest of the source is not read once the announced length is reached: closing the stream releases the source.
+ * A padded stream is not the real content, see {@link #isPadded()}.
+ *
+ * @author jtremeaux
+ */
+public class FixedLengthInputStream extends FilterInputStream {
+    /**
+     * Number of source bytes still to skip.
+     */
+    private long skip;
+
+    /**
+     * Number of bytes still to return.
+     */
+    private long remaining;
+
+    /**
+     * True if the source has no more bytes.
+     */
+    private boolean eof;
+
+    /**
+     * True if the source was too short and the stream was padded.
+     */
+    private boolean padded;
+
+    /**
+     * Constructor of FixedLengthInputStream.
+     *
+     * @param is Source input stream
+     * @param skip Number of source bytes to skip
+     * @param length Length of the stream
+     */
+    public FixedLengthInputStream(InputStream is, long skip, long length) {
+        super(is);
+        this.skip = skip;
+        this.remaining = length;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        int n = read(b, 0, 1);
+        return n == -1 ? -1 : b[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        skip();
+        if (remaining <= 0) {
+            return -1;
+        }
+        len = (int) Math.min(len, remaining);
+        int n = -1;
+        if (!eof) {
+            n = in.read(b, off, len);
+            eof = n == -1;
+        }
+        if (n == -1) {
+            // Source too short
+            padded = true;
+            n = len;
+            Arrays.fill(b, off, off + n, (byte) 0);
+        }
+        remaining -= n;
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        byte[] buffer = new byte[8192];
+        long skipped = 0;
+        while (skipped < n) {
+            int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+            if (read == -1) {
+                break;
+            }
+            skipped += read;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (int) Math.min(eof ? remaining : in.available(), remaining);
+    }
+
+    /**
+     * Getter of padded.
+     *
+     * @return padded
+     */
+    public boolean isPadded() {
+        return padded;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    /**
+     * Discards the source bytes before the start of the stream.
+     *
+     * @throws IOException
+     */
+    private void skip() throws IOException {
+        byte[] buffer = new byte[8192];
+        while (skip > 0 && !eof) {
+            int n = in.read(buffer, 0, (int) Math.min(buffer.length, skip));
+            if (n == -1) {
+                eof = true;
+            } else {
+                skip -= n;
+            }
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.sismics.util.io;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.concurrent.Executor;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -12,6 +13,7 @@ import com.google.common.io.Closer;
 
 /**
  * Input stream that transcodes on the fly.
+ * The error stream of the process must be redirected by the process builder, since it is not consumed.
  * 
  * @author jtremeaux
  */
@@ -23,20 +25,29 @@ public class TranscodedInputStream extends InputStream {
 
     private InputStream processInputStream;
 
-    private OutputStream processOutputStream;
-
     private Process process;
 
+    /**
+     * Previous transcoding step, null if the process reads its input itself.
+     */
+    private TranscodedInputStream previousStep;
+
+    /**
+     * Exit value of the process, null until the end of its output.
+     */
+    private volatile Integer exitValue;
+
     private final Closer closer = Closer.create();
 
     /**
      * Constructor of TranscodedInputStream.
      *
      * @param processBuilder Builder to create the transcoder process
-     * @param is Input stream to transcode
+     * @param is Input stream fed to the standard input of the process, null if the process reads its input itself
+     * @param executor Executor copying the input stream to the process
      * @throws IOException
      */
-    public TranscodedInputStream(ProcessBuilder processBuilder, final InputStream is) throws IOException {
+    public TranscodedInputStream(ProcessBuilder processBuilder, final InputStream is, Executor executor) throws IOException {
         if (log.isDebugEnabled()) {
             StringBuilder sb = new StringBuilder("Starting transcoder: ");
             for (String s : processBuilder.command()) {
@@ -46,47 +57,96 @@ public class TranscodedInputStream extends InputStream {
         }
 
         // Start the transcoding process process
-        process = processBuilder.start();
-        processOutputStream = closer.register(process.getOutputStream());
+        if (is != null) {
+            closer.register(is);
+        }
+        if (is instanceof TranscodedInputStream) {
+            previousStep = (TranscodedInputStream) is;
+        }
+        try {
+            process = processBuilder.start();
+        } catch (IOException e) {
+            closer.close();
+            throw e;
+        }
+        final OutputStream processOutputStream = closer.register(process.getOutputStream());
         processInputStream = process.getInputStream();
 
-        // Consume the transcoder process error stream
-        final String commandName = processBuilder.command().get(0);
-        new InputStreamReaderThread(process.getErrorStream(), commandName).start();
-
-        // Consume the transcoder process output stream
-        closer.register(is);
-        new Thread(commandName + " TranscodedInputStream thread") {
-            @Override
-            public void run() {
-                try {
-                    ByteStreams.copy(is, processOutputStream);
-                } catch (IOException e) {
-                    // NOP
-                } finally {
+        if (is == null) {
+            // Nothing to feed
+            closer.close();
+            return;
+        }
+
+        // Feed the transcoder process input stream
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
                     try {
-                        closer.close();
-                    } catch (Exception e) {
+                        ByteStreams.copy(is, processOutputStream);
+                    } catch (IOException e) {
                         // NOP
+                    } finally {
+                        try {
+                            closer.close();
+                        } catch (Exception e) {
+                            // NOP
+                        }
                     }
                 }
-            }
-        }.start();
+            });
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
     }
 
     @Override
     public int read() throws IOException {
-        return processInputStream.read();
+        return checkEnd(processInputStream.read());
     }
 
     @Override
     public int read(byte[] b) throws IOException {
-        return processInputStream.read(b);
+        return checkEnd(processInputStream.read(b));
     }
 
     @Override
     public int read(byte[] b, int off, int len) throws IOException {
-        return processInputStream.read(b, off, len);
+        return checkEnd(processInputStream.read(b, off, len));
+    }
+
+    /**
+     * Returns true if the process or a previous step exited with an error.
+     * The status is known once the end of the output is reached.
+     *
+     * @return True if the transcoding failed
+     */
+    public boolean isFailed() {
+        Integer exitValue = this.exitValue;
+        return exitValue != null && exitValue != 0 || previousStep != null && previousStep.isFailed();
+    }
+
+    /**
+     * Waits for the exit of the process at the end of its output.
+     *
+     * @param n Result of a read
+     * @return Result of the read
+     */
+    private int checkEnd(int n) {
+        if (n == -1 && exitValue == null) {
+            try {
+                exitValue = process.waitFor();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                exitValue = -1;
+            }
+            if (exitValue != 0) {
+                log.warn("Transcoder exited with status " + exitValue);
+            }
+        }
+        return n;
     }
 
     @Override
@@ -0,0 +1,3 @@
+alter table T_TRACK add column TRK_FILEMODIFIEDDATE_D datetime;
+alter table T_TRACK add column TRK_FILESIZE_N bigint;
+update T_CONFIG set CFG_VALUE_C = '1' where CFG_ID_C = 'DB_VERSION';
@@ -0,0 +1,2 @@
+alter table T_TRACK add column TRK_SCANGENERATION_N int;
+update T_CONFIG set CFG_VALUE_C = '2' where CFG_ID_C = 'DB_VERSION';
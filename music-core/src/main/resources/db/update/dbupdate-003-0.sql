@@ -0,0 +1,9 @@
+alter table T_ARTIST alter column ART_NAME_C varchar_ignorecase(1000) not null;
+alter table T_ALBUM alter column ALB_NAME_C varchar_ignorecase(1000) not null;
+create index IDX_TRK_FILENAME_C on T_TRACK (TRK_FILENAME_C);
+create index IDX_ART_NAME_C on T_ARTIST (ART_NAME_C);
+create index IDX_ALB_IDARTIST_C_NAME_C on T_ALBUM (ALB_IDARTIST_C, ALB_NAME_C);
+create index IDX_UST_IDUSER_C_IDTRACK_C on T_USER_TRACK (UST_IDUSER_C, UST_IDTRACK_C);
+create index IDX_PLT_IDPLAYLIST_C_ORDER_N on T_PLAYLIST_TRACK (PLT_IDPLAYLIST_C, PLT_ORDER_N);
+create index IDX_AUT_IDUSER_C_LONGLASTED_B on T_AUTHENTICATION_TOKEN (AUT_IDUSER_C, AUT_LONGLASTED_B);
+update T_CONFIG set CFG_VALUE_C = '3' where CFG_ID_C = 'DB_VERSION';
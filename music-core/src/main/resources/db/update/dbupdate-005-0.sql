@@ -0,0 +1,25 @@
+alter table T_ALBUM drop constraint FK_ALB_IDARTIST_C;
+alter table T_PLAYLIST_TRACK drop constraint FK_PLT_IDTRACK_C;
+alter table T_TRACK drop constraint FK_TRK_IDALBUM_C;
+alter table T_TRACK drop constraint FK_TRK_IDARTIST_C;
+alter table T_USER_ALBUM drop constraint FK_USA_IDALBUM_C;
+alter table T_USER_TRACK drop constraint FK_UST_IDTRACK_C;
+alter table T_ARTIST alter column ART_ID_C uuid not null;
+alter table T_ALBUM alter column ALB_ID_C uuid not null;
+alter table T_ALBUM alter column ALB_IDARTIST_C uuid not null;
+alter table T_TRACK alter column TRK_ID_C uuid not null;
+alter table T_TRACK alter column TRK_IDALBUM_C uuid not null;
+alter table T_TRACK alter column TRK_IDARTIST_C uuid not null;
+alter table T_USER_ALBUM alter column USA_ID_C uuid not null;
+alter table T_USER_ALBUM alter column USA_IDALBUM_C uuid not null;
+alter table T_USER_TRACK alter column UST_ID_C uuid not null;
+alter table T_USER_TRACK alter column UST_IDTRACK_C uuid not null;
+alter table T_PLAYLIST_TRACK alter column PLT_ID_C uuid not null;
+alter table T_PLAYLIST_TRACK alter column PLT_IDTRACK_C uuid not null;
+alter table T_ALBUM add constraint FK_ALB_IDARTIST_C foreign key (ALB_IDARTIST_C) references T_ARTIST (ART_ID_C) on delete restrict on update restrict;
+alter table T_PLAYLIST_TRACK add constraint FK_PLT_IDTRACK_C foreign key (PLT_IDTRACK_C) references T_TRACK (TRK_ID_C) on delete restrict on update restrict;
+alter table T_TRACK add constraint FK_TRK_IDALBUM_C foreign key (TRK_IDALBUM_C) references T_ALBUM (ALB_ID_C) on delete restrict on update restrict;
+alter table T_TRACK add constraint FK_TRK_IDARTIST_C foreign key (TRK_IDARTIST_C) references T_ARTIST (ART_ID_C) on delete restrict on update restrict;
+alter table T_USER_ALBUM add constraint FK_USA_IDALBUM_C foreign key (USA_IDALBUM_C) references T_ALBUM (ALB_ID_C) on delete restrict on update restrict;
+alter table T_USER_TRACK add constraint FK_UST_IDTRACK_C foreign key (UST_IDTRACK_C) references T_TRACK (TRK_ID_C) on delete restrict on update restrict;
+update T_CONFIG set CFG_VALUE_C = '5' where CFG_ID_C = 'DB_VERSION';
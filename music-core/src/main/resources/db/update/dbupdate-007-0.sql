@@ -0,0 +1,4 @@
+alter table T_TRACK add column TRK_UPDATEDATE_D datetime;
+update T_TRACK set TRK_UPDATEDATE_D = TRK_CREATEDATE_D;
+create index IDX_TRK_UPDATEDATE_D on T_TRACK (TRK_UPDATEDATE_D);
+update T_CONFIG set CFG_VALUE_C = '7' where CFG_ID_C = 'DB_VERSION';
@@ -0,0 +1,2 @@
+create index IDX_TRK_TITLE_C_ID_C on T_TRACK (TRK_TITLE_C, TRK_ID_C);
+update T_CONFIG set CFG_VALUE_C = '4' where CFG_ID_C = 'DB_VERSION';
@@ -0,0 +1,3 @@
+update T_TRACK set TRK_BITRATE_N = TRK_FILESIZE_N * 8 / TRK_LENGTH_N / 1000 where TRK_FILESIZE_N is not null and TRK_LENGTH_N > 0;
+update T_TRACK set TRK_FILEMODIFIEDDATE_D = null;
+update T_CONFIG set CFG_VALUE_C = '6' where CFG_ID_C = 'DB_VERSION';
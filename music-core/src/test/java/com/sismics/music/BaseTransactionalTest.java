@@ -25,5 +25,12 @@ public abstract class BaseTransactionalTest {
 
     @After
     public void tearDown() throws Exception {
+        // Release the locks held by the test, the in-memory database is shared between tests
+        Handle handle = ThreadLocalContext.get().getHandle();
+        if (handle != null) {
+            handle.rollback();
+            handle.close();
+            ThreadLocalContext.cleanup();
+        }
     }
 }
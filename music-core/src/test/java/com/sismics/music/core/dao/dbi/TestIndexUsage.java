@@ -0,0 +1,113 @@
+package com.sismics.music.core.dao.dbi;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.logging.NoOpLog;
+import org.skife.jdbi.v2.tweak.SQLLog;
+
+import com.sismics.music.BaseTransactionalTest;
+import com.sismics.util.context.ThreadLocalContext;
+
+/**
+ * Checks that the hot lookups of the DAOs are served by an index.
+ *
+ * @author jtremeaux
+ */
+public class TestIndexUsage extends BaseTransactionalTest {
+    /**
+     * Logs the SQL statements executed by the DAOs.
+     */
+    private static class StatementLog implements SQLLog {
+        private List<String> sqlList = new ArrayList<String>();
+
+        private SQLLog noOpLog = new NoOpLog();
+
+        @Override
+        public void logSQL(long time, String sql) {
+            sqlList.add(sql);
+        }
+
+        @Override
+        public void logPreparedBatch(long time, String sql, int count) {
+            sqlList.add(sql);
+        }
+
+        @Override
+        public BatchLogger logBatch() {
+            return noOpLog.logBatch();
+        }
+
+        @Override
+        public void logBeginTransaction(Handle h) {
+        }
+
+        @Override
+        public void logCommitTransaction(long time, Handle h) {
+        }
+
+        @Override
+        public void logRollbackTransaction(long time, Handle h) {
+        }
+
+        @Override
+        public void logObtainHandle(long time, Handle h) {
+        }
+
+        @Override
+        public void logReleaseHandle(Handle h) {
+        }
+
+        @Override
+        public void logCheckpointTransaction(Handle h, String name) {
+        }
+
+        @Override
+        public void logReleaseCheckpointTransaction(Handle h, String name) {
+        }
+
+        @Override
+        public void logRollbackToCheckpoint(long time, Handle h, String checkpointName) {
+        }
+    }
+
+    @Test
+    public void testHotQueriesUseIndex() throws Exception {
+        Handle handle = ThreadLocalContext.get().getHandle();
+        StatementLog statementLog = new StatementLog();
+        handle.setSQLLog(statementLog);
+
+        // Run the hot lookups
+        new TrackDao().getActiveByDirectoryAndFilename("directoryId", "fileName");
+        new TrackDao().getActiveByDirectoryAndFilenames("directoryId", Arrays.asList("fileName1", "fileName2"));
+        new ArtistDao().getActiveByName("name");
+        new AlbumDao().getActiveByArtistIdAndName("artistId", "name");
+        new AlbumDao().getActiveByDirectoryAndArtistIdAndName("directoryId", "artistId", "name");
+        new UserTrackDao().getActiveUserTrack("userId", "trackId");
+        new PlaylistTrackDao().getPlaylistTrackNextOrder("playlistId");
+        new PlaylistTrackDao().removePlaylistTrack("playlistId", 1);
+        new AuthenticationTokenDao().deleteOldSessionToken("userId");
+        handle.setSQLLog(new NoOpLog());
+        Assert.assertEquals(9, statementLog.sqlList.size());
+
+        // Explain each query, none of them may scan a table
+        for (String sql : statementLog.sqlList) {
+            PreparedStatement ps = handle.getConnection().prepareStatement("explain " + sql);
+            for (int i = 1; i <= ps.getParameterMetaData().getParameterCount(); i++) {
+                ps.setNull(i, Types.VARCHAR);
+            }
+            ResultSet rs = ps.executeQuery();
+            Assert.assertTrue(rs.next());
+            String plan = rs.getString(1);
+            ps.close();
+            Assert.assertFalse("Table scan in plan: " + plan, plan.contains("tableScan"));
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.sismics.music.core.dao.dbi;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.sismics.music.BaseTransactionalTest;
+import com.sismics.music.core.dao.dbi.criteria.TrackCriteria;
+import com.sismics.music.core.dao.dbi.dto.TrackDto;
+import com.sismics.music.core.model.dbi.Album;
+import com.sismics.music.core.model.dbi.Artist;
+import com.sismics.music.core.model.dbi.Directory;
+import com.sismics.music.core.model.dbi.Track;
+import com.sismics.music.core.util.dbi.PaginatedList;
+import com.sismics.music.core.util.dbi.PaginatedLists;
+
+/**
+ * Test of the paginated track queries.
+ *
+ * @author jtremeaux
+ */
+public class TestTrackPagination extends BaseTransactionalTest {
+    @Test
+    public void testPagination() throws Exception {
+        Album album = createAlbum();
+        TrackDao trackDao = new TrackDao();
+        for (String title : new String[] { "E", "B", "", "D", "A", "C" }) {
+            createTrack(album, title);
+        }
+
+        // Offset pagination, the total counts all the tracks
+        PaginatedList<TrackDto> paginatedList = PaginatedLists.create(2, 3);
+        trackDao.findByCriteria(new TrackCriteria().setAlbumId(album.getId()), paginatedList, true);
+        Assert.assertEquals(2, paginatedList.getResultList().size());
+        Assert.assertEquals("C", paginatedList.getResultList().get(0).getTitle());
+        Assert.assertEquals("D", paginatedList.getResultList().get(1).getTitle());
+        Assert.assertEquals(6, paginatedList.getResultCount());
+
+        // Last page
+        paginatedList = PaginatedLists.create(2, 5);
+        trackDao.findByCriteria(new TrackCriteria().setAlbumId(album.getId()), paginatedList);
+        Assert.assertEquals(1, paginatedList.getResultList().size());
+        Assert.assertEquals("E", paginatedList.getResultList().get(0).getTitle());
+    }
+
+    @Test
+    public void testKeysetPagination() throws Exception {
+        Album album = createAlbum();
+        TrackDao trackDao = new TrackDao();
+        for (String title : new String[] { "B", "A", "B", "C", "B" }) {
+            createTrack(album, title);
+        }
+
+        // Page by (title, ID) across the tracks with the same title
+        List<String> titleList = new ArrayList<>();
+        Set<String> idSet = new HashSet<>();
+        String afterTrackId = null;
+        String afterTitle = null;
+        for (int page = 0; page < 3; page++) {
+            PaginatedList<TrackDto> paginatedList = PaginatedLists.create(2, null);
+            trackDao.findByCriteria(new TrackCriteria()
+                    .setAlbumId(album.getId())
+                    .setAfterTrackId(afterTrackId)
+                    .setAfterTitle(afterTitle), paginatedList, true);
+            Assert.assertEquals(5, paginatedList.getResultCount());
+            for (TrackDto trackDto : paginatedList.getResultList()) {
+                titleList.add(trackDto.getTitle());
+                idSet.add(trackDto.getId());
+            }
+            TrackDto lastTrackDto = paginatedList.getResultList().get(paginatedList.getResultList().size() - 1);
+            afterTrackId = lastTrackDto.getId();
+            afterTitle = page == 0 ? null : lastTrackDto.getTitle();
+        }
+        Assert.assertEquals(Lists.newArrayList("A", "B", "B", "B", "C"), titleList);
+        Assert.assertEquals(5, idSet.size());
+
+        // Nothing after the last track
+        PaginatedList<TrackDto> paginatedList = PaginatedLists.create(2, null);
+        trackDao.findByCriteria(new TrackCriteria().setAlbumId(album.getId()).setAfterTrackId(afterTrackId), paginatedList);
+        Assert.assertTrue(paginatedList.getResultList().isEmpty());
+    }
+
+    /**
+     * Creates an album.
+     *
+     * @return Album
+     */
+    private Album createAlbum() {
+        Directory directory = new Directory();
+        directory.setLocation("/pagination");
+        new DirectoryDao().create(directory);
+        Artist artist = new Artist();
+        artist.setName("Pagination artist");
+        new ArtistDao().create(artist);
+        Album album = new Album();
+        album.setDirectoryId(directory.getId());
+        album.setArtistId(artist.getId());
+        album.setName("Pagination album");
+        new AlbumDao().create(album);
+        return album;
+    }
+
+    /**
+     * Creates a track.
+     *
+     * @param album Album
+     * @param title Title
+     */
+    private void createTrack(Album album, String title) {
+        Track track = new Track();
+        track.setAlbumId(album.getId());
+        track.setArtistId(album.getArtistId());
+        track.setFileName(title + ".mp3");
+        track.setTitle(title);
+        track.setLength(100);
+        track.setBitrate(128);
+        track.setFormat("mp3");
+        new TrackDao().create(track);
+    }
+}
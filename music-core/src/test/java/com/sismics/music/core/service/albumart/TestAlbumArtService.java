@@ -0,0 +1,103 @@
+package com.sismics.music.core.service.albumart;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.io.Files;
+import com.sismics.music.BaseTransactionalTest;
+import com.sismics.music.core.dao.dbi.AlbumDao;
+import com.sismics.music.core.dao.dbi.ArtistDao;
+import com.sismics.music.core.dao.dbi.DirectoryDao;
+import com.sismics.music.core.model.dbi.Album;
+import com.sismics.music.core.model.dbi.Artist;
+import com.sismics.music.core.model.dbi.Directory;
+import com.sismics.music.core.util.TransactionUtil;
+
+/**
+ * Test of the album art service.
+ *
+ * @author jtremeaux
+ */
+public class TestAlbumArtService extends BaseTransactionalTest {
+    @Test
+    public void testImportAlbumArt() throws Exception {
+        AlbumArtService albumArtService = new AlbumArtService();
+        File file = new File(getClass().getResource("/artistart/small0.jpg").toURI());
+        Album album = createAlbum();
+
+        // The album art is set once all sizes are available
+        albumArtService.importAlbumArtAsync(album.getId(), file).get();
+        String id = new AlbumDao().getActiveById(album.getId()).getAlbumArt();
+        Assert.assertNotNull(id);
+        for (AlbumArtSize albumArtSize : AlbumArtSize.values()) {
+            BufferedImage image = ImageIO.read(albumArtService.getAlbumArtFile(id, albumArtSize));
+            Assert.assertEquals(albumArtSize.getSize(), Math.max(image.getWidth(), image.getHeight()));
+        }
+
+        // A picture which cannot be decoded leaves the album without album art
+        album = createAlbum();
+        File brokenFile = File.createTempFile("albumart", ".jpg");
+        brokenFile.deleteOnExit();
+        Files.write(new byte[] { (byte) 0xff, (byte) 0xd8, (byte) 0xff, (byte) 0xe0, 0, 0, 0 }, brokenFile);
+        albumArtService.importAlbumArtAsync(album.getId(), brokenFile).get();
+        Assert.assertNull(new AlbumDao().getActiveById(album.getId()).getAlbumArt());
+    }
+
+    /**
+     * Creates and commits an album.
+     *
+     * @return Album
+     */
+    private Album createAlbum() {
+        Directory directory = new Directory();
+        directory.setLocation("/albumart");
+        new DirectoryDao().create(directory);
+        Artist artist = new Artist();
+        artist.setName("Album art artist");
+        new ArtistDao().create(artist);
+        Album album = new Album();
+        album.setDirectoryId(directory.getId());
+        album.setArtistId(artist.getId());
+        album.setName("Album art album");
+        new AlbumDao().create(album);
+        TransactionUtil.commit();
+        return album;
+    }
+
+    @Test
+    public void testArtistArt() throws Exception {
+        AlbumArtService albumArtService = new AlbumArtService();
+        String artistId = UUID.randomUUID().toString();
+        File dir = new File(getClass().getResource("/artistart/").toURI());
+        List<Album> albumList = new ArrayList<>();
+        for (File file : dir.listFiles()) {
+            Album album = new Album();
+            album.setAlbumArt(albumArtService.importAlbumArt(file));
+            albumList.add(album);
+        }
+
+        // The mosaic is generated once
+        File artistArtFile = albumArtService.getArtistArtFile(artistId, albumList, AlbumArtSize.SMALL);
+        Assert.assertTrue(artistArtFile.exists());
+        long lastModified = artistArtFile.lastModified();
+        Assert.assertEquals(artistArtFile, albumArtService.getArtistArtFile(artistId, albumList, AlbumArtSize.SMALL));
+        Assert.assertEquals(lastModified, artistArtFile.lastModified());
+
+        // A change of the album arts replaces the mosaic
+        File largeArtistArtFile = albumArtService.getArtistArtFile(artistId, albumList, AlbumArtSize.LARGE);
+        albumList.remove(0);
+        File newArtistArtFile = albumArtService.getArtistArtFile(artistId, albumList, AlbumArtSize.SMALL);
+        Assert.assertNotEquals(artistArtFile, newArtistArtFile);
+        Assert.assertTrue(newArtistArtFile.exists());
+        Assert.assertFalse(artistArtFile.exists());
+        Assert.assertTrue(largeArtistArtFile.exists());
+    }
+}
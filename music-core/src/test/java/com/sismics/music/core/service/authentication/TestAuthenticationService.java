@@ -0,0 +1,58 @@
+package com.sismics.music.core.service.authentication;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.sismics.music.BaseTransactionalTest;
+import com.sismics.music.core.dao.dbi.AuthenticationTokenDao;
+import com.sismics.music.core.model.dbi.AuthenticationToken;
+import com.sismics.music.core.util.TransactionUtil;
+
+/**
+ * Test of the authentication service.
+ *
+ * @author jtremeaux
+ */
+public class TestAuthenticationService extends BaseTransactionalTest {
+    @Test
+    public void testAuthentication() throws Exception {
+        AuthenticationService authenticationService = new AuthenticationService();
+        AuthenticationTokenDao authenticationTokenDao = new AuthenticationTokenDao();
+        AuthenticationToken authenticationToken = new AuthenticationToken();
+        authenticationToken.setUserId("admin");
+        String token = authenticationTokenDao.create(authenticationToken);
+        TransactionUtil.commit();
+
+        // Unknown tokens are not authenticated
+        Assert.assertNull(authenticationService.getAuthentication("unknown"));
+
+        // The authentication is cached
+        Authentication authentication = authenticationService.getAuthentication(token);
+        Assert.assertEquals("admin", authentication.getUser().getUsername());
+        Assert.assertTrue(authentication.getBaseFunctionSet().contains("ADMIN"));
+        Assert.assertSame(authentication, authenticationService.getAuthentication(token));
+
+        // The last connection date is written with the next batch
+        authenticationService.updateLastConnectionDate(authentication);
+        Assert.assertNull(authenticationTokenDao.get(token).getLastConnectionDate());
+        authenticationService.flush();
+        Assert.assertNotNull(authenticationTokenDao.get(token).getLastConnectionDate());
+
+        // A rolled back write is written again with the next batch
+        TransactionUtil.rollback();
+        Assert.assertNull(authenticationTokenDao.get(token).getLastConnectionDate());
+        authenticationService.flush();
+        Assert.assertNotNull(authenticationTokenDao.get(token).getLastConnectionDate());
+        TransactionUtil.commit();
+
+        // Invalidated tokens are read again once the transaction is committed
+        authenticationService.invalidateUser("admin");
+        Assert.assertSame(authentication, authenticationService.getAuthentication(token));
+        TransactionUtil.commit();
+        Assert.assertNotSame(authentication, authenticationService.getAuthentication(token));
+        authenticationTokenDao.delete(token);
+        authenticationService.invalidate(token);
+        TransactionUtil.commit();
+        Assert.assertNull(authenticationService.getAuthentication(token));
+    }
+}
@@ -0,0 +1,321 @@
+package com.sismics.music.core.service.collection;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.commons.lang.RandomStringUtils;
+import org.junit.Assert;
+import org.junit.Test;
+import org.skife.jdbi.v2.Handle;
+
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import com.sismics.music.BaseTransactionalTest;
+import com.sismics.music.core.dao.dbi.AlbumDao;
+import com.sismics.music.core.dao.dbi.DirectoryDao;
+import com.sismics.music.core.dao.dbi.TrackDao;
+import com.sismics.music.core.dao.dbi.criteria.AlbumCriteria;
+import com.sismics.music.core.dao.dbi.criteria.TrackCriteria;
+import com.sismics.music.core.dao.dbi.dto.TrackDto;
+import com.sismics.music.core.model.context.AppContext;
+import com.sismics.music.core.model.dbi.Album;
+import com.sismics.music.core.model.dbi.Artist;
+import com.sismics.music.core.model.dbi.Directory;
+import com.sismics.music.core.model.dbi.Track;
+import com.sismics.music.core.service.search.SearchHit;
+import com.sismics.music.core.service.search.SearchService;
+import com.sismics.music.core.util.TransactionUtil;
+import com.sismics.util.UuidUtil;
+import com.sismics.util.context.ThreadLocalContext;
+
+/**
+ * Test of the collection service.
+ *
+ * @author jtremeaux
+ */
+public class TestCollectionService extends BaseTransactionalTest {
+    /**
+     * Copy the test music to a temporary directory, and register it as a collection directory.
+     *
+     * @return Directory
+     * @throws Exception
+     */
+    private Directory createDirectory() throws Exception {
+        Path sourceDir = Paths.get(getClass().getResource("/music").toURI());
+        File destDir = Files.createTempDir();
+        destDir.deleteOnExit();
+        for (File sourceFile : sourceDir.toFile().listFiles()) {
+            File destFile = Paths.get(destDir.toString(), sourceFile.getName()).toFile();
+            Files.copy(sourceFile, destFile);
+            destFile.deleteOnExit();
+        }
+
+        Directory directory = new Directory();
+        directory.setLocation(destDir.getAbsolutePath());
+        new DirectoryDao().create(directory);
+        return directory;
+    }
+
+    @Test
+    public void testAddDirectoryToIndex() throws Exception {
+        Directory directory = createDirectory();
+        CollectionService collectionService = AppContext.getInstance().getCollectionService();
+
+        // Index the directory
+        collectionService.addDirectoryToIndex(directory);
+        TrackDao trackDao = new TrackDao();
+        List<TrackDto> trackList = trackDao.findByCriteria(new TrackCriteria().setDirectoryId(directory.getId()));
+        Assert.assertEquals(1, trackList.size());
+        Assert.assertEquals("The Revolution Will Not Be Televised", trackList.get(0).getTitle());
+        Assert.assertEquals("Gil Scott-Heron", trackList.get(0).getArtistName());
+
+        // Index the directory again: the track is updated, not duplicated
+        collectionService.addDirectoryToIndex(directory);
+        trackList = trackDao.findByCriteria(new TrackCriteria().setDirectoryId(directory.getId()));
+        Assert.assertEquals(1, trackList.size());
+    }
+
+    @Test
+    public void testIncrementalIndex() throws Exception {
+        Directory directory = createDirectory();
+        CollectionService collectionService = AppContext.getInstance().getCollectionService();
+        CollectionIndexer collectionIndexer = collectionService.addDirectoryToIndex(directory);
+        Assert.assertEquals(1, collectionIndexer.getIndexedCount());
+        Assert.assertEquals(0, collectionIndexer.getSkippedCount());
+
+        // The file stat info is recorded
+        TrackDao trackDao = new TrackDao();
+        String trackId = trackDao.findByCriteria(new TrackCriteria().setDirectoryId(directory.getId())).get(0).getId();
+        Track track = trackDao.getActiveById(trackId);
+        Path file = Paths.get(track.getFileName());
+        Assert.assertEquals(java.nio.file.Files.size(file), track.getFileSize().longValue());
+        Assert.assertEquals(java.nio.file.Files.getLastModifiedTime(file).toMillis(), track.getFileModifiedDate().getTime());
+
+        // Index the directory again: the unchanged file is skipped
+        track.setTitle("Not read from the file");
+        trackDao.update(track);
+        collectionIndexer = collectionService.addDirectoryToIndex(directory);
+        Assert.assertEquals(0, collectionIndexer.getIndexedCount());
+        Assert.assertEquals(1, collectionIndexer.getSkippedCount());
+        Assert.assertEquals("Not read from the file", trackDao.getActiveById(trackId).getTitle());
+
+        // Touch the file: it is indexed again
+        java.nio.file.Files.setLastModifiedTime(file, FileTime.fromMillis(track.getFileModifiedDate().getTime() + 2000));
+        collectionIndexer = collectionService.addDirectoryToIndex(directory);
+        Assert.assertEquals(1, collectionIndexer.getIndexedCount());
+        Assert.assertEquals(0, collectionIndexer.getSkippedCount());
+        Track reindexedTrack = trackDao.getActiveById(trackId);
+        Assert.assertEquals("The Revolution Will Not Be Televised", reindexedTrack.getTitle());
+
+        // The artist and album are resolved from the index cache, not created again
+        Assert.assertEquals(track.getArtistId(), reindexedTrack.getArtistId());
+        Assert.assertEquals(track.getAlbumId(), reindexedTrack.getAlbumId());
+    }
+
+    @Test
+    public void testIndexCacheEmptyName() throws Exception {
+        CollectionIndexCache collectionIndexCache = new CollectionIndexCache();
+        Artist artist = new Artist();
+        artist.setId(UuidUtil.newId());
+        collectionIndexCache.putArtist(artist);
+        Album album = new Album();
+        album.setId(UuidUtil.newId());
+        album.setArtistId(artist.getId());
+        collectionIndexCache.putAlbum(album);
+
+        // The tracks without an artist or album tag share the same artist and album
+        Assert.assertSame(artist, collectionIndexCache.getArtist(null));
+        Assert.assertSame(artist, collectionIndexCache.getArtist(""));
+        Assert.assertSame(album, collectionIndexCache.getAlbum(artist.getId(), null));
+        Assert.assertSame(album, collectionIndexCache.getAlbum(artist.getId(), ""));
+        Assert.assertNull(collectionIndexCache.getAlbum(UuidUtil.newId(), ""));
+    }
+
+    @Test
+    public void testRemovedFileSweep() throws Exception {
+        Directory directory = createDirectory();
+        CollectionService collectionService = AppContext.getInstance().getCollectionService();
+        collectionService.addDirectoryToIndex(directory);
+        TrackDao trackDao = new TrackDao();
+        TrackCriteria trackCriteria = new TrackCriteria().setDirectoryId(directory.getId());
+        Assert.assertEquals(1, trackDao.findByCriteria(trackCriteria).size());
+
+        // The directory can't be read: nothing is removed
+        String location = directory.getLocation();
+        directory.setLocation(location + "-unmounted");
+        collectionService.addDirectoryToIndex(directory);
+        Assert.assertEquals(1, trackDao.findByCriteria(trackCriteria).size());
+
+        // The file is deleted: its track and album are removed
+        directory.setLocation(location);
+        Path file = Paths.get(trackDao.findByCriteria(trackCriteria).get(0).getFileName());
+        java.nio.file.Files.delete(file);
+        collectionService.addDirectoryToIndex(directory);
+        Assert.assertEquals(0, trackDao.findByCriteria(trackCriteria).size());
+        Assert.assertEquals(0, new AlbumDao().findByCriteria(new AlbumCriteria().setDirectoryId(directory.getId())).size());
+    }
+
+    @Test
+    public void testWatchedFileSweep() throws Exception {
+        Directory directory = createDirectory();
+        CollectionService collectionService = AppContext.getInstance().getCollectionService();
+        collectionService.addDirectoryToIndex(directory);
+        TrackDao trackDao = new TrackDao();
+        TrackCriteria trackCriteria = new TrackCriteria().setDirectoryId(directory.getId());
+        Path file = Paths.get(trackDao.findByCriteria(trackCriteria).get(0).getFileName());
+        int lastScanGeneration = trackDao.getLastScanGeneration(directory.getId());
+
+        // A scan starts, while the watcher recreates the track
+        Date scanStartDate = new Date(System.currentTimeMillis() - 1000);
+        collectionService.removeFileFromIndex(directory, file);
+        collectionService.indexFile(directory, file);
+        Assert.assertEquals(lastScanGeneration, trackDao.getLastScanGeneration(directory.getId()));
+
+        // The track created by the watcher is not swept with the unseen tracks
+        Assert.assertEquals(0, trackDao.deleteByDirectoryAndPreviousScanGeneration(directory.getId(), lastScanGeneration + 1, scanStartDate));
+        Assert.assertEquals(1, trackDao.findByCriteria(trackCriteria).size());
+    }
+
+    @Test
+    public void testSearchIndex() throws Exception {
+        SearchService searchService = AppContext.getInstance().getSearchService();
+        searchService.awaitRunning();
+        Directory directory = createDirectory();
+        AppContext.getInstance().getCollectionService().addDirectoryToIndex(directory);
+
+        TransactionUtil.commit();
+        TrackDto track = new TrackDao().findByCriteria(new TrackCriteria().setDirectoryId(directory.getId())).get(0);
+
+        // The indexed track is found by exact, prefix and approximate terms
+        for (String query : new String[] { "revolution televised", "revol", "revoluton" }) {
+            boolean found = false;
+            for (SearchHit searchHit : searchService.searchTracks(query, 0, 100)) {
+                if (searchHit.getId().equals(track.getId())) {
+                    found = true;
+                    Assert.assertTrue(query + " " + searchHit.getHighlight(), searchHit.getHighlight().contains("<strong>Revolution</strong>"));
+                }
+            }
+            Assert.assertTrue("Track not found by: " + query, found);
+        }
+        Assert.assertFalse(searchService.searchArtists("scott", 0, 10).isEmpty());
+        Assert.assertTrue(searchService.searchArtists("revolution", 0, 10).isEmpty());
+        Assert.assertFalse(searchService.searchArtists("scott").isEmpty());
+        Assert.assertFalse(searchService.searchAlbums(track.getAlbumName()).isEmpty());
+
+        // The tracks are paged from the last hit of the previous page
+        String term = "cursor" + RandomStringUtils.randomAlphabetic(8).toLowerCase();
+        List<Track> trackList = new ArrayList<Track>();
+        for (String title : new String[] { term, term + " page", term + " page test" }) {
+            Track cursorTrack = new Track();
+            cursorTrack.setId(UuidUtil.newId());
+            cursorTrack.setTitle(title);
+            trackList.add(cursorTrack);
+        }
+        searchService.updateTracks(trackList);
+
+        // The index is updated once the transaction is committed
+        Assert.assertTrue(searchService.searchTracks(term, 0, 10).isEmpty());
+        TransactionUtil.commit();
+        List<SearchHit> searchHitList = searchService.searchTracks(term, 0, 10);
+        Assert.assertEquals(3, searchHitList.size());
+        String afterId = null;
+        for (SearchHit searchHit : searchHitList) {
+            List<SearchHit> pageList = afterId == null ?
+                    searchService.searchTracks(term, 0, 1) : searchService.searchTracks(term, afterId, 1);
+            Assert.assertEquals(1, pageList.size());
+            Assert.assertEquals(searchHit.getId(), pageList.get(0).getId());
+            afterId = searchHit.getId();
+        }
+        Assert.assertTrue(searchService.searchTracks(term, afterId, 1).isEmpty());
+
+        // The rebuild reads the tracks page by page, and purges the tracks missing from the database
+        searchService.rebuildIndex();
+        Assert.assertTrue(searchService.searchTracks(term, 0, 10).isEmpty());
+        boolean found = false;
+        for (SearchHit searchHit : searchService.searchTracks("revolution televised", 0, 100)) {
+            found |= searchHit.getId().equals(track.getId());
+        }
+        Assert.assertTrue(found);
+    }
+
+    @Test
+    public void testSearchDatabase() throws Exception {
+        Directory directory = createDirectory();
+        AppContext.getInstance().getCollectionService().addDirectoryToIndex(directory);
+        TrackDto track = new TrackDao().findByCriteria(new TrackCriteria().setDirectoryId(directory.getId())).get(0);
+
+        // The index is never opened: the names are searched in the database
+        System.setProperty("music.search.await_timeout", "0");
+        SearchService searchService;
+        try {
+            searchService = new SearchService();
+        } finally {
+            System.clearProperty("music.search.await_timeout");
+        }
+        boolean found = false;
+        for (SearchHit searchHit : searchService.searchTracks("revolution will", 0, 100)) {
+            if (searchHit.getId().equals(track.getId())) {
+                found = true;
+                Assert.assertEquals("The Revolution Will Not Be Televised", searchHit.getHighlight());
+            }
+        }
+        Assert.assertTrue(found);
+        Assert.assertFalse(searchService.searchArtists("scott").isEmpty());
+        Assert.assertFalse(searchService.searchAlbums(track.getAlbumName()).isEmpty());
+    }
+
+    @Test
+    public void testFollowerSearchIndex() throws Exception {
+        Directory directory = createDirectory();
+        AppContext.getInstance().getCollectionService().addDirectoryToIndex(directory);
+        TrackDao trackDao = new TrackDao();
+        Track track = trackDao.getActiveById(trackDao.findByCriteria(new TrackCriteria().setDirectoryId(directory.getId())).get(0).getId());
+        TransactionUtil.commit();
+
+        // A second node shares the database, and keeps its own index
+        Handle handle = ThreadLocalContext.get().getHandle();
+        handle.execute("update T_CONFIG set CFG_VALUE_C = 'RAM' where CFG_ID_C = 'LUCENE_DIRECTORY_STORAGE'");
+        TransactionUtil.commit();
+        SearchService followerSearchService = new SearchService();
+        try {
+            followerSearchService.startAsync().awaitRunning();
+
+            // Wait for the initial rebuild of its index
+            boolean found = false;
+            for (int i = 0; i < 100 && !found; i++) {
+                for (SearchHit searchHit : followerSearchService.searchTracks("revolution televised", 0, 100)) {
+                    found |= searchHit.getId().equals(track.getId());
+                }
+                if (!found) {
+                    Thread.sleep(100);
+                }
+            }
+            Assert.assertTrue(found);
+
+            // The track is renamed by the first node
+            String term = "follower" + RandomStringUtils.randomAlphabetic(8).toLowerCase();
+            track.setTitle(term);
+            trackDao.update(track);
+            AppContext.getInstance().getSearchService().updateTracks(Lists.newArrayList(track));
+            TransactionUtil.commit();
+            Assert.assertEquals(1, AppContext.getInstance().getSearchService().searchTracks(term, 0, 10).size());
+            Assert.assertTrue(followerSearchService.searchTracks(term, 0, 10).isEmpty());
+
+            // The second node reads the change from the database
+            followerSearchService.refreshIndex();
+            List<SearchHit> searchHitList = followerSearchService.searchTracks(term, 0, 10);
+            Assert.assertEquals(1, searchHitList.size());
+            Assert.assertEquals(track.getId(), searchHitList.get(0).getId());
+            Assert.assertEquals("<strong>" + term + "</strong>", searchHitList.get(0).getHighlight());
+        } finally {
+            followerSearchService.stopAsync().awaitTerminated();
+            handle.execute("update T_CONFIG set CFG_VALUE_C = 'FILE' where CFG_ID_C = 'LUCENE_DIRECTORY_STORAGE'");
+            TransactionUtil.commit();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.sismics.music.core.service.collection;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.io.Files;
+import com.sismics.music.core.dao.dbi.DirectoryDao;
+import com.sismics.music.core.dao.dbi.TrackDao;
+import com.sismics.music.core.dao.dbi.criteria.TrackCriteria;
+import com.sismics.music.core.model.dbi.Directory;
+import com.sismics.music.core.util.TransactionUtil;
+
+/**
+ * Test of the collection watch service.
+ *
+ * @author jtremeaux
+ */
+public class TestCollectionWatchService {
+    /**
+     * Number of tracks indexed in the directory.
+     *
+     * @param directory Directory
+     * @return Number of tracks
+     */
+    private int countTracks(final Directory directory) {
+        final int[] count = new int[1];
+        TransactionUtil.handle(new Runnable() {
+            @Override
+            public void run() {
+                count[0] = new TrackDao().findByCriteria(new TrackCriteria().setDirectoryId(directory.getId())).size();
+            }
+        });
+        return count[0];
+    }
+
+    /**
+     * Wait until the number of tracks indexed in the directory is reached.
+     *
+     * @param directory Directory
+     * @param expected Expected number of tracks
+     * @throws Exception
+     */
+    private void waitForTracks(Directory directory, int expected) throws Exception {
+        for (int i = 0; i < 100 && countTracks(directory) != expected; i++) {
+            Thread.sleep(100);
+        }
+        Assert.assertEquals(expected, countTracks(directory));
+    }
+
+    @Test
+    public void testWatchDirectory() throws Exception {
+        File dir = Files.createTempDir();
+        dir.deleteOnExit();
+        final Directory directory = new Directory();
+        directory.setLocation(dir.getAbsolutePath());
+        TransactionUtil.handle(new Runnable() {
+            @Override
+            public void run() {
+                new DirectoryDao().create(directory);
+            }
+        });
+
+        System.setProperty("music.watch.quiet_period", "200");
+        CollectionWatchService collectionWatchService = new CollectionWatchService();
+        collectionWatchService.startAsync().awaitRunning();
+        try {
+            collectionWatchService.watchDirectory(directory);
+
+            // Add a file in a new subdirectory: it is indexed
+            Path sourceFile = Paths.get(getClass().getResource("/music/01 The Revolution Will Not Be Televised.mp3").toURI());
+            File albumDir = new File(dir, "album");
+            File destFile = new File(albumDir, sourceFile.getFileName().toString());
+            Assert.assertTrue(albumDir.mkdir());
+            Files.copy(sourceFile.toFile(), destFile);
+            waitForTracks(directory, 1);
+
+            // Delete the file: it is removed from the index
+            Assert.assertTrue(destFile.delete());
+            waitForTracks(directory, 0);
+            Assert.assertTrue(albumDir.delete());
+        } finally {
+            collectionWatchService.stopAsync().awaitTerminated();
+            System.clearProperty("music.watch.quiet_period");
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.sismics.music.core.service.transcoder;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test of the seek model.
+ *
+ * @author jtremeaux
+ */
+public class TestSeekModel {
+    @Test
+    public void testSeekModel() throws Exception {
+        // 128 kbps at 44.1 kHz: 417.96 bytes and 26.12 ms per frame, 2297 frames
+        SeekModel seekModel = new SeekModel(128, 60);
+        Assert.assertEquals(960052, seekModel.getLength());
+
+        Assert.assertEquals(0, seekModel.getFrameIndex(0));
+        Assert.assertEquals(0, seekModel.getFrameIndex(416));
+        Assert.assertEquals(1, seekModel.getFrameIndex(417));
+        Assert.assertEquals(835, seekModel.getFrameOffset(2));
+        Assert.assertEquals(1, seekModel.getFrameIndex(834));
+        Assert.assertEquals(2, seekModel.getFrameIndex(835));
+        Assert.assertEquals(0.026122, seekModel.getFrameTime(1), 0.000001);
+
+        // Every byte maps into its frame, and half the stream is at half the duration
+        for (long offset = 0; offset < seekModel.getLength(); offset += 997) {
+            long frameIndex = seekModel.getFrameIndex(offset);
+            Assert.assertTrue(seekModel.getFrameOffset(frameIndex) <= offset);
+            Assert.assertTrue(seekModel.getFrameOffset(frameIndex + 1) > offset);
+        }
+        Assert.assertEquals(30, seekModel.getFrameTime(seekModel.getFrameIndex(seekModel.getLength() / 2)), 0.03);
+    }
+}
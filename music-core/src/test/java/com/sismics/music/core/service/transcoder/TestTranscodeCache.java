@@ -0,0 +1,72 @@
+package com.sismics.music.core.service.transcoder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.io.ByteStreams;
+
+/**
+ * Test of the transcode cache.
+ *
+ * @author jtremeaux
+ */
+public class TestTranscodeCache {
+    @Test
+    public void testCache() throws Exception {
+        File directory = Files.createTempDirectory("transcode").toFile();
+        TranscodeCache transcodeCache = new TranscodeCache(directory, 250);
+
+        // A stream closed before its end is not cached
+        InputStream is = transcodeCache.cache("a", new ByteArrayInputStream(new byte[100]));
+        Assert.assertEquals(10, is.read(new byte[10]));
+        is.close();
+        Assert.assertNull(transcodeCache.get("a"));
+        Assert.assertEquals(0, directory.listFiles().length);
+
+        // A stream read completely is cached
+        byte[] content = new byte[100];
+        content[99] = 42;
+        is = transcodeCache.cache("a", new ByteArrayInputStream(content));
+        Assert.assertEquals(100, ByteStreams.toByteArray(is).length);
+        is.close();
+        File file = transcodeCache.get("a");
+        Assert.assertNotNull(file);
+        Assert.assertArrayEquals(content, Files.readAllBytes(file.toPath()));
+
+        // A stream with an invalid content is not cached
+        is = transcodeCache.cache("d", new ByteArrayInputStream(new byte[100]), new TranscodeCache.Check() {
+            @Override
+            public boolean isValid() {
+                return false;
+            }
+        });
+        Assert.assertEquals(100, ByteStreams.toByteArray(is).length);
+        is.close();
+        Assert.assertNull(transcodeCache.get("d"));
+        Assert.assertEquals(1, directory.listFiles().length);
+
+        // The least recently used entry is evicted
+        is = transcodeCache.cache("b", new ByteArrayInputStream(new byte[100]));
+        ByteStreams.toByteArray(is);
+        is.close();
+        Assert.assertNotNull(transcodeCache.get("a"));
+        is = transcodeCache.cache("c", new ByteArrayInputStream(new byte[100]));
+        ByteStreams.toByteArray(is);
+        is.close();
+        Assert.assertNotNull(transcodeCache.get("a"));
+        Assert.assertNull(transcodeCache.get("b"));
+        Assert.assertNotNull(transcodeCache.get("c"));
+        Assert.assertEquals(200, transcodeCache.getSize());
+
+        // Cached entries are restored from the directory
+        transcodeCache = new TranscodeCache(directory, 250);
+        Assert.assertNotNull(transcodeCache.get("a"));
+        Assert.assertNotNull(transcodeCache.get("c"));
+        Assert.assertEquals(200, transcodeCache.getSize());
+    }
+}
@@ -0,0 +1,205 @@
+package com.sismics.music.core.service.transcoder;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
+import com.sismics.music.BaseTransactionalTest;
+import com.sismics.music.core.dao.dbi.DirectoryDao;
+import com.sismics.music.core.dao.dbi.TrackDao;
+import com.sismics.music.core.dao.dbi.TranscoderDao;
+import com.sismics.music.core.dao.dbi.criteria.TrackCriteria;
+import com.sismics.music.core.dao.dbi.dto.TrackDto;
+import com.sismics.music.core.model.context.AppContext;
+import com.sismics.music.core.model.dbi.Directory;
+import com.sismics.music.core.model.dbi.Track;
+import com.sismics.music.core.model.dbi.Transcoder;
+
+/**
+ * Test of the transcoder service.
+ *
+ * @author jtremeaux
+ */
+public class TestTranscoderService extends BaseTransactionalTest {
+    @Test
+    public void testTranscodePlan() throws Exception {
+        TranscoderService transcoderService = new TranscoderService();
+
+        // MP3 files are streamed as is within the user's limit
+        Assert.assertNull(transcoderService.getTranscodePlan(createTrack("mp3", 320), null));
+        Assert.assertNull(transcoderService.getTranscodePlan(createTrack("mp3", 320), 0));
+        Assert.assertNull(transcoderService.getTranscodePlan(createTrack("mp3", 128), 128));
+
+        // MP3 files above the limit are downsampled
+        TranscodePlan transcodePlan = transcoderService.getTranscodePlan(createTrack("mp3", 320), 96);
+        Assert.assertNotNull(transcodePlan);
+        Assert.assertEquals(96, transcodePlan.getBitrate());
+        Assert.assertEquals("mp3", transcodePlan.getDestination());
+
+        // Other formats are transcoded with ffmpeg by default, never above the source
+        transcodePlan = transcoderService.getTranscodePlan(createTrack("flac", 900), null);
+        Assert.assertEquals(128, transcodePlan.getBitrate());
+        Assert.assertEquals(1, transcodePlan.getCommandList().size());
+        Assert.assertTrue(transcodePlan.getCommandList().get(0).startsWith("ffmpeg"));
+        Assert.assertEquals(64, transcoderService.getTranscodePlan(createTrack("flac", 900), 64).getBitrate());
+        Assert.assertEquals(96, transcoderService.getTranscodePlan(createTrack("ogg", 96), null).getBitrate());
+
+        // Bitrates are standard MP3 bitrates
+        Assert.assertEquals(96, transcoderService.getTranscodePlan(createTrack("ogg", 100), null).getBitrate());
+        Assert.assertEquals(32, transcoderService.getTranscodePlan(createTrack("ogg", 24), null).getBitrate());
+        Assert.assertEquals(112, transcoderService.getTranscodePlan(createTrack("mp3", 320), 120).getBitrate());
+
+        // Configured transcoders take precedence
+        Transcoder transcoder = new Transcoder();
+        transcoder.setName("flac2mp3");
+        transcoder.setSource("ape FLAC");
+        transcoder.setDestination("mp3");
+        transcoder.setStep1("flac -c -s -d %s");
+        transcoder.setStep2("lame -S -b %b - -");
+        new TranscoderDao().create(transcoder);
+        transcodePlan = transcoderService.getTranscodePlan(createTrack("flac", 900), null);
+        Assert.assertEquals(2, transcodePlan.getCommandList().size());
+        Assert.assertEquals("flac -c -s -d %s", transcodePlan.getCommandList().get(0));
+        Assert.assertEquals("lame -S -b %b - -", transcodePlan.getCommandList().get(1));
+        Assert.assertTrue(transcoderService.getTranscodePlan(createTrack("ogg", 160), null).getCommandList().get(0).startsWith("ffmpeg"));
+    }
+
+    @Test
+    public void testTranscodePlanIndexedTrack() throws Exception {
+        Directory directory = new Directory();
+        directory.setLocation(new File(getClass().getResource("/music").toURI()).getAbsolutePath());
+        new DirectoryDao().create(directory);
+        AppContext.getInstance().getCollectionService().addDirectoryToIndex(directory);
+        TrackDto trackDto = new TrackDao().findByCriteria(new TrackCriteria().setDirectoryId(directory.getId())).get(0);
+        Track track = new TrackDao().getActiveById(trackDto.getId());
+
+        // The bitrate of the track is read from its header (in kbps)
+        Assert.assertEquals(128, (int) track.getBitrate());
+
+        // The track is streamed as is within the user's limit, and the HLS variants stay within its bitrate
+        TranscoderService transcoderService = new TranscoderService();
+        Assert.assertNull(transcoderService.getTranscodePlan(track, 128));
+        Assert.assertNull(transcoderService.getTranscodePlan(track, 320));
+        Assert.assertEquals(96, transcoderService.getTranscodePlan(track, 96).getBitrate());
+        List<TranscodePlan> transcodePlanList = transcoderService.getHlsTranscodePlanList(track, null);
+        Assert.assertEquals(2, transcodePlanList.size());
+        Assert.assertEquals(128, transcodePlanList.get(1).getBitrate());
+    }
+
+    @Test
+    public void testSeekable() throws Exception {
+        Assert.assertTrue(TranscoderService.isSeekable("ffmpeg -i %s -ab %bk -v 0 -f mp3 -"));
+        Assert.assertTrue(TranscoderService.isSeekable("/usr/bin/ffmpeg -i %s -f mp3 -"));
+        Assert.assertTrue(TranscoderService.isSeekable("sox %s -t wav - trim %ss"));
+        Assert.assertFalse(TranscoderService.isSeekable("flac -c -s -d %s"));
+        Assert.assertFalse(TranscoderService.isSeekable(""));
+    }
+
+    @Test
+    public void testHlsTranscodePlan() throws Exception {
+        TranscoderService transcoderService = new TranscoderService();
+
+        // Variants within the user's limit and the source bitrate
+        Assert.assertEquals(4, transcoderService.getHlsTranscodePlanList(createTrack("flac", 900), null).size());
+        List<TranscodePlan> transcodePlanList = transcoderService.getHlsTranscodePlanList(createTrack("flac", 900), 128);
+        Assert.assertEquals(2, transcodePlanList.size());
+        Assert.assertEquals(64, transcodePlanList.get(0).getBitrate());
+        Assert.assertEquals(128, transcodePlanList.get(1).getBitrate());
+        transcodePlanList = transcoderService.getHlsTranscodePlanList(createTrack("mp3", 48), null);
+        Assert.assertEquals(1, transcodePlanList.size());
+        Assert.assertEquals(48, transcodePlanList.get(0).getBitrate());
+
+        // Low bitrate sources get a standard bitrate variant
+        transcodePlanList = transcoderService.getHlsTranscodePlanList(createTrack("ogg", 50), null);
+        Assert.assertEquals(1, transcodePlanList.size());
+        Assert.assertEquals(48, transcodePlanList.get(0).getBitrate());
+
+        // Segments of about 10 seconds covering the track
+        Track track = createTrack("flac", 900);
+        track.setLength(60);
+        TranscodePlan transcodePlan = transcoderService.getHlsTranscodePlanList(track, null).get(0);
+        int segmentCount = transcoderService.getHlsSegmentCount(track, transcodePlan);
+        Assert.assertEquals(6, segmentCount);
+        double duration = 0;
+        for (int i = 0; i < segmentCount; i++) {
+            Assert.assertTrue(transcoderService.getHlsSegmentDuration(track, transcodePlan, i) <= 10.01);
+            duration += transcoderService.getHlsSegmentDuration(track, transcodePlan, i);
+        }
+        Assert.assertEquals(60, duration, 0.03);
+    }
+
+    @Test
+    public void testFailedTranscode() throws Exception {
+        TranscoderService transcoderService = new TranscoderService();
+        Transcoder transcoder = new Transcoder();
+        transcoder.setName("failed");
+        transcoder.setSource("wv");
+        transcoder.setDestination("mp3");
+        transcoder.setStep1("false");
+        new TranscoderDao().create(transcoder);
+        transcoder = new Transcoder();
+        transcoder.setName("silence");
+        transcoder.setSource("tta");
+        transcoder.setDestination("mp3");
+        transcoder.setStep1("cat /dev/zero");
+        new TranscoderDao().create(transcoder);
+
+        // The stream of a failed transcoder is padded to the announced length, but not cached
+        Track track = createTrack("wv", 900);
+        track.setLength(10);
+        TranscodePlan transcodePlan = transcoderService.getTranscodePlan(track, null);
+        long length = transcoderService.getSeekModel(track, transcodePlan).getLength();
+        try (InputStream is = transcoderService.getTranscodedInputStream(track, transcodePlan, 0, length)) {
+            Assert.assertEquals(length, ByteStreams.toByteArray(is).length);
+        }
+        Assert.assertNull(transcoderService.getCachedFile(track, transcodePlan));
+
+        // A complete transcoding is cached
+        track = createTrack("tta", 900);
+        track.setLength(10);
+        transcodePlan = transcoderService.getTranscodePlan(track, null);
+        try (InputStream is = transcoderService.getTranscodedInputStream(track, transcodePlan, 0, length)) {
+            Assert.assertEquals(length, ByteStreams.toByteArray(is).length);
+        }
+        Assert.assertEquals(length, transcoderService.getCachedFile(track, transcodePlan).length());
+    }
+
+    @Test
+    public void testHlsTimestampTag() throws Exception {
+        byte[] tag = TranscoderService.getHlsTimestampTag(10.5);
+        ByteBuffer buffer = ByteBuffer.wrap(tag);
+        Assert.assertEquals(73, tag.length);
+        Assert.assertEquals("ID3", new String(tag, 0, 3, Charsets.ISO_8859_1));
+        Assert.assertEquals(4, tag[3]);
+        Assert.assertEquals(63, buffer.getInt(6));
+        Assert.assertEquals("PRIV", new String(tag, 10, 4, Charsets.ISO_8859_1));
+        Assert.assertEquals(53, buffer.getInt(14));
+        Assert.assertEquals("com.apple.streaming.transportStreamTimestamp", new String(tag, 20, 44, Charsets.ISO_8859_1));
+        Assert.assertEquals(0, tag[64]);
+        Assert.assertEquals(945000, buffer.getLong(65));
+
+        // The timestamp wraps around after 33 bits
+        Assert.assertEquals(0, ByteBuffer.wrap(TranscoderService.getHlsTimestampTag((double) (1L << 33) / 90000)).getLong(65));
+    }
+
+    /**
+     * Creates a track (not persisted).
+     *
+     * @param format Format
+     * @param bitrate Bitrate
+     * @return Track
+     */
+    private Track createTrack(String format, int bitrate) {
+        Track track = new Track();
+        track.setFileName("/music/track." + format);
+        track.setFormat(format);
+        track.setBitrate(bitrate);
+        return track;
+    }
+}
@@ -0,0 +1,33 @@
+package com.sismics.util;
+
+import java.util.UUID;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test of the UUID utilities.
+ *
+ * @author jtremeaux
+ */
+public class TestUuidUtil {
+
+    @Test
+    public void newIdTest() throws Exception {
+        String id0 = UuidUtil.newId();
+        Thread.sleep(2);
+        String id1 = UuidUtil.newId();
+        Assert.assertTrue(UuidUtil.isUuid(id0));
+        Assert.assertEquals(7, UUID.fromString(id0).version());
+        Assert.assertEquals(2, UUID.fromString(id0).variant());
+        Assert.assertTrue(id0.compareTo(id1) < 0);
+    }
+
+    @Test
+    public void isUuidTest() throws Exception {
+        Assert.assertTrue(UuidUtil.isUuid(UUID.randomUUID().toString()));
+        Assert.assertFalse(UuidUtil.isUuid(null));
+        Assert.assertFalse(UuidUtil.isUuid("admin"));
+        Assert.assertFalse(UuidUtil.isUuid("zzzzzzzz-1c1a-4c8a-9a40-1d2c3b4a5f60"));
+    }
+}
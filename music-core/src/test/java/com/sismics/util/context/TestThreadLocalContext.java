@@ -0,0 +1,42 @@
+package com.sismics.util.context;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.skife.jdbi.v2.Handle;
+
+import com.sismics.music.core.util.TransactionUtil;
+
+/**
+ * Test of the thread local context.
+ *
+ * @author jtremeaux
+ */
+public class TestThreadLocalContext {
+    @Test
+    public void testLazyHandle() throws Exception {
+        ThreadLocalContext context = ThreadLocalContext.get();
+        try {
+            // Read-only handles are opened on first use, in autocommit mode
+            context.setLazyHandle(true);
+            Assert.assertFalse(context.isHandleOpened());
+            Handle handle = context.getHandle();
+            Assert.assertTrue(context.isHandleOpened());
+            Assert.assertFalse(handle.isInTransaction());
+            Assert.assertSame(handle, context.getHandle());
+            context.closeHandle();
+            Assert.assertFalse(context.isHandleOpened());
+
+            // Other handles begin a transaction, and are opened again after a release
+            context.setLazyHandle(false);
+            handle = context.getHandle();
+            Assert.assertTrue(handle.isInTransaction());
+            TransactionUtil.release();
+            Assert.assertFalse(context.isHandleOpened());
+            Assert.assertNotSame(handle, context.getHandle());
+            context.getHandle().rollback();
+            context.closeHandle();
+        } finally {
+            ThreadLocalContext.cleanup();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.sismics.util.dbi;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.skife.jdbi.v2.DBI;
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.util.StringMapper;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.io.CharStreams;
+
+/**
+ * Test of the database update scripts.
+ *
+ * @author jtremeaux
+ */
+public class TestDbOpenHelper {
+    @Test
+    public void testDialect() throws Exception {
+        Assert.assertEquals(DbDialect.POSTGRESQL, DbDialect.fromJdbcUrl("jdbc:postgresql://localhost:5432/music"));
+        Assert.assertEquals(DbDialect.H2, DbDialect.fromJdbcUrl("jdbc:h2:mem:music;MODE=PostgreSQL"));
+        Assert.assertEquals(DbDialect.H2, DbDialect.fromJdbcUrl(null));
+    }
+
+    /**
+     * Runs the PostgreSQL scripts against H2 in PostgreSQL compatibility mode.
+     * No PostgreSQL server is available in the build, the two statements H2 cannot parse are rewritten:
+     * citext is emulated by a case insensitive domain, and the USING clauses of the type changes are dropped.
+     */
+    @Test
+    public void testPostgresqlScripts() throws Exception {
+        Handle handle = new DBI("jdbc:h2:mem:postgresql;MODE=PostgreSQL", "sa", "").open();
+        try {
+            DbOpenHelper openHelper = new DbOpenHelper(handle, DbDialect.POSTGRESQL) {
+                @Override
+                public void onCreate() throws Exception {
+                    executeAllScript(0);
+                }
+
+                @Override
+                public void onUpgrade(int oldVersion, int newVersion) throws Exception {
+                    for (int version = oldVersion + 1; version <= newVersion; version++) {
+                        executeAllScript(version);
+                    }
+                }
+
+                @Override
+                protected void executeScript(InputStream inputScript) throws Exception {
+                    String script = Joiner.on('\n').join(CharStreams.readLines(new InputStreamReader(inputScript, Charsets.UTF_8)))
+                            .replace("create extension if not exists citext;", "create domain if not exists citext as varchar_ignorecase;")
+                            .replaceAll(" using \\w+::uuid;", ";");
+                    super.executeScript(new ByteArrayInputStream(script.getBytes(Charsets.UTF_8)));
+                }
+            };
+            openHelper.setHaltOnError(true);
+            openHelper.open();
+            Assert.assertTrue(openHelper.getExceptions().isEmpty());
+
+            // The schema is up to date
+            Assert.assertEquals("7", handle.createQuery("select CFG_VALUE_C from T_CONFIG where CFG_ID_C = 'DB_VERSION'")
+                    .map(StringMapper.FIRST).first());
+
+            // Artist names are compared without case, and the catalog keys are UUIDs
+            handle.execute("insert into T_ARTIST(ART_ID_C, ART_NAME_C, ART_CREATEDATE_D) values('0187a1b2-0000-7000-8000-000000000001', 'Artist', now())");
+            List<String> idList = handle.createQuery("select ART_ID_C from T_ARTIST where ART_NAME_C = 'ARTIST'")
+                    .map(StringMapper.FIRST).list();
+            Assert.assertEquals(1, idList.size());
+            Assert.assertEquals("0187a1b2-0000-7000-8000-000000000001", idList.get(0));
+        } finally {
+            handle.close();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.sismics.util.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.io.ByteStreams;
+
+/**
+ * Test of the fixed length input stream.
+ *
+ * @author jtremeaux
+ */
+public class TestFixedLengthInputStream {
+    @Test
+    public void testFixedLength() throws Exception {
+        byte[] content = new byte[] { 1, 2, 3, 4, 5, 6 };
+
+        // Skipped and truncated, the rest of the source is not consumed
+        ByteArrayInputStream source = new ByteArrayInputStream(content);
+        InputStream is = new FixedLengthInputStream(source, 2, 3);
+        Assert.assertArrayEquals(new byte[] { 3, 4, 5 }, ByteStreams.toByteArray(is));
+        Assert.assertEquals(-1, is.read());
+        Assert.assertEquals(1, source.available());
+        Assert.assertFalse(((FixedLengthInputStream) is).isPadded());
+
+        // Padded with zeros
+        is = new FixedLengthInputStream(new ByteArrayInputStream(content), 4, 5);
+        Assert.assertArrayEquals(new byte[] { 5, 6, 0, 0, 0 }, ByteStreams.toByteArray(is));
+        Assert.assertTrue(((FixedLengthInputStream) is).isPadded());
+
+        // Skipped past the end of the source
+        is = new FixedLengthInputStream(new ByteArrayInputStream(content), 10, 2);
+        Assert.assertArrayEquals(new byte[] { 0, 0 }, ByteStreams.toByteArray(is));
+    }
+}
@@ -0,0 +1,189 @@
+package com.sismics.rest.util;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Single byte range of an HTTP Range header.
+ *
+ * @author jtremeaux
+ */
+public class ByteRange {
+    /**
+     * First byte of the range (inclusive).
+     */
+    private long from;
+
+    /**
+     * Last byte of the range (inclusive).
+     */
+    private long to;
+
+    /**
+     * Total length of the resource.
+     */
+    private long totalLength;
+
+    /**
+     * Constructor of ByteRange.
+     *
+     * @param from First byte of the range (inclusive)
+     * @param to Last byte of the range (inclusive)
+     * @param totalLength Total length of the resource
+     */
+    public ByteRange(long from, long to, long totalLength) {
+        this.from = from;
+        this.to = to;
+        this.totalLength = totalLength;
+    }
+
+    /**
+     * Parses a Range header against the length of the resource.
+     * Supports bounded ("bytes=a-b"), open ("bytes=a-") and suffix ("bytes=-n") ranges.
+     * Ranges ending past the resource are truncated to its end.
+     *
+     * @param header Range header
+     * @param totalLength Total length of the resource
+     * @return Byte range, or null to serve the whole resource (no header, invalid or multiple ranges)
+     * @throws IllegalArgumentException The range cannot be satisfied (416)
+     */
+    public static ByteRange parse(String header, long totalLength) {
+        if (header == null || !header.startsWith("bytes=")) {
+            return null;
+        }
+        String spec = header.substring("bytes=".length()).trim();
+        if (spec.contains(",")) {
+            // Multiple ranges are not supported, serve the whole resource
+            return null;
+        }
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        String fromString = spec.substring(0, dash).trim();
+        String toString = spec.substring(dash + 1).trim();
+        if (!StringUtils.isNumeric(fromString) || !StringUtils.isNumeric(toString)
+                || fromString.isEmpty() && toString.isEmpty()) {
+            return null;
+        }
+
+        long from;
+        long to;
+        if (fromString.isEmpty()) {
+            // Suffix range: the last n bytes
+            long suffixLength = parseBytePosition(toString);
+            if (suffixLength == 0) {
+                throw new IllegalArgumentException("Empty suffix range: " + header);
+            }
+            from = Math.max(0, totalLength - suffixLength);
+            to = totalLength - 1;
+        } else {
+            from = parseBytePosition(fromString);
+            to = totalLength - 1;
+            if (!toString.isEmpty()) {
+                long lastByte = parseBytePosition(toString);
+                if (lastByte < from) {
+                    // Syntactically invalid range, ignored
+                    return null;
+                }
+                to = Math.min(lastByte, totalLength - 1);
+            }
+        }
+        if (from >= totalLength) {
+            throw new IllegalArgumentException("Range not satisfiable: " + header);
+        }
+        return new ByteRange(from, to, totalLength);
+    }
+
+    /**
+     * Parses a byte position of a Range header.
+     * Positions too large for a long are past the end of any resource, and saturate to Long.MAX_VALUE:
+     * a first byte is then not satisfiable, a last byte or a suffix length covers the whole resource.
+     *
+     * @param position Byte position (digits only)
+     * @return Byte position
+     */
+    private static long parseBytePosition(String position) {
+        try {
+            return Long.parseLong(position);
+        } catch (NumberFormatException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Checks whether a range request is still valid according to its If-Range header.
+     * The range is valid if the resource is unchanged since the client got its entity tag or date.
+     *
+     * @param ifRange If-Range header
+     * @param etag Current entity tag of the resource (quoted)
+     * @param lastModified Current modification date of the resource (in milliseconds)
+     * @return True if the range can be served, false if the whole resource must be sent
+     */
+    public static boolean isIfRangeValid(String ifRange, String etag, long lastModified) {
+        if (ifRange == null) {
+            return true;
+        }
+        ifRange = ifRange.trim();
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            // Weak entity tags are never valid for ranges
+            return ifRange.equals(etag);
+        }
+        SimpleDateFormat httpDateFormat = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        httpDateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
+        try {
+            return httpDateFormat.parse(ifRange).getTime() / 1000 == lastModified / 1000;
+        } catch (ParseException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns the value of the Content-Range header of the range.
+     *
+     * @return Content-Range header
+     */
+    public String getContentRange() {
+        return "bytes " + from + "-" + to + "/" + totalLength;
+    }
+
+    /**
+     * Returns the number of bytes in the range.
+     *
+     * @return Length
+     */
+    public long getLength() {
+        return to - from + 1;
+    }
+
+    /**
+     * Getter of from.
+     *
+     * @return from
+     */
+    public long getFrom() {
+        return from;
+    }
+
+    /**
+     * Getter of to.
+     *
+     * @return to
+     */
+    public long getTo() {
+        return to;
+    }
+
+    /**
+     * Getter of totalLength.
+     *
+     * @return totalLength
+     */
+    public long getTotalLength() {
+        return totalLength;
+    }
+}
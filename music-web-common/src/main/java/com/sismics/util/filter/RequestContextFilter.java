@@ -6,12 +6,10 @@ import com.sismics.music.core.util.DirectoryUtil;
 import com.sismics.music.core.util.TransactionUtil;
 import com.sismics.util.EnvironmentUtil;
 import com.sismics.util.context.ThreadLocalContext;
-import com.sismics.util.dbi.DBIF;
 import org.apache.log4j.Level;
 import org.apache.log4j.PatternLayout;
 import org.apache.log4j.RollingFileAppender;
 import org.skife.jdbi.v2.Handle;
-import org.skife.jdbi.v2.TransactionIsolationLevel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -76,69 +74,62 @@ public class RequestContextFilter implements Filter {
 
     @Override
     public void destroy() {
-        // NOP
+        AppContext.getInstance().shutDown();
     }
 
     @Override
     public void doFilter(ServletRequest request, ServletResponse response, FilterChain filterChain) throws IOException, ServletException {
-        Handle handle = null;
-        try {
-            handle = DBIF.get().open();
-        } catch (Exception e) {
-            throw new ServletException("Cannot create DBI handle", e);
-        }
-
+        // The handle is opened on the first database access, GET requests only read in autocommit mode
+        String method = ((HttpServletRequest) request).getMethod();
         ThreadLocalContext context = ThreadLocalContext.get();
-        context.setHandle(handle);
-        handle.begin();
-
-        // Disable transaction isolation for GET requests
-        if ("GET".equals(((HttpServletRequest) request).getMethod())) {
-            handle.setTransactionIsolation(TransactionIsolationLevel.READ_UNCOMMITTED);
-        }
+        context.setLazyHandle("GET".equals(method) || "HEAD".equals(method));
 
         try {
             filterChain.doFilter(request, response);
         } catch (Exception e) {
-            ThreadLocalContext.cleanup();
-            
             log.error("An exception occured, rolling back current transaction", e);
 
             // If an unprocessed error comes up from the application layers (Jersey...), rollback the transaction
-            if (handle.isInTransaction()) {
-                handle.rollback();
-
+            if (context.isHandleOpened()) {
+                Handle handle = context.getHandle();
+                if (handle.isInTransaction()) {
+                    handle.rollback();
+                }
                 try {
-                    handle.close();
+                    context.closeHandle();
                 } catch (Exception ce) {
                     log.error("Error closing DBI handle", ce);
                 }
             }
+            ThreadLocalContext.cleanup();
             throw new ServletException(e);
         }
         
-        ThreadLocalContext.cleanup();
-
         // No error processing the request : commit / rollback the current transaction depending on the HTTP code
-        if (handle.isInTransaction()) {
-            HttpServletResponse r = (HttpServletResponse) response;
-            int statusClass = r.getStatus() / 100;
-            if (statusClass == 2 || statusClass == 3) {
-                try {
-                    handle.commit();
-                } catch (Exception e) {
-                    log.error("Error during commit", e);
-                    r.sendError(500);
+        if (context.isHandleOpened()) {
+            Handle handle = context.getHandle();
+            if (handle.isInTransaction()) {
+                HttpServletResponse r = (HttpServletResponse) response;
+                int statusClass = r.getStatus() / 100;
+                if (statusClass == 2 || statusClass == 3) {
+                    try {
+                        handle.commit();
+                        context.runAfterCommit();
+                    } catch (Exception e) {
+                        log.error("Error during commit", e);
+                        r.sendError(500);
+                    }
+                } else {
+                    handle.rollback();
                 }
-            } else {
-                handle.rollback();
             }
 
             try {
-                handle.close();
+                context.closeHandle();
             } catch (Exception e) {
                 log.error("Error closing JDBI handle", e);
             }
         }
+        ThreadLocalContext.cleanup();
     }
 }
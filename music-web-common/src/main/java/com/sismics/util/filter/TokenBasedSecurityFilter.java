@@ -1,11 +1,11 @@
 package com.sismics.util.filter;
 
 import com.sismics.music.core.constant.Constants;
-import com.sismics.music.core.dao.dbi.AuthenticationTokenDao;
-import com.sismics.music.core.dao.dbi.RoleBaseFunctionDao;
-import com.sismics.music.core.dao.dbi.UserDao;
+import com.sismics.music.core.model.context.AppContext;
 import com.sismics.music.core.model.dbi.AuthenticationToken;
 import com.sismics.music.core.model.dbi.User;
+import com.sismics.music.core.service.authentication.Authentication;
+import com.sismics.music.core.service.authentication.AuthenticationService;
 import com.sismics.security.AnonymousPrincipal;
 import com.sismics.security.UserPrincipal;
 import com.sismics.util.LocaleUtil;
@@ -17,7 +17,6 @@ import javax.servlet.*;
 import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletRequest;
 import java.io.IOException;
-import java.text.MessageFormat;
 import java.util.Date;
 import java.util.Locale;
 import java.util.Set;
@@ -79,40 +78,27 @@ public class TokenBasedSecurityFilter implements Filter {
             }
         }
         
-        // Get the corresponding server token
-        AuthenticationTokenDao authenticationTokenDao = new AuthenticationTokenDao();
-        AuthenticationToken authenticationToken = null;
+        // Get the corresponding server token, cached between requests
+        AuthenticationService authenticationService = AppContext.getInstance().getAuthenticationService();
+        Authentication authentication = null;
         if (authToken != null) {
-            authenticationToken = authenticationTokenDao.get(authToken);
+            authentication = authenticationService.getAuthentication(authToken);
         }
         
-        if (authenticationToken == null) {
+        if (authentication == null) {
             injectAnonymousUser(request);
         } else {
             // Check if the token is still valid
-            if (isTokenExpired(authenticationToken)) {
-                try {
-                    injectAnonymousUser(request);
+            if (isTokenExpired(authentication.getAuthenticationToken())) {
+                injectAnonymousUser(request);
 
-                    // Destroy the expired token
-                    authenticationTokenDao.delete(authToken);
-                } catch (Exception e) {
-                    if (log.isErrorEnabled()) {
-                        log.error(MessageFormat.format("Error deleting authentication token {0} ", authToken), e);
-                    }
-                }
+                // Destroy the expired token
+                authenticationService.deleteExpired(authToken);
             } else {
-                // Check if the user is still valid
-                UserDao userDao = new UserDao();
-                User user = userDao.getActiveById(authenticationToken.getUserId());
-                if (user != null) {
-                    injectAuthenticatedUser(request, user);
-                    
-                    // Update the last connection date
-                    authenticationTokenDao.updateLastConnectionDate(authenticationToken.getId());
-                } else {
-                    injectAnonymousUser(request);
-                }
+                injectAuthenticatedUser(request, authentication.getUser(), authentication.getBaseFunctionSet());
+                
+                // Update the last connection date
+                authenticationService.updateLastConnectionDate(authentication);
             }
         }
         
@@ -142,8 +128,9 @@ public class TokenBasedSecurityFilter implements Filter {
      * 
      * @param request HTTP request
      * @param user User to inject
+     * @param baseFunctionSet Base functions of the user
      */
-    private void injectAuthenticatedUser(HttpServletRequest request, User user) {
+    private void injectAuthenticatedUser(HttpServletRequest request, User user, Set<String> baseFunctionSet) {
         UserPrincipal userPrincipal = new UserPrincipal(user.getId(), user.getUsername());
 
         // Add locale
@@ -151,8 +138,6 @@ public class TokenBasedSecurityFilter implements Filter {
         userPrincipal.setLocale(locale);
         
         // Add base functions
-        RoleBaseFunctionDao userBaseFuction = new RoleBaseFunctionDao();
-        Set<String> baseFunctionSet = userBaseFuction.findByRoleId(user.getRoleId());
         userPrincipal.setBaseFunctionSet(baseFunctionSet);
         
         request.setAttribute(PRINCIPAL_ATTRIBUTE, userPrincipal);
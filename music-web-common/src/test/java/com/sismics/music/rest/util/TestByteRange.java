@@ -0,0 +1,62 @@
+package com.sismics.music.rest.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.sismics.rest.util.ByteRange;
+
+/**
+ * Test of the byte range parsing.
+ *
+ * @author jtremeaux
+ */
+public class TestByteRange {
+    @Test
+    public void testParse() throws Exception {
+        // No range, invalid or multiple ranges: the whole resource
+        Assert.assertNull(ByteRange.parse(null, 1000));
+        Assert.assertNull(ByteRange.parse("items=0-10", 1000));
+        Assert.assertNull(ByteRange.parse("bytes=10-5", 1000));
+        Assert.assertNull(ByteRange.parse("bytes=0-10,20-30", 1000));
+
+        // Bounded range
+        ByteRange byteRange = ByteRange.parse("bytes=100-199", 1000);
+        Assert.assertEquals(100, byteRange.getFrom());
+        Assert.assertEquals(100, byteRange.getLength());
+        Assert.assertEquals("bytes 100-199/1000", byteRange.getContentRange());
+
+        // Open range, and range past the end
+        Assert.assertEquals(999, ByteRange.parse("bytes=100-", 1000).getTo());
+        Assert.assertEquals(999, ByteRange.parse("bytes=100-5000", 1000).getTo());
+
+        // Suffix range
+        byteRange = ByteRange.parse("bytes=-300", 1000);
+        Assert.assertEquals(700, byteRange.getFrom());
+        Assert.assertEquals(300, byteRange.getLength());
+        Assert.assertEquals(0, ByteRange.parse("bytes=-5000", 1000).getFrom());
+
+        // Positions too large for a long are past the end
+        Assert.assertEquals(999, ByteRange.parse("bytes=100-99999999999999999999", 1000).getTo());
+        Assert.assertEquals(0, ByteRange.parse("bytes=-99999999999999999999", 1000).getFrom());
+
+        // Unsatisfiable range
+        for (String header : new String[] { "bytes=1000-", "bytes=99999999999999999999-" }) {
+            try {
+                ByteRange.parse(header, 1000);
+                Assert.fail();
+            } catch (IllegalArgumentException e) {
+                Assert.assertFalse(e instanceof NumberFormatException);
+            }
+        }
+    }
+
+    @Test
+    public void testIfRange() throws Exception {
+        Assert.assertTrue(ByteRange.isIfRangeValid(null, "\"abc\"", 0));
+        Assert.assertTrue(ByteRange.isIfRangeValid("\"abc\"", "\"abc\"", 0));
+        Assert.assertFalse(ByteRange.isIfRangeValid("\"def\"", "\"abc\"", 0));
+        Assert.assertFalse(ByteRange.isIfRangeValid("W/\"abc\"", "\"abc\"", 0));
+        Assert.assertTrue(ByteRange.isIfRangeValid("Thu, 01 Jan 1970 00:00:01 GMT", "\"abc\"", 1500));
+        Assert.assertFalse(ByteRange.isIfRangeValid("Thu, 01 Jan 1970 00:00:02 GMT", "\"abc\"", 1500));
+    }
+}
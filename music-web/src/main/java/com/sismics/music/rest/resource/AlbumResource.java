@@ -20,6 +20,7 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
@@ -37,6 +38,7 @@ import com.sismics.music.core.model.context.AppContext;
 import com.sismics.music.core.model.dbi.Album;
 import com.sismics.music.core.service.albumart.AlbumArtService;
 import com.sismics.music.core.service.albumart.AlbumArtSize;
+import com.sismics.music.core.util.TransactionUtil;
 import com.sismics.music.rest.util.JsonUtil;
 import com.sismics.rest.exception.ClientException;
 import com.sismics.rest.exception.ForbiddenClientException;
@@ -111,7 +113,7 @@ public class AlbumResource extends BaseResource {
         }
         response.add("tracks", tracks);
 
-        return Response.ok().entity(response.build()).build();
+        return okOrNotModified(response.build());
     }
 
     /**
@@ -146,7 +148,8 @@ public class AlbumResource extends BaseResource {
             return Response.status(Response.Status.NOT_FOUND).build();
         }
 
-        // Get the file
+        // Get the file, the database is not needed anymore
+        TransactionUtil.release();
         final AlbumArtService albumArtService = AppContext.getInstance().getAlbumArtService();
         File file = albumArtService.getAlbumArtFile(album.getAlbumArt(), albumArtSize);
         if (!file.exists() || !file.canRead()) {
@@ -156,7 +159,16 @@ public class AlbumResource extends BaseResource {
             return Response.status(Response.Status.NOT_FOUND).build();
         }
 
-        return Response.ok(file, "image/jpeg")
+        // Album art files are immutable, their ID identifies the content
+        EntityTag entityTag = new EntityTag(album.getAlbumArt() + "-" + albumArtSize.name().toLowerCase());
+        Date lastModified = new Date(file.lastModified());
+        Response.ResponseBuilder response = restRequest.evaluatePreconditions(lastModified, entityTag);
+        if (response == null) {
+            response = Response.ok(file, "image/jpeg");
+        }
+        return response
+                .tag(entityTag)
+                .lastModified(lastModified)
                 .header("Expires", new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss Z").format(new Date().getTime() + 3600000 * 24 * 7))
                 .build();
     }
@@ -209,6 +221,9 @@ public class AlbumResource extends BaseResource {
         
         // TODO Delete the previous album art
 
+        // The artist mosaic includes this album art
+        AppContext.getInstance().getAlbumArtService().updateArtistArt(album.getArtistId());
+
         // Always return OK
         return Response.ok()
                 .entity(Json.createObjectBuilder().add("status", "ok").build())
@@ -247,6 +262,6 @@ public class AlbumResource extends BaseResource {
 
         // TODO add stats
 
-        return Response.ok().entity(response.build()).build();
+        return okOrNotModified(response.build());
     }
 }
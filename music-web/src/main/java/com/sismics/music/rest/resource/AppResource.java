@@ -10,6 +10,7 @@ import com.sismics.rest.exception.ForbiddenClientException;
 import com.sismics.rest.exception.ServerException;
 import com.sismics.util.NetworkUtil;
 import com.sismics.util.db.DbUtil;
+import com.sismics.util.dbi.DBIF;
 import com.sismics.util.log4j.LogCriteria;
 import com.sismics.util.log4j.LogEntry;
 import com.sismics.util.log4j.MemoryAppender;
@@ -44,12 +45,24 @@ public class AppResource extends BaseResource {
         ResourceBundle configBundle = ConfigUtil.getConfigBundle();
         String currentVersion = configBundle.getString("api.current_version");
         String minVersion = configBundle.getString("api.min_version");
+        AppContext appContext = AppContext.getInstance();
 
         JsonObjectBuilder response = Json.createObjectBuilder()
                 .add("current_version", currentVersion.replace("-SNAPSHOT", ""))
                 .add("min_version", minVersion)
                 .add("total_memory", Runtime.getRuntime().totalMemory())
-                .add("free_memory", Runtime.getRuntime().freeMemory());
+                .add("free_memory", Runtime.getRuntime().freeMemory())
+                .add("active_streams", appContext.getStreamExecutor().getActiveCount())
+                .add("queued_streams", appContext.getStreamExecutor().getQueue().size())
+                .add("rejected_streams", appContext.getRejectedStreamCount())
+                .add("transcoder_processes", appContext.getTranscoderService().getProcessCount())
+                .add("queued_transcoder_processes", appContext.getTranscoderService().getQueuedProcessCount())
+                .add("db_busy_connections", DBIF.getBusyConnectionCount())
+                .add("db_idle_connections", DBIF.getIdleConnectionCount())
+                .add("db_waiting_threads", DBIF.getWaitingThreadCount())
+                .add("db_checkouts", DBIF.getCheckoutCount())
+                .add("db_checkout_time_avg", DBIF.getAverageCheckoutTime())
+                .add("db_checkout_time_max", DBIF.getMaxCheckoutTime());
         return Response.ok().entity(response.build()).build();
     }
     
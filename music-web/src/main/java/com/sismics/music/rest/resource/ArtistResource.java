@@ -1,14 +1,10 @@
 package com.sismics.music.rest.resource;
 
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
-import javax.imageio.ImageIO;
 import javax.json.Json;
 import javax.json.JsonArrayBuilder;
 import javax.json.JsonObjectBuilder;
@@ -16,6 +12,7 @@ import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
@@ -28,7 +25,7 @@ import com.sismics.music.core.model.dbi.Album;
 import com.sismics.music.core.model.dbi.Artist;
 import com.sismics.music.core.service.albumart.AlbumArtService;
 import com.sismics.music.core.service.albumart.AlbumArtSize;
-import com.sismics.music.core.util.ImageUtil;
+import com.sismics.music.core.util.TransactionUtil;
 import com.sismics.rest.exception.ForbiddenClientException;
 
 /**
@@ -62,7 +59,7 @@ public class ArtistResource extends BaseResource {
         }
         response.add("artists", items);
 
-        return Response.ok().entity(response.build()).build();
+        return okOrNotModified(response.build());
     }
     
     /**
@@ -90,7 +87,7 @@ public class ArtistResource extends BaseResource {
         JsonObjectBuilder response = Json.createObjectBuilder()
                 .add("id", artist.getId())
                 .add("name", artist.getName());
-        return Response.ok().entity(response.build()).build();
+        return okOrNotModified(response.build());
     }
     
     /**
@@ -125,26 +122,21 @@ public class ArtistResource extends BaseResource {
             return Response.status(Response.Status.NOT_FOUND).build();
         }
 
-        // Get artist's album arts
+        // Get the mosaic of the artist's album arts, its name identifies the content
         AlbumDao albumDao = new AlbumDao();
         final AlbumArtService albumArtService = AppContext.getInstance().getAlbumArtService();
         List<Album> albumList = albumDao.getActiveByArtistId(id);
-        List<BufferedImage> imageList = new ArrayList<>();
-        for (Album album : albumList) {
-            if (album.getAlbumArt() != null) {
-                File file = albumArtService.getAlbumArtFile(album.getAlbumArt(), artistArtSize);
-                if (file.exists() && file.canRead()) {
-                    imageList.add(ImageIO.read(file));
-                }
-            }
+        TransactionUtil.release();
+        File file = albumArtService.getArtistArtFile(id, albumList, artistArtSize);
+        EntityTag entityTag = new EntityTag(file.getName());
+        Date lastModified = new Date(file.lastModified());
+        Response.ResponseBuilder response = restRequest.evaluatePreconditions(lastModified, entityTag);
+        if (response == null) {
+            response = Response.ok(file, "image/jpeg");
         }
-        
-        // Write to JPEG
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        ImageIO.write(ImageUtil.makeMosaic(imageList, artistArtSize.getSize()), "jpeg", outputStream);
-        byte[] imageData = outputStream.toByteArray();
-        
-        return Response.ok(imageData, "image/jpeg")
+        return response
+                .tag(entityTag)
+                .lastModified(lastModified)
                 .header("Expires", new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss Z").format(new Date().getTime() + 3600000 * 24 * 7))
                 .build();
     }
@@ -3,9 +3,16 @@ package com.sismics.music.rest.resource;
 import java.security.Principal;
 import java.util.Set;
 
+import javax.json.JsonObject;
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
 
 import com.sismics.music.rest.constant.BaseFunction;
 import com.sismics.rest.exception.ForbiddenClientException;
@@ -25,6 +32,12 @@ public abstract class BaseResource {
     @Context
     protected HttpServletRequest request;
     
+    /**
+     * Injects the JAX-RS request, used to evaluate the conditional requests.
+     */
+    @Context
+    protected Request restRequest;
+    
     /**
      * Application key.
      */
@@ -51,6 +64,21 @@ public abstract class BaseResource {
         }
     }
     
+    /**
+     * Returns a JSON response, or 304 Not Modified if the client already has the same content.
+     * 
+     * @param entity JSON entity
+     * @return Response
+     */
+    protected Response okOrNotModified(JsonObject entity) {
+        EntityTag entityTag = new EntityTag(Hashing.sha1().hashString(entity.toString(), Charsets.UTF_8).toString());
+        Response.ResponseBuilder response = restRequest.evaluatePreconditions(entityTag);
+        if (response == null) {
+            response = Response.ok().entity(entity);
+        }
+        return response.tag(entityTag).build();
+    }
+    
     /**
      * Checks if the user has a base function. Throw an exception if the check fails.
      * 
@@ -20,6 +20,7 @@ import javax.ws.rs.core.Response;
 import com.sismics.music.core.dao.dbi.DirectoryDao;
 import com.sismics.music.core.event.async.DirectoryCreatedAsyncEvent;
 import com.sismics.music.core.event.async.DirectoryDeletedAsyncEvent;
+import com.sismics.music.core.event.async.DirectoryUpdatedAsyncEvent;
 import com.sismics.music.core.model.context.AppContext;
 import com.sismics.music.core.model.dbi.Directory;
 import com.sismics.music.rest.constant.BaseFunction;
@@ -121,6 +122,11 @@ public class DirectoryResource extends BaseResource {
         }
         directoryDao.update(directory);
 
+        // Raise a directory updated event, the directory is watched again in the background
+        DirectoryUpdatedAsyncEvent directoryUpdatedAsyncEvent = new DirectoryUpdatedAsyncEvent();
+        directoryUpdatedAsyncEvent.setDirectory(directory);
+        AppContext.getInstance().getCollectionEventBus().post(directoryUpdatedAsyncEvent);
+
         // TODO delete and recreate index if the location is different
         // Raise a directory creation event
 //        DirectoryCreatedAsyncEvent directoryCreatedAsyncEvent = new DirectoryCreatedAsyncEvent();
@@ -1,7 +1,9 @@
 package com.sismics.music.rest.resource;
 
 import java.text.MessageFormat;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import javax.json.Json;
 import javax.json.JsonArrayBuilder;
@@ -14,17 +16,25 @@ import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
 import com.sismics.music.core.dao.dbi.PlaylistDao;
 import com.sismics.music.core.dao.dbi.PlaylistTrackDao;
 import com.sismics.music.core.dao.dbi.TrackDao;
+import com.sismics.music.core.dao.dbi.UserDao;
 import com.sismics.music.core.dao.dbi.criteria.TrackCriteria;
 import com.sismics.music.core.dao.dbi.dto.TrackDto;
+import com.sismics.music.core.model.context.AppContext;
 import com.sismics.music.core.model.dbi.Playlist;
 import com.sismics.music.core.model.dbi.Track;
+import com.sismics.music.core.model.dbi.User;
+import com.sismics.music.core.service.transcoder.TranscodePlan;
+import com.sismics.music.core.service.transcoder.TranscoderService;
 import com.sismics.music.core.util.TransactionUtil;
+import com.sismics.music.core.util.dbi.PaginatedList;
+import com.sismics.music.core.util.dbi.PaginatedLists;
 import com.sismics.music.rest.util.JsonUtil;
 import com.sismics.rest.exception.ClientException;
 import com.sismics.rest.exception.ForbiddenClientException;
@@ -38,6 +48,11 @@ import com.sismics.rest.util.ValidationUtil;
  */
 @Path("/playlist")
 public class PlaylistResource extends BaseResource {
+    /**
+     * Maximum number of next tracks returned at once.
+     */
+    private static final int MAX_NEXT_TRACK_COUNT = 5;
+
     /**
      * Inserts a track in the playlist.
      *
@@ -237,7 +252,79 @@ public class PlaylistResource extends BaseResource {
         }
         response.add("tracks", tracks);
 
-        return Response.ok().entity(response.build()).build();
+        return okOrNotModified(response.build());
+    }
+
+    /**
+     * Returns the tracks following a track of the playlist, and prepares their streams in the background.
+     *
+     * @param order Order of the current track
+     * @param count Number of tracks to return
+     * @return Response
+     */
+    @GET
+    @Path("{order: [0-9]+}/next")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response next(
+            @PathParam("order") Integer order,
+            @QueryParam("count") Integer count) {
+        if (!authenticate()) {
+            throw new ForbiddenClientException();
+        }
+        if (count == null) {
+            count = 1;
+        }
+        count = Math.max(1, Math.min(count, MAX_NEXT_TRACK_COUNT));
+
+        // Get the tracks after the current one
+        Playlist playlist = new PlaylistDao().getActiveByUserId(principal.getId());
+        if (playlist == null) {
+            throw new ServerException("UnknownError", MessageFormat.format("Playlist not found for user {0}", principal.getId()));
+        }
+        TrackDao trackDao = new TrackDao();
+        PaginatedList<TrackDto> paginatedList = PaginatedLists.create(count, order + 1);
+        trackDao.findByCriteria(new TrackCriteria()
+                .setUserId(principal.getId())
+                .setPlaylistId(playlist.getId()), paginatedList);
+        List<String> trackIdList = new ArrayList<String>();
+        for (TrackDto trackDto : paginatedList.getResultList()) {
+            trackIdList.add(trackDto.getId());
+        }
+        Map<String, Track> trackMap = trackDao.getActiveByIds(trackIdList);
+
+        // Prepare their streams
+        TranscoderService transcoderService = AppContext.getInstance().getTranscoderService();
+        User user = new UserDao().getActiveById(principal.getId());
+        JsonArrayBuilder tracks = Json.createArrayBuilder();
+        int i = order + 1;
+        for (TrackDto trackDto : paginatedList.getResultList()) {
+            int trackOrder = i++;
+            Track track = trackMap.get(trackDto.getId());
+            if (track == null) {
+                continue;
+            }
+            TranscodePlan transcodePlan = transcoderService.getTranscodePlan(track, user.getMaxBitrate());
+            transcoderService.prefetch(track, transcodePlan);
+            tracks.add(Json.createObjectBuilder()
+                    .add("order", trackOrder)
+                    .add("id", trackDto.getId())
+                    .add("title", trackDto.getTitle())
+                    .add("length", trackDto.getLength())
+                    .add("format", trackDto.getFormat())
+                    .add("transcoded", transcodePlan != null)
+                    .add("bitrate", transcodePlan != null ? transcodePlan.getBitrate() : trackDto.getBitrate())
+                    .add("artist", Json.createObjectBuilder()
+                            .add("id", trackDto.getArtistId())
+                            .add("name", trackDto.getArtistName()))
+                    .add("album", Json.createObjectBuilder()
+                            .add("id", trackDto.getAlbumId())
+                            .add("name", trackDto.getAlbumName())
+                            .add("albumart", trackDto.getAlbumArt() != null)));
+        }
+
+        return Response.ok()
+                .entity(Json.createObjectBuilder().add("tracks", tracks).build())
+                .build();
     }
 
     /**
@@ -1,6 +1,9 @@
 package com.sismics.music.rest.resource;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.json.Json;
 import javax.json.JsonArrayBuilder;
@@ -22,6 +25,9 @@ import com.sismics.music.core.dao.dbi.criteria.TrackCriteria;
 import com.sismics.music.core.dao.dbi.dto.AlbumDto;
 import com.sismics.music.core.dao.dbi.dto.ArtistDto;
 import com.sismics.music.core.dao.dbi.dto.TrackDto;
+import com.sismics.music.core.model.context.AppContext;
+import com.sismics.music.core.service.search.SearchHit;
+import com.sismics.music.core.service.search.SearchService;
 import com.sismics.music.core.util.dbi.PaginatedList;
 import com.sismics.music.core.util.dbi.PaginatedLists;
 import com.sismics.music.rest.util.JsonUtil;
@@ -37,10 +43,12 @@ import com.sismics.rest.util.ValidationUtil;
 public class SearchResource extends BaseResource {
     /**
      * Run a full text search.
+     * Tracks, albums and artists are matched by name in the search index, and returned by decreasing relevance.
      *
      * @param query Search query
      * @param limit Page limit
      * @param offset Page offset
+     * @param after ID of the last track of the previous page (cursor pagination, replaces the offset)
      * @return Response
      */
     @GET
@@ -49,7 +57,8 @@ public class SearchResource extends BaseResource {
     public Response get(
             @PathParam("query") String query,
             @QueryParam("limit") Integer limit,
-            @QueryParam("offset") Integer offset) {
+            @QueryParam("offset") Integer offset,
+            @QueryParam("after") String after) {
 
         if (!authenticate()) {
             throw new ForbiddenClientException();
@@ -59,17 +68,31 @@ public class SearchResource extends BaseResource {
 
         // Search tracks
         PaginatedList<TrackDto> paginatedList = PaginatedLists.create(limit, offset);
+        SearchService searchService = AppContext.getInstance().getSearchService();
+        List<SearchHit> trackHitList = after == null ?
+                searchService.searchTracks(query, paginatedList.getOffset(), paginatedList.getLimit()) :
+                searchService.searchTracks(query, after, paginatedList.getLimit());
         TrackDao trackDao = new TrackDao();
-        trackDao.findByCriteria(new TrackCriteria().setUserId(principal.getId()).setTitleLike(query), paginatedList);
+        Map<String, TrackDto> trackMap = new HashMap<String, TrackDto>();
+        for (TrackDto trackDto : trackDao.findByCriteria(new TrackCriteria()
+                .setUserId(principal.getId())
+                .setIdList(getIdList(trackHitList)))) {
+            trackMap.put(trackDto.getId(), trackDto);
+        }
 
         JsonArrayBuilder tracks = Json.createArrayBuilder();
         int i = 1;
         JsonObjectBuilder response = Json.createObjectBuilder();
-        for (TrackDto trackDto : paginatedList.getResultList()) {
+        for (SearchHit searchHit : trackHitList) {
+            TrackDto trackDto = trackMap.get(searchHit.getId());
+            if (trackDto == null) {
+                continue;
+            }
             tracks.add(Json.createObjectBuilder()
                     .add("order", i++)    // TODO use order from track
                     .add("id", trackDto.getId())
                     .add("title", trackDto.getTitle())
+                    .add("highlight", searchHit.getHighlight())
                     .add("year", JsonUtil.nullable(trackDto.getYear()))
                     .add("genre", JsonUtil.nullable(trackDto.getGenre()))
                     .add("length", trackDto.getLength())
@@ -88,15 +111,24 @@ public class SearchResource extends BaseResource {
         }
         response.add("tracks", tracks);
 
-        // Search albums
+        // Search albums, all matches are returned, the page only applies to the tracks
+        List<SearchHit> albumHitList = searchService.searchAlbums(query);
         AlbumDao albumDao = new AlbumDao();
-        List<AlbumDto> albumList = albumDao.findByCriteria(new AlbumCriteria().setNameLike(query));
+        Map<String, AlbumDto> albumMap = new HashMap<String, AlbumDto>();
+        for (AlbumDto albumDto : albumDao.findByCriteria(new AlbumCriteria().setIdList(getIdList(albumHitList)))) {
+            albumMap.put(albumDto.getId(), albumDto);
+        }
 
         JsonArrayBuilder albums = Json.createArrayBuilder();
-        for (AlbumDto album : albumList) {
+        for (SearchHit searchHit : albumHitList) {
+            AlbumDto album = albumMap.get(searchHit.getId());
+            if (album == null) {
+                continue;
+            }
             albums.add(Json.createObjectBuilder()
                     .add("id", album.getId())
                     .add("name", album.getName())
+                    .add("highlight", searchHit.getHighlight())
                     .add("albumart", album.getAlbumArt() != null)
                     .add("artist", Json.createObjectBuilder()
                             .add("id", album.getArtistId())
@@ -104,18 +136,41 @@ public class SearchResource extends BaseResource {
         }
         response.add("albums", albums);
         
-        // Search artists
+        // Search artists, all matches are returned
+        List<SearchHit> artistHitList = searchService.searchArtists(query);
         ArtistDao artistDao = new ArtistDao();
-        List<ArtistDto> artistList = artistDao.findByCriteria(new ArtistCriteria().setNameLike(query));
+        Map<String, ArtistDto> artistMap = new HashMap<String, ArtistDto>();
+        for (ArtistDto artistDto : artistDao.findByCriteria(new ArtistCriteria().setIdList(getIdList(artistHitList)))) {
+            artistMap.put(artistDto.getId(), artistDto);
+        }
 
         JsonArrayBuilder artists = Json.createArrayBuilder();
-        for (ArtistDto artist : artistList) {
+        for (SearchHit searchHit : artistHitList) {
+            ArtistDto artist = artistMap.get(searchHit.getId());
+            if (artist == null) {
+                continue;
+            }
             artists.add(Json.createObjectBuilder()
                     .add("id", artist.getId())
-                    .add("name", artist.getName()));
+                    .add("name", artist.getName())
+                    .add("highlight", searchHit.getHighlight()));
         }
         response.add("artists", artists);
         
         return Response.ok().entity(response.build()).build();
     }
+
+    /**
+     * Returns the IDs of search hits.
+     *
+     * @param searchHitList Search hits
+     * @return IDs
+     */
+    private List<String> getIdList(List<SearchHit> searchHitList) {
+        List<String> idList = new ArrayList<String>();
+        for (SearchHit searchHit : searchHitList) {
+            idList.add(searchHit.getId());
+        }
+        return idList;
+    }
 }
@@ -1,15 +1,11 @@
 package com.sismics.music.rest.resource;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
-import java.io.RandomAccessFile;
-import java.nio.channels.Channels;
-import java.nio.channels.FileChannel;
-import java.nio.channels.WritableByteChannel;
 import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.RejectedExecutionException;
 
 import javax.json.Json;
 import javax.ws.rs.DELETE;
@@ -20,13 +16,12 @@ import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
-import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.container.AsyncResponse;
 import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
-import javax.ws.rs.core.StreamingOutput;
 
 import org.apache.commons.lang.StringUtils;
 import org.jaudiotagger.audio.AudioFile;
@@ -34,6 +29,7 @@ import org.jaudiotagger.audio.AudioFileIO;
 import org.jaudiotagger.tag.FieldKey;
 import org.jaudiotagger.tag.Tag;
 
+import com.google.common.collect.Lists;
 import com.sismics.music.core.dao.dbi.AlbumDao;
 import com.sismics.music.core.dao.dbi.ArtistDao;
 import com.sismics.music.core.dao.dbi.TrackDao;
@@ -45,11 +41,14 @@ import com.sismics.music.core.model.dbi.Artist;
 import com.sismics.music.core.model.dbi.Track;
 import com.sismics.music.core.model.dbi.User;
 import com.sismics.music.core.service.lastfm.LastFmService;
+import com.sismics.music.core.service.transcoder.TranscodeCache;
+import com.sismics.music.core.service.transcoder.TranscodePlan;
 import com.sismics.music.core.service.transcoder.TranscoderService;
 import com.sismics.music.core.util.TransactionUtil;
-import com.sismics.music.rest.util.MediaStreamer;
+import com.sismics.music.rest.util.FileRangeStreamer;
 import com.sismics.rest.exception.ForbiddenClientException;
 import com.sismics.rest.exception.ServerException;
+import com.sismics.rest.util.ByteRange;
 import com.sismics.rest.util.ValidationUtil;
 
 /**
@@ -59,6 +58,16 @@ import com.sismics.rest.util.ValidationUtil;
  */
 @Path("/track")
 public class TrackResource extends BaseResource {
+    /**
+     * Delay before retrying a rejected stream (in seconds).
+     */
+    private static final int STREAM_RETRY_AFTER = 5;
+
+    /**
+     * Media type of the HLS playlists.
+     */
+    private static final String HLS_PLAYLIST_TYPE = "application/vnd.apple.mpegurl";
+
     /**
      * Returns a track stream.
      *
@@ -71,6 +80,7 @@ public class TrackResource extends BaseResource {
     @Produces("audio/mpeg")
     public void stream(
             @HeaderParam("Range") final String range,
+            @HeaderParam("If-Range") final String ifRange,
             @PathParam("id") final String id,
             @Suspended final AsyncResponse asyncResponse) throws Exception {
         if (!authenticate()) {
@@ -80,97 +90,314 @@ public class TrackResource extends BaseResource {
 
         TrackDao trackDao = new TrackDao();
         final Track track = trackDao.getActiveById(id);
-        TransactionUtil.commit();
         if (track == null) {
+            TransactionUtil.release();
             asyncResponse.resume(Response.status(Response.Status.NOT_FOUND).build());
             return;
         }
 
+        // Plan the transcoding from the user's bitrate limit
+        final TranscoderService transcoderService = AppContext.getInstance().getTranscoderService();
+        User user = new UserDao().getActiveById(principal.getId());
+        final TranscodePlan transcodePlan = transcoderService.getTranscodePlan(track, user.getMaxBitrate());
+        TransactionUtil.release();
+
         final File file = new File(track.getFileName());
         if (!file.exists() || !file.canRead()) {
             asyncResponse.resume(Response.status(Response.Status.NOT_FOUND).build());
             return;
         }
 
-        // Start a new thread and release the I/O thread
-        new Thread(new Runnable() {
+        // Stream from the bounded stream executor and release the I/O thread
+        Runnable streamRunnable = new Runnable() {
             @Override
             public void run() {
                 try {
-                    // TODO Transcode mp3 as well
-                    final TranscoderService transcoderService = AppContext.getInstance().getTranscoderService();
-                    if (!"mp3".equals(track.getFormat())) {
-                        int seek = 0;
-                        int from = 0;
-                        int to = 0;
-                        if (range != null) {
-                            // Range requested, send a 206 partial content
-                            String[] ranges = range.split("=")[1].split("-");
-                            from = Integer.parseInt(ranges[0]);
-                            seek = from / (128 * 1000 / 8);
-                        }
-                        int fileSize = track.getLength() * 128 * 1000 / 8;
-                        InputStream is = transcoderService.getTranscodedInputStream(track, seek);
-                        Response.ResponseBuilder response = Response.ok(is);
-                        if (range != null) {
-                            response = response.status(206);
-                            final String responseRange = String.format("bytes %d-%d/%d", from, to, fileSize);
-                            response.header("Accept-Ranges", "bytes");
-                            response.header("Content-Range", responseRange);
+                    if (transcodePlan != null) {
+                        // The transcoded stream is identified by the source file and the transcode plan, cached or not
+                        EntityTag entityTag = new EntityTag(TranscodeCache.getKey(file, transcodePlan));
+                        long lastModified = file.lastModified();
+                        File cachedFile = transcoderService.getCachedFile(track, transcodePlan);
+                        if (cachedFile != null) {
+                            // Already transcoded, serve it like a regular file
+                            resumeFile(asyncResponse, cachedFile, range, ifRange, entityTag, lastModified);
+                            return;
                         }
-                        response.header(HttpHeaders.CONTENT_LENGTH, fileSize);
-                        response.header(HttpHeaders.LAST_MODIFIED, new Date(file.lastModified()));
-                        asyncResponse.resume(response.build());
-                    } else {
-                        // Range not requested, serve the whole file
-                        if (range == null) {
-                            StreamingOutput streamer = new StreamingOutput() {
-                                @Override
-                                public void write(final OutputStream output) throws IOException, WebApplicationException {
-                                    final FileInputStream inputStream = new FileInputStream(file);
-                                    final FileChannel inputChannel = inputStream.getChannel();
-                                    final WritableByteChannel outputChannel = Channels.newChannel(output);
-                                    try {
-                                        inputChannel.transferTo(0, inputChannel.size(), outputChannel);
-                                    } finally {
-                                        // Closing the channels
-                                        inputStream.close();
-                                        inputChannel.close();
-                                        outputChannel.close();
-                                    }
-                                }
-                            };
-                            asyncResponse.resume(Response.ok(streamer).status(200)
-                                    .header(HttpHeaders.CONTENT_LENGTH, file.length())
+
+                        // Transcode the requested range of a constant bitrate stream
+                        long totalLength = transcoderService.getSeekModel(track, transcodePlan).getLength();
+                        ByteRange byteRange;
+                        try {
+                            byteRange = ByteRange.parse(range, totalLength);
+                        } catch (IllegalArgumentException e) {
+                            asyncResponse.resume(Response.status(416)
+                                    .header("Content-Range", "bytes */" + totalLength)
                                     .build());
                             return;
                         }
-    
-                        // Range requested, send a 206 partial content
-                        String[] ranges = range.split("=")[1].split("-");
-                        final int from = Integer.parseInt(ranges[0]);
-    
-                        // Don't chunk the file, send content to the end
-                        final int to = (int) (file.length() - 1);
-    
-                        final String responseRange = String.format("bytes %d-%d/%d", from, to, file.length());
-                        final RandomAccessFile raf = new RandomAccessFile(file, "r");
-                        raf.seek(from);
-    
-                        final int len = to - from + 1;
-                        final MediaStreamer streamer = new MediaStreamer(len, raf);
-                        asyncResponse.resume(Response.ok(streamer).status(206)
+                        if (byteRange != null && !ByteRange.isIfRangeValid(ifRange, entityTag.toString(), lastModified)) {
+                            // The stream changed since the client got its first part, send it whole
+                            byteRange = null;
+                        }
+                        long from = byteRange == null ? 0 : byteRange.getFrom();
+                        long length = byteRange == null ? totalLength : byteRange.getLength();
+                        InputStream is = transcoderService.getTranscodedInputStream(track, transcodePlan, from, length);
+                        Response.ResponseBuilder response = Response.ok(is);
+                        if (byteRange != null) {
+                            response.status(206)
+                                    .header("Content-Range", byteRange.getContentRange());
+                        }
+                        asyncResponse.resume(response
                                 .header("Accept-Ranges", "bytes")
-                                .header("Content-Range", responseRange)
-                                .header(HttpHeaders.CONTENT_LENGTH, streamer.getLength())
-                                .header(HttpHeaders.LAST_MODIFIED, new Date(file.lastModified()))
+                                .header(HttpHeaders.CONTENT_LENGTH, length)
+                                .tag(entityTag)
+                                .lastModified(new Date(lastModified))
                                 .build());
+                    } else {
+                        resumeFile(asyncResponse, file, range, ifRange);
                     }
+                } catch (RejectedExecutionException e) {
+                    // Too many transcoder processes, the client may retry later
+                    asyncResponse.resume(getUnavailableResponse());
+                } catch (Exception e) {
+                    asyncResponse.resume(e);
+                }
+            }
+        };
+        try {
+            AppContext.getInstance().getStreamExecutor().execute(streamRunnable);
+        } catch (RejectedExecutionException e) {
+            // Too many streams in progress, the client may retry later
+            asyncResponse.resume(getUnavailableResponse());
+        }
+    }
+
+    /**
+     * Returns the HLS master playlist of a track, with a variant per bitrate.
+     *
+     * @param id Track ID
+     * @return Response
+     */
+    @GET
+    @Path("{id: [a-z0-9\\-]+}/hls")
+    @Produces(HLS_PLAYLIST_TYPE)
+    public Response hls(
+            @PathParam("id") String id) {
+        if (!authenticate()) {
+            throw new ForbiddenClientException();
+        }
+
+        TrackDao trackDao = new TrackDao();
+        Track track = trackDao.getActiveById(id);
+        if (track == null) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+
+        StringBuilder playlist = new StringBuilder("#EXTM3U\n#EXT-X-VERSION:3\n");
+        for (TranscodePlan transcodePlan : getHlsTranscodePlanList(track)) {
+            playlist.append("#EXT-X-STREAM-INF:BANDWIDTH=").append(transcodePlan.getBitrate() * 1000)
+                    .append(",CODECS=\"mp4a.40.34\"\n")
+                    .append("hls/").append(transcodePlan.getBitrate()).append(".m3u8\n");
+        }
+        return Response.ok(playlist.toString()).build();
+    }
+
+    /**
+     * Returns the HLS media playlist of a track variant.
+     *
+     * @param id Track ID
+     * @param bitrate Bitrate of the variant
+     * @return Response
+     */
+    @GET
+    @Path("{id: [a-z0-9\\-]+}/hls/{bitrate: [0-9]+}.m3u8")
+    @Produces(HLS_PLAYLIST_TYPE)
+    public Response hlsVariant(
+            @PathParam("id") String id,
+            @PathParam("bitrate") int bitrate) {
+        if (!authenticate()) {
+            throw new ForbiddenClientException();
+        }
+
+        TrackDao trackDao = new TrackDao();
+        Track track = trackDao.getActiveById(id);
+        if (track == null) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        TranscodePlan transcodePlan = getHlsTranscodePlan(track, bitrate);
+        if (transcodePlan == null) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+
+        TranscoderService transcoderService = AppContext.getInstance().getTranscoderService();
+        int segmentCount = transcoderService.getHlsSegmentCount(track, transcodePlan);
+        StringBuilder segments = new StringBuilder();
+        double targetDuration = 0;
+        for (int i = 0; i < segmentCount; i++) {
+            double duration = transcoderService.getHlsSegmentDuration(track, transcodePlan, i);
+            targetDuration = Math.max(targetDuration, duration);
+            segments.append(String.format(Locale.ENGLISH, "#EXTINF:%.3f,\n", duration))
+                    .append(bitrate).append("/").append(i).append(".mp3\n");
+        }
+        String playlist = "#EXTM3U\n"
+                + "#EXT-X-VERSION:3\n"
+                + "#EXT-X-PLAYLIST-TYPE:VOD\n"
+                + "#EXT-X-TARGETDURATION:" + (int) Math.ceil(targetDuration) + "\n"
+                + "#EXT-X-MEDIA-SEQUENCE:0\n"
+                + segments
+                + "#EXT-X-ENDLIST\n";
+        return Response.ok(playlist).build();
+    }
+
+    /**
+     * Returns an HLS segment of a track variant.
+     * Segments are produced on demand and cached, ranges are served from the cached segment.
+     *
+     * @param id Track ID
+     * @param bitrate Bitrate of the variant
+     * @param index Segment index
+     * @return Response
+     */
+    @GET
+    @Path("{id: [a-z0-9\\-]+}/hls/{bitrate: [0-9]+}/{index: [0-9]+}.mp3")
+    @Produces("audio/mpeg")
+    public void hlsSegment(
+            @HeaderParam("Range") final String range,
+            @HeaderParam("If-Range") final String ifRange,
+            @PathParam("id") String id,
+            @PathParam("bitrate") int bitrate,
+            @PathParam("index") final int index,
+            @Suspended final AsyncResponse asyncResponse) {
+        if (!authenticate()) {
+            asyncResponse.resume(new ForbiddenClientException());
+            return;
+        }
+
+        TrackDao trackDao = new TrackDao();
+        final Track track = trackDao.getActiveById(id);
+        final TranscodePlan transcodePlan = track == null ? null : getHlsTranscodePlan(track, bitrate);
+        TransactionUtil.release();
+        final TranscoderService transcoderService = AppContext.getInstance().getTranscoderService();
+        if (transcodePlan == null || index >= transcoderService.getHlsSegmentCount(track, transcodePlan)) {
+            asyncResponse.resume(Response.status(Response.Status.NOT_FOUND).build());
+            return;
+        }
+
+        // Produce the segment from the bounded stream executor
+        Runnable segmentRunnable = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    File segmentFile = transcoderService.getHlsSegmentFile(track, transcodePlan, index);
+                    resumeFile(asyncResponse, segmentFile, range, ifRange);
+                } catch (RejectedExecutionException e) {
+                    // Too many transcoder processes, the client may retry later
+                    asyncResponse.resume(getUnavailableResponse());
                 } catch (Exception e) {
                     asyncResponse.resume(e);
                 }
             }
-        }, "TrackAsyncResponse").start();
+        };
+        try {
+            AppContext.getInstance().getStreamExecutor().execute(segmentRunnable);
+        } catch (RejectedExecutionException e) {
+            asyncResponse.resume(getUnavailableResponse());
+        }
+    }
+
+    /**
+     * Returns the HLS variants of a track for the connected user.
+     *
+     * @param track Track
+     * @return Transcoding plans
+     */
+    private List<TranscodePlan> getHlsTranscodePlanList(Track track) {
+        User user = new UserDao().getActiveById(principal.getId());
+        return AppContext.getInstance().getTranscoderService().getHlsTranscodePlanList(track, user.getMaxBitrate());
+    }
+
+    /**
+     * Returns an HLS variant of a track for the connected user.
+     *
+     * @param track Track
+     * @param bitrate Bitrate of the variant
+     * @return Transcoding plan, or null if the variant is not available
+     */
+    private TranscodePlan getHlsTranscodePlan(Track track, int bitrate) {
+        for (TranscodePlan transcodePlan : getHlsTranscodePlanList(track)) {
+            if (transcodePlan.getBitrate() == bitrate) {
+                return transcodePlan;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the response to a stream request when the server is too busy.
+     *
+     * @return Response
+     */
+    private Response getUnavailableResponse() {
+        return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, STREAM_RETRY_AFTER)
+                .build();
+    }
+
+    /**
+     * Resumes a stream request with a file, or the requested range if the file is unchanged.
+     *
+     * @param asyncResponse Suspended response
+     * @param file File to serve
+     * @param range Range header
+     * @param ifRange If-Range header
+     */
+    private void resumeFile(AsyncResponse asyncResponse, File file, String range, String ifRange) {
+        long lastModified = file.lastModified();
+        EntityTag entityTag = new EntityTag(Long.toHexString(lastModified) + "-" + Long.toHexString(file.length()));
+        resumeFile(asyncResponse, file, range, ifRange, entityTag, lastModified);
+    }
+
+    /**
+     * Resumes a stream request with a file, or the requested range if the stream is unchanged.
+     *
+     * @param asyncResponse Suspended response
+     * @param file File to serve
+     * @param range Range header
+     * @param ifRange If-Range header
+     * @param entityTag Entity tag of the stream
+     * @param lastModified Last modification date of the stream
+     */
+    private void resumeFile(AsyncResponse asyncResponse, File file, String range, String ifRange,
+            EntityTag entityTag, long lastModified) {
+        long fileLength = file.length();
+        ByteRange byteRange;
+        try {
+            byteRange = ByteRange.parse(range, fileLength);
+        } catch (IllegalArgumentException e) {
+            asyncResponse.resume(Response.status(416)
+                    .header("Content-Range", "bytes */" + fileLength)
+                    .build());
+            return;
+        }
+        if (byteRange != null && !ByteRange.isIfRangeValid(ifRange, entityTag.toString(), lastModified)) {
+            byteRange = null;
+        }
+
+        Response.ResponseBuilder response;
+        if (byteRange == null) {
+            response = Response.ok(new FileRangeStreamer(file, 0, fileLength))
+                    .header(HttpHeaders.CONTENT_LENGTH, fileLength);
+        } else {
+            response = Response.ok(new FileRangeStreamer(file, byteRange.getFrom(), byteRange.getLength()))
+                    .status(206)
+                    .header("Content-Range", byteRange.getContentRange())
+                    .header(HttpHeaders.CONTENT_LENGTH, byteRange.getLength());
+        }
+        asyncResponse.resume(response
+                .header("Accept-Ranges", "bytes")
+                .tag(entityTag)
+                .lastModified(new Date(lastModified))
+                .build());
     }
 
     /**
@@ -337,6 +564,7 @@ public class TrackResource extends BaseResource {
                 newArtistDb = new Artist();
                 newArtistDb.setName(artist);
                 artistDao.create(newArtistDb);
+                AppContext.getInstance().getSearchService().updateArtists(Lists.newArrayList(newArtistDb));
             }
             
             track.setArtistId(newArtistDb.getId());
@@ -351,6 +579,7 @@ public class TrackResource extends BaseResource {
                 newAlbumDb.setDirectoryId(albumDb.getDirectoryId());
                 newAlbumDb.setArtistId(track.getArtistId());
                 albumDao.create(newAlbumDb);
+                AppContext.getInstance().getSearchService().updateAlbums(Lists.newArrayList(newAlbumDb));
             }
             
             track.setAlbumId(newAlbumDb.getId());
@@ -360,6 +589,7 @@ public class TrackResource extends BaseResource {
         
         trackDao.update(track);
         artistDao.deleteEmptyArtist();
+        AppContext.getInstance().getSearchService().updateTracks(Lists.newArrayList(track));
         
         // Always return OK
         return Response.ok()
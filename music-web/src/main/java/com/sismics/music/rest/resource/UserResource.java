@@ -142,6 +142,7 @@ public class UserResource extends BaseResource {
      * @param email E-Mail
      * @param themeId Theme
      * @param localeId Locale ID
+     * @param maxBitrate Maximum bitrate of the streams (in kbps), 0 for no limit
      * @param firstConnection True if the user hasn't acknowledged the first connection wizard yet
      * @return Response
      */
@@ -152,6 +153,7 @@ public class UserResource extends BaseResource {
         @FormParam("email") String email,
         @FormParam("theme") String themeId,
         @FormParam("locale") String localeId,
+        @FormParam("max_bitrate") Integer maxBitrate,
         @FormParam("first_connection") Boolean firstConnection) {
         
         if (!authenticate()) {
@@ -163,6 +165,7 @@ public class UserResource extends BaseResource {
         email = ValidationUtil.validateLength(email, "email", null, 100, true);
         localeId = com.sismics.music.rest.util.ValidationUtil.validateLocale(localeId, "locale", true);
         themeId = com.sismics.music.rest.util.ValidationUtil.validateTheme(EnvironmentUtil.isUnitTest() ? null : request.getServletContext(), themeId, "theme", true);
+        maxBitrate = com.sismics.music.rest.util.ValidationUtil.validateMaxBitrate(maxBitrate, "max_bitrate");
         
         // Update the user
         UserDao userDao = new UserDao();
@@ -176,6 +179,9 @@ public class UserResource extends BaseResource {
         if (localeId != null) {
             user.setLocaleId(localeId);
         }
+        if (maxBitrate != null) {
+            user.setMaxBitrate(maxBitrate);
+        }
         if (firstConnection != null && hasBaseFunction(BaseFunction.ADMIN)) {
             user.setFirstConnection(firstConnection);
         }
@@ -194,6 +200,9 @@ public class UserResource extends BaseResource {
             AppContext.getInstance().getAsyncEventBus().post(passwordChangedEvent);
         }
         
+        // Forget the cached authentications of the previous user once the update is committed
+        AppContext.getInstance().getAuthenticationService().invalidateUser(user.getId());
+        
         // Always return "ok"
         JsonObject response = Json.createObjectBuilder()
                 .add("status", "ok")
@@ -209,6 +218,7 @@ public class UserResource extends BaseResource {
      * @param email E-Mail
      * @param themeId Theme
      * @param localeId Locale ID
+     * @param maxBitrate Maximum bitrate of the streams (in kbps), 0 for no limit
      * @return Response
      * @throws JSONException
      */
@@ -220,7 +230,8 @@ public class UserResource extends BaseResource {
         @FormParam("password") String password,
         @FormParam("email") String email,
         @FormParam("theme") String themeId,
-        @FormParam("locale") String localeId) {
+        @FormParam("locale") String localeId,
+        @FormParam("max_bitrate") Integer maxBitrate) {
         
         if (!authenticate()) {
             throw new ForbiddenClientException();
@@ -232,6 +243,7 @@ public class UserResource extends BaseResource {
         email = ValidationUtil.validateLength(email, "email", null, 100, true);
         localeId = com.sismics.music.rest.util.ValidationUtil.validateLocale(localeId, "locale", true);
         themeId = com.sismics.music.rest.util.ValidationUtil.validateTheme(request.getServletContext(), themeId, "theme", true);
+        maxBitrate = com.sismics.music.rest.util.ValidationUtil.validateMaxBitrate(maxBitrate, "max_bitrate");
         
         // Check if the user exists
         UserDao userDao = new UserDao();
@@ -250,6 +262,9 @@ public class UserResource extends BaseResource {
         if (localeId != null) {
             user.setLocaleId(localeId);
         }
+        if (maxBitrate != null) {
+            user.setMaxBitrate(maxBitrate);
+        }
         
         user = userDao.update(user);
         
@@ -266,6 +281,9 @@ public class UserResource extends BaseResource {
             AppContext.getInstance().getAsyncEventBus().post(passwordChangedEvent);
         }
         
+        // Forget the cached authentications of the previous user once the update is committed
+        AppContext.getInstance().getAuthenticationService().invalidateUser(user.getId());
+        
         // Always return "ok"
         JsonObject response = Json.createObjectBuilder()
                 .add("status", "ok")
@@ -382,6 +400,7 @@ public class UserResource extends BaseResource {
         // Deletes the server token
         try {
             authenticationTokenDao.delete(authToken);
+            AppContext.getInstance().getAuthenticationService().invalidate(authToken);
         } catch (Exception e) {
             throw new ServerException("AuthenticationTokenError", "Error deleting authentication token: " + authToken, e);
         }
@@ -414,6 +433,7 @@ public class UserResource extends BaseResource {
         // Delete the user
         UserDao userDao = new UserDao();
         userDao.delete(principal.getName());
+        AppContext.getInstance().getAuthenticationService().invalidateUser(principal.getId());
         
         // Always return ok
         JsonObject response = Json.createObjectBuilder()
@@ -454,6 +474,7 @@ public class UserResource extends BaseResource {
         
         // Delete the user
         userDao.delete(user.getUsername());
+        AppContext.getInstance().getAuthenticationService().invalidateUser(user.getId());
         
         // Always return ok
         JsonObject response = Json.createObjectBuilder()
@@ -491,6 +512,7 @@ public class UserResource extends BaseResource {
                     .add("email", user.getEmail())
                     .add("theme", user.getTheme())
                     .add("locale", user.getLocaleId())
+                    .add("max_bitrate", user.getMaxBitrate())
                     .add("lastfm_connected", user.getLastFmSessionToken() != null)
                     .add("first_connection", user.isFirstConnection());
             JsonArrayBuilder baseFunctions = Json.createArrayBuilder();
@@ -530,7 +552,8 @@ public class UserResource extends BaseResource {
                 .add("username", user.getUsername())
                 .add("email", user.getEmail())
                 .add("theme", user.getTheme())
-                .add("locale", user.getLocaleId());
+                .add("locale", user.getLocaleId())
+                .add("max_bitrate", user.getMaxBitrate());
         
         return Response.ok().entity(response.build()).build();
     }
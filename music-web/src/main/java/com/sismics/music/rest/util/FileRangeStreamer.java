@@ -0,0 +1,77 @@
+package com.sismics.music.rest.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.StreamingOutput;
+
+/**
+ * Streams a range of a file with FileChannel.transferTo.
+ * The copy is done by the kernel when the container output is a channel (sendfile), and goes through
+ * the channel adapter of the output stream otherwise.
+ *
+ * @author jtremeaux
+ */
+public class FileRangeStreamer implements StreamingOutput {
+    /**
+     * File to stream.
+     */
+    private File file;
+
+    /**
+     * Position of the first byte to stream.
+     */
+    private long from;
+
+    /**
+     * Number of bytes to stream.
+     */
+    private long length;
+
+    /**
+     * Constructor of FileRangeStreamer.
+     *
+     * @param file File to stream
+     * @param from Position of the first byte to stream
+     * @param length Number of bytes to stream
+     */
+    public FileRangeStreamer(File file, long from, long length) {
+        this.file = file;
+        this.from = from;
+        this.length = length;
+    }
+
+    @Override
+    public void write(OutputStream output) throws IOException, WebApplicationException {
+        WritableByteChannel outputChannel = output instanceof WritableByteChannel ?
+                (WritableByteChannel) output : Channels.newChannel(output);
+        try (FileChannel inputChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long position = from;
+            long remaining = length;
+            while (remaining > 0) {
+                long count = inputChannel.transferTo(position, remaining, outputChannel);
+                if (count <= 0) {
+                    // The file has been truncated
+                    break;
+                }
+                position += count;
+                remaining -= count;
+            }
+        }
+    }
+
+    /**
+     * Getter of length.
+     *
+     * @return length
+     */
+    public long getLength() {
+        return length;
+    }
+}
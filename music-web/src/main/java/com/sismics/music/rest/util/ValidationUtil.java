@@ -9,6 +9,7 @@ import org.apache.commons.lang.StringUtils;
 
 import com.sismics.music.core.dao.dbi.LocaleDao;
 import com.sismics.music.core.model.dbi.Locale;
+import com.sismics.music.core.service.transcoder.TranscoderService;
 import com.sismics.music.rest.dao.ThemeDao;
 import com.sismics.rest.exception.ClientException;
 
@@ -70,4 +71,23 @@ public class ValidationUtil {
         }
         return localeId;
     }
+
+    /**
+     * Validates a maximum bitrate.
+     * The bitrate is lowered to the closest standard MP3 bitrate.
+     *
+     * @param maxBitrate Bitrate to validate (in kbps), 0 for no limit
+     * @param name Name of the parameter
+     * @return Standard bitrate
+     * @throws ClientException
+     */
+    public static Integer validateMaxBitrate(Integer maxBitrate, String name) throws ClientException {
+        if (maxBitrate == null || maxBitrate == 0) {
+            return maxBitrate;
+        }
+        if (maxBitrate < 32 || maxBitrate > 320) {
+            throw new ClientException("ValidationError", MessageFormat.format("{0} must be 0 or between 32 and 320", name));
+        }
+        return TranscoderService.getStandardBitrate(maxBitrate);
+    }
 }
@@ -38,6 +38,13 @@ angular.module('music').factory('Playlist', function($rootScope, Restangular, to
     $rootScope.$broadcast('playlist.updated', angular.copy(tracks));
   });
 
+  // Prepare the stream of the next track on the server
+  $rootScope.$on('audio.set', function() {
+    if (currentTrack != null && !shuffle) {
+      Restangular.one('playlist', currentTrack).one('next').get();
+    }
+  });
+
   // Service
   var service = {
     /**
@@ -6,6 +6,7 @@ import javax.json.JsonArray;
 import javax.json.JsonObject;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.core.Form;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 
@@ -82,6 +83,14 @@ public class TestAlbumResource extends BaseJerseyTest {
         Response response = target().path("/album/" + album0Id + "/albumart/small").request()
                 .cookie(TokenBasedSecurityFilter.COOKIE_NAME, adminAuthenticationToken).get();
         Assert.assertEquals(Status.OK, Status.fromStatusCode(response.getStatus()));
+        String albumArtEntityTag = response.getHeaderString(HttpHeaders.ETAG);
+        Assert.assertNotNull(albumArtEntityTag);
+
+        // Revalidate the album art.
+        response = target().path("/album/" + album0Id + "/albumart/small").request()
+                .cookie(TokenBasedSecurityFilter.COOKIE_NAME, adminAuthenticationToken)
+                .header(HttpHeaders.IF_NONE_MATCH, albumArtEntityTag).get();
+        Assert.assertEquals(Status.NOT_MODIFIED, Status.fromStatusCode(response.getStatus()));
 
         // Get an album art.
         response = target().path("/album/" + album0Id + "/albumart/large").request()
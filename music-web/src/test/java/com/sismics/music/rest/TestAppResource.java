@@ -36,6 +36,10 @@ public class TestAppResource extends BaseJerseyTest {
         Assert.assertTrue(freeMemory > 0);
         Long totalMemory = json.getJsonNumber("total_memory").longValue();
         Assert.assertTrue(totalMemory > 0 && totalMemory > freeMemory);
+        Assert.assertEquals(0, json.getJsonNumber("rejected_streams").longValue());
+        Assert.assertEquals(0, json.getJsonNumber("transcoder_processes").longValue());
+        Assert.assertTrue(json.getJsonNumber("db_checkouts").longValue() > 0);
+        Assert.assertEquals(0, json.getJsonNumber("db_waiting_threads").longValue());
     }
 
     /**
@@ -121,6 +121,16 @@ public class TestPlaylistResource extends BaseJerseyTest {
         Assert.assertEquals(track1Id, tracks.getJsonObject(0).getString("id"));
         Assert.assertEquals(track0Id, tracks.getJsonObject(1).getString("id"));
 
+        // Admin gets the track after the 1st one
+        json = target().path("/playlist/0/next").request()
+                .cookie(TokenBasedSecurityFilter.COOKIE_NAME, adminAuthenticationToken)
+                .get(JsonObject.class);
+        tracks = json.getJsonArray("tracks");
+        Assert.assertEquals(1, tracks.size());
+        Assert.assertEquals(1, tracks.getJsonObject(0).getInt("order"));
+        Assert.assertEquals(track0Id, tracks.getJsonObject(0).getString("id"));
+        Assert.assertFalse(tracks.getJsonObject(0).getBoolean("transcoded"));
+
         // Admin removes the 1st track from the playlist
         json = target().path("/playlist/0").request()
                 .cookie(TokenBasedSecurityFilter.COOKIE_NAME, adminAuthenticationToken)
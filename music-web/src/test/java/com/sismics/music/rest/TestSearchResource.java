@@ -44,6 +44,14 @@ public class TestSearchResource extends BaseJerseyTest {
         Assert.assertEquals(1, tracks.size());
         JsonObject track0 = tracks.getJsonObject(0);
         Assert.assertEquals("The Revolution Will Not Be Televised", track0.getString("title"));
+
+        // Next page of tracks from the last track : no result
+        json = target().path("/search/revolution")
+                .queryParam("after", track0.getString("id"))
+                .request()
+                .cookie(TokenBasedSecurityFilter.COOKIE_NAME, adminAuthenticationToken)
+                .get(JsonObject.class);
+        Assert.assertEquals(0, json.getJsonArray("tracks").size());
         
         // Search by album name : 1 result
         json = target().path("/search/coachella").request()